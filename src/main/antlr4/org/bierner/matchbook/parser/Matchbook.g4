@@ -33,11 +33,13 @@ atom:
   | STEMS         #Stems
   | STRICT_STEMS  #StrictStems
   | TOKENS        #Tokens
+  | NORM_TOKENS   #NormTokens
   | EXACT_CONCEPT #ExactConcept
   | CONCEPT       #Concept
   | CHUNK         #Chunk
   | POS           #Pos
   | REGEX         #Regex
+  | FUZZY         #Fuzzy
   | START         #Start
   | END           #End
   | ANNOTATION    #Annotation
@@ -58,6 +60,7 @@ NUMBER:       [0-9]+;
 LOWERCASE :   [a-z][a-z0-9_]*;
 ANNOTATION:   [A-Z]+(':'[a-zA-Z]+)?;
 TOKENS:       '"'~['"']+'"';
+NORM_TOKENS:  '`'~['`']+'`';
 STEMS:        '\''~['\'']+'\'';
 STRICT_STEMS: '\'''\''~['\'']+'\'''\'';
 EXACT_CONCEPT:  '<''<'~['>']+'>''>';
@@ -65,5 +68,6 @@ CONCEPT:      '<'~['>']+'>';
 CHUNK:        '['[A-Z]+']';
 POS:          '{'[A-Z]+'}';
 REGEX:        '/'(~['/']|'\\/')+'/';
+FUZZY:        '~"'~['"']+'"~'[0-9]+;
 
 WS   : [ \t\r\n]+ -> skip ; // skip spaces, tabs, newlines
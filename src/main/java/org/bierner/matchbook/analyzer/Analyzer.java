@@ -3,8 +3,14 @@
  */
 package org.bierner.matchbook.analyzer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 
 /**
@@ -44,6 +50,48 @@ public interface Analyzer {
      */
     List<Sentence> getSentences(String text);
 
+    /**
+     * Lazily sentence detects the text read from a reader.  Text is read and sentence detected a window at a
+     * time, so memory use is bounded regardless of the length of the text.  The reader is not closed.
+     * <p/>
+     * The last sentence in a window may be incomplete, so it is carried over to the next window.  By default, that
+     * means finding the last sentence returned by {@link #getSentences(java.lang.String)} at the end of the window.
+     * If the analyzer changes the text of its sentences, for instance by normalizing it, the window is instead cut
+     * after the nearest earlier sentence that can be found.  Only if none of a window's sentences can be found, or a
+     * sentence is longer than the window, is a sentence broken at the window's end.
+     *
+     * @param reader the text to break into sentences
+     * @return a stream of sentences
+     */
+    public default Stream<Sentence> sentences(Reader reader) {
+        return StreamingSentences.of(reader::read, StreamingSentences.segmenter(this));
+    }
+
+    /**
+     * Lazily sentence detects a UTF-8 file.  The file is memory-mapped and sentence detected a window at a time,
+     * so memory use is bounded regardless of the size of the file.  The stream should be closed to release the file.
+     *
+     * @param path the file to break into sentences
+     * @return a stream of sentences
+     * @throws IOException if the file cannot be opened
+     */
+    public default Stream<Sentence> sentences(Path path) throws IOException {
+        return sentences(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lazily sentence detects a file.  The file is memory-mapped and sentence detected a window at a time,
+     * so memory use is bounded regardless of the size of the file.  The stream should be closed to release the file.
+     *
+     * @param path the file to break into sentences
+     * @param charset the encoding of the file
+     * @return a stream of sentences
+     * @throws IOException if the file cannot be opened
+     */
+    public default Stream<Sentence> sentences(Path path, Charset charset) throws IOException {
+        return StreamingSentences.of(path, charset, StreamingSentences.segmenter(this));
+    }
+
     /**
      * Applies annotations from a sentence for the requested type.  See {@link AnnotationType} for some existing types and
      * information on how to construct and register your own.  An {@link AnnotatableSentence} is required for the annotations
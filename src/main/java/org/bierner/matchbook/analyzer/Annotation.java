@@ -15,6 +15,7 @@ import lombok.ToString;
 public interface Annotation<T> {
     public static final String STEM             = "STEM";
     public static final String TOKEN            = "TOKEN";
+    public static final String NORM             = "NORM";
     public static final String SPACE            = "SPACE";
     public static final String CONCEPT          = "CONCEPT";
     public static final String ANCESTOR_CONCEPT = "ANCESTOR_CONCEPT";
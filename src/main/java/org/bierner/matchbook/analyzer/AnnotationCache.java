@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe, compute-once cache of the {@link Annotations} of a single sentence.  Annotations are kept in an array
+ * of slots indexed by {@link AnnotationType#getOrdinal()}.  The first thread to request a missing type computes it while
+ * any other thread requesting the same type waits for that result, so each layer is produced exactly once.  After that,
+ * a lookup is a single volatile read.
+ * <p/>
+ * A slot is either empty, pending while being computed, or holds the final value.  Since annotators may set several
+ * types at once, or set none at all, a computation is considered finished when the annotator returns, whether or not it set
+ * the requested type.
+ *
+ * @author gann
+ */
+public class AnnotationCache {
+    // Stands in for annotators that do not provide the requested type
+    private static final Object NONE = new Object();
+
+    // A placeholder for a type currently being computed by some thread
+    private static class Pending extends CompletableFuture<Object> { }
+
+    private final    AtomicReferenceArray<Object>            slots;
+    private volatile ConcurrentHashMap<Integer, Object>      overflow; // types created after this cache
+
+    public AnnotationCache() {
+        slots = new AtomicReferenceArray<>(AnnotationType.count());
+    }
+
+    /**
+     * Returns the cached annotations of the given type, applying them with the analyzer if necessary.  The sentence
+     * is expected to pass its annotations on to {@link #set(org.bierner.matchbook.analyzer.AnnotationType, org.bierner.matchbook.analyzer.Annotations)}.
+     * @param <T> the type of the annotation's value
+     * @param type the requested type
+     * @param analyzer the analyzer used to compute missing annotations
+     * @param sentence the sentence to annotate
+     * @return the annotations or null if the analyzer did not provide any
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Annotations<T> get(AnnotationType<T> type, Analyzer analyzer, AnnotatableSentence sentence) {
+        int    ordinal = type.getOrdinal();
+        Object value   = slot(ordinal);
+
+        if (value == null) {
+            Pending pending = new Pending();
+            if (compareAndSet(ordinal, null, pending))
+                value = compute(ordinal, pending, type, analyzer, sentence);
+            else
+                value = slot(ordinal);
+        }
+
+        if (value instanceof Pending)
+            value = await((Pending) value);
+
+        return value == NONE? null : (Annotations<T>) value;
+    }
+
+    /**
+     * Sets the annotations for the given type, waking any threads waiting for them.
+     * @param <T> the type of the annotation's value
+     * @param type the annotation type
+     * @param annotations the annotations to cache
+     */
+    public <T> void set(AnnotationType<T> type, Annotations<T> annotations) {
+        Object value = annotations == null? NONE : annotations;
+        Object old   = getAndSet(type.getOrdinal(), value);
+        if (old instanceof Pending)
+            ((Pending) old).complete(value);
+    }
+
+    /**
+     * Returns true if annotations of the given type have been computed.
+     * @param type the annotation type
+     * @return true if the annotations are available without computation
+     */
+    public boolean isComputed(AnnotationType<?> type) {
+        Object value = slot(type.getOrdinal());
+        return value != null && !(value instanceof Pending);
+    }
+
+    private Object compute(int ordinal, Pending pending, AnnotationType<?> type, Analyzer analyzer, AnnotatableSentence sentence) {
+        try {
+            analyzer.applyAnnotations(sentence, type);
+        } catch (RuntimeException | Error e) {
+            // Allow a later request to try again, but let everyone currently waiting know about the failure
+            compareAndSet(ordinal, pending, null);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+
+        // The annotator did not provide this type
+        if (compareAndSet(ordinal, pending, NONE))
+            pending.complete(NONE);
+
+        return slot(ordinal);
+    }
+
+    private static Object await(Pending pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Slot access, falling back to the overflow map for types that did not
+    // exist when this cache was created.
+    ///////////////////////////////////////////////////////////////////////////
+    private Object slot(int ordinal) {
+        if (ordinal < slots.length())
+            return slots.get(ordinal);
+        ConcurrentHashMap<Integer, Object> o = overflow;
+        return o == null? null : o.get(ordinal);
+    }
+
+    private boolean compareAndSet(int ordinal, Object expect, Object update) {
+        if (ordinal < slots.length())
+            return slots.compareAndSet(ordinal, expect, update);
+        else if (expect == null)
+            return overflow().putIfAbsent(ordinal, update) == null;
+        else if (update == null)
+            return overflow().remove(ordinal, expect);
+        else
+            return overflow().replace(ordinal, expect, update);
+    }
+
+    private Object getAndSet(int ordinal, Object value) {
+        if (ordinal < slots.length())
+            return slots.getAndSet(ordinal, value);
+        else
+            return overflow().put(ordinal, value);
+    }
+
+    private ConcurrentHashMap<Integer, Object> overflow() {
+        ConcurrentHashMap<Integer, Object> o = overflow;
+        if (o == null) {
+            synchronized (this) {
+                if ((o = overflow) == null)
+                    overflow = o = new ConcurrentHashMap<>();
+            }
+        }
+        return o;
+    }
+}
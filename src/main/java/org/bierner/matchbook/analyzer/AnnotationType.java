@@ -8,6 +8,8 @@ import com.google.common.collect.Multimap;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
 
@@ -24,6 +26,7 @@ public class AnnotationType<T> {
 
     public static final AnnotationType<String>  STEM     = new AnnotationType<>(Annotation.STEM, String.class);
     public static final AnnotationType<String>  TOKEN    = new AnnotationType<>(Annotation.TOKEN, String.class);
+    public static final AnnotationType<String>  NORM     = new AnnotationType<>(Annotation.NORM, String.class);
     public static final AnnotationType<Boolean> SPACE    = new AnnotationType<>(Annotation.SPACE, Boolean.class);
     public static final AnnotationType<String>  POS      = new AnnotationType<>(Annotation.POS, String.class);
     public static final AnnotationType<String>  CHUNK    = new AnnotationType<>(Annotation.CHUNK, String.class);
@@ -36,6 +39,9 @@ public class AnnotationType<T> {
     private String   name;
     private Class<T> valueClass;
 
+    // A dense, process-wide index for this type so that per-type data can be kept in arrays rather than maps.
+    @EqualsAndHashCode.Exclude @ToString.Exclude
+    private int      ordinal;
 
     /**
      * Creates a new annotation type with the given name and value type.
@@ -43,12 +49,15 @@ public class AnnotationType<T> {
      * @param valueClass the value type of the annotation
      */
     public AnnotationType(String name, Class<T> valueClass) {
-        if (TYPES.containsKey(name))
-            throw new IllegalArgumentException("AnnotationType '" + name + "' already exists");
+        synchronized (TYPES) {
+            if (TYPES.containsKey(name))
+                throw new IllegalArgumentException("AnnotationType '" + name + "' already exists");
 
-        this.name = name;
-        this.valueClass = valueClass;
-        TYPES.put(name, this);
+            this.name = name;
+            this.valueClass = valueClass;
+            this.ordinal = TYPES.size();
+            TYPES.put(name, this);
+        }
     }
 
     /**
@@ -57,7 +66,19 @@ public class AnnotationType<T> {
      * @return an annotation type
      */
     public static AnnotationType<?> getType(String name) {
-        return TYPES.get(name);
+        synchronized (TYPES) {
+            return TYPES.get(name);
+        }
+    }
+
+    /**
+     * Returns the number of annotation types created so far.  Every type's ordinal is less than this value.
+     * @return the number of annotation types
+     */
+    public static int count() {
+        synchronized (TYPES) {
+            return TYPES.size();
+        }
     }
 
     /**
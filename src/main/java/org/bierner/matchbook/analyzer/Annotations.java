@@ -32,7 +32,70 @@ public interface Annotations<T> extends Iterable<Annotation<T>> {
      */
     Annotation<T> get(int i);
 
+    /**
+     * Returns the start position of the ith annotation, inclusive.  Implementations should override this to avoid
+     * creating an {@link Annotation} object.
+     * @param i the annotation to retrieve
+     * @return the start position
+     */
+    public default int getStart(int i) {
+        return get(i).getStart();
+    }
+
+    /**
+     * Returns the end position of the ith annotation, exclusive.  Implementations should override this to avoid
+     * creating an {@link Annotation} object.
+     * @param i the annotation to retrieve
+     * @return the end position
+     */
+    public default int getEnd(int i) {
+        return get(i).getEnd();
+    }
+
+    /**
+     * Returns the id of the ith annotation.  Implementations should override this to avoid creating an
+     * {@link Annotation} object.
+     * @param i the annotation to retrieve
+     * @return the annotation id
+     */
+    public default String getId(int i) {
+        return get(i).getId();
+    }
+
+    /**
+     * Returns the id of the ith annotation as an id in the global {@link Vocabulary}.
+     * @param i the annotation to retrieve
+     * @return a vocabulary id or {@link Vocabulary#UNKNOWN} if the annotation id is not in the global vocabulary
+     */
+    public default int getIdCode(int i) {
+        String id = getId(i);
+        return id == null? Vocabulary.UNKNOWN : Vocabulary.getGlobal().lookup(id);
+    }
+
+    /**
+     * Calls the consumer with the span of each annotation, in order, without creating {@link Annotation} objects.
+     * @param consumer the span consumer
+     */
+    public default void forEach(SpanConsumer consumer) {
+        for (int i = 0, size = size(); i < size; i++)
+            consumer.accept(i, getStart(i), getEnd(i));
+    }
+
     public default Stream<Annotation<T>> stream() {
         return StreamSupport.stream(spliterator(), false);
     }
+
+    /**
+     * A consumer of annotation spans.
+     */
+    @FunctionalInterface
+    public static interface SpanConsumer {
+        /**
+         * Accepts the span of an annotation.
+         * @param i the index of the annotation
+         * @param start the start position, inclusive
+         * @param end the end position, exclusive
+         */
+        void accept(int i, int start, int end);
+    }
 }
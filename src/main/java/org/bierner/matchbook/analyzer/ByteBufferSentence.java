@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import lombok.Getter;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.Annotation.SimpleAnnotation;
+import org.bierner.matchbook.analyzer.Annotation.UnitAnnotation;
+import org.bierner.matchbook.analyzer.ontology.Ontology;
+
+/**
+ * A sentence read from the binary format written by {@link SentenceCodec}.  Only the record's header is read up front;
+ * the text and each annotation layer are decoded from the buffer the first time they are requested, with string layers
+ * decoded into arrays of {@link Vocabulary#getGlobal() global} vocabulary ids.  Layers that weren't encoded are
+ * computed by the sentence's analyzer, if it provides them.
+ * <p/>
+ * The sentence keeps a view of the buffer rather than a copy, so the buffer may be a memory-mapped file.
+ *
+ * @author gann
+ */
+public class ByteBufferSentence implements Sentence {
+    private final ByteBuffer buffer;
+    @Getter private final Analyzer analyzer;
+    private final Ontology   ontology;
+
+    private final int[]      strings;       // The offset of each string in the string table
+    private final int        localeIndex;
+    private final int        textOffset;
+    private final int[]      layers;        // The offset of each stored layer by type ordinal, or -1
+    private final int        length;
+
+    private volatile Locale  locale;
+    private volatile String  text;
+    private volatile int[]   codes;         // The global vocabulary id of each string in the string table
+
+    private final AnnotationCache       annotationCache = new AnnotationCache();
+    private final BufferAnnotatable     annotatable     = new BufferAnnotatable();
+
+    /**
+     * Creates a sentence reading from the buffer's remaining bytes.
+     * @param buffer a buffer positioned at an encoded sentence
+     * @param analyzer the analyzer used for any layers not in the encoded sentence
+     * @param ontology the ontology used to resolve entity valued annotations, or null
+     * @throws IllegalArgumentException if the buffer does not contain a sentence in a known version of the format
+     */
+    public ByteBufferSentence(@NonNull ByteBuffer buffer, @NonNull Analyzer analyzer, Ontology ontology) {
+        this.buffer   = buffer.slice();
+        this.analyzer = analyzer;
+        this.ontology = ontology;
+
+        SentenceCodec.Input in = new SentenceCodec.Input(this.buffer, 0);
+        byte version = in.read();
+        if (version != SentenceCodec.VERSION)
+            throw new IllegalArgumentException("Unknown sentence format version: " + version);
+
+        strings = new int[in.varint()];
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = in.skipString();
+        localeIndex = in.varint();
+        textOffset  = in.skipString();
+
+        layers = new int[AnnotationType.count()];
+        Arrays.fill(layers, -1);
+        for (int count = in.varint(); count > 0; count--) {
+            AnnotationType<?> type = AnnotationType.getType(in.string(strings[in.varint()]));
+            int offset = in.position;
+            in.read();
+            int layerLength = in.varint();
+            in.position += layerLength;
+            if (type != null && type.getOrdinal() < layers.length)
+                layers[type.getOrdinal()] = offset;
+        }
+        length = in.position;
+    }
+
+    /**
+     * Returns the number of bytes in the encoded sentence.
+     * @return the length of the sentence's record
+     */
+    public int getEncodedLength() {
+        return length;
+    }
+
+    /**
+     * Returns true if annotations of the given type were encoded with the sentence.
+     * @param type the annotation type
+     * @return true if the annotations are stored rather than computed by the analyzer
+     */
+    public boolean isStored(AnnotationType<?> type) {
+        return type.getOrdinal() < layers.length && layers[type.getOrdinal()] >= 0;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Sentence implementation
+    ///////////////////////////////////////////////////////////////////////////
+    @Override
+    public Locale getLocale() {
+        Locale l = locale;
+        if (l == null)
+            locale = l = Locale.forLanguageTag(string(localeIndex));
+        return l;
+    }
+
+    @Override
+    public String getText() {
+        String t = text;
+        if (t == null)
+            text = t = new SentenceCodec.Input(buffer, 0).string(textOffset);
+        return t;
+    }
+
+    @Override
+    public <T> boolean hasAnnotation(AnnotationType<T> type) {
+        return isStored(type) || analyzer.provides(annotatable, type);
+    }
+
+    @Override
+    public <T> Annotations<T> getAnnotations(AnnotationType<T> type) {
+        // Decoding twice in a race is harmless since both threads produce the same annotations
+        if (isStored(type) && !annotationCache.isComputed(type))
+            annotationCache.set(type, decode(type, layers[type.getOrdinal()]));
+        return annotationCache.get(type, analyzer, annotatable);
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Decoding
+    ///////////////////////////////////////////////////////////////////////////
+    private String string(int index) {
+        return new SentenceCodec.Input(buffer, 0).string(strings[index]);
+    }
+
+    private int[] codes() {
+        int[] c = codes;
+        if (c == null) {
+            c = new int[strings.length];
+            Vocabulary vocabulary = Vocabulary.getGlobal();
+            for (int i = 0; i < c.length; i++)
+                c[i] = vocabulary.intern(string(i));
+            codes = c;
+        }
+        return c;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Annotations<T> decode(AnnotationType<T> type, int offset) {
+        SentenceCodec.Input in = new SentenceCodec.Input(buffer, offset);
+        boolean unit = in.read() == SentenceCodec.UNIT;
+        in.varint();
+        int size = in.varint();
+
+        int[] c      = codes();
+        int[] ids    = new int[size];
+        int[] starts = new int[size];
+        int[] ends   = new int[size];
+        boolean unknown = false;
+        for (int i = 0, start = 0; i < size; i++) {
+            if (unit) {
+                starts[i] = i;
+                ends[i]   = i + 1;
+            } else {
+                start    += SentenceCodec.unzigzag(in.varint());
+                starts[i] = start;
+                ends[i]   = start + in.varint();
+            }
+            int s = in.varint();
+            ids[i] = s == 0? Vocabulary.UNKNOWN : c[s - 1];
+            unknown |= s == 0;
+        }
+
+        if (type.getValueClass() == String.class) {
+            if (unit && !unknown)
+                return (Annotations<T>) new IdAnnotations(ids, Vocabulary.getGlobal());
+            return (Annotations<T>) new IdSpanAnnotations(ids, starts, ends);
+        }
+
+        Vocabulary vocabulary = Vocabulary.getGlobal();
+        List<Annotation<T>> annotations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = ids[i] == Vocabulary.UNKNOWN? null : vocabulary.get(ids[i]);
+            T value = value(type.getValueClass(), id);
+            annotations.add(unit? new UnitAnnotation<>(id, value, i) : new SimpleAnnotation<>(id, value, starts[i], ends[i]));
+        }
+        return new RangeAnnotations<>(annotations);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(Class<T> valueClass, String id) {
+        if (id == null)
+            return null;
+        if (valueClass == Boolean.class)
+            return (T) Boolean.valueOf(id);
+        if (ontology != null && Ontology.Entity.class.isAssignableFrom(valueClass))
+            return (T) ontology.getEntity((Class<? extends Ontology.Entity>) valueClass, id);
+        return null;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Annotation storage
+    ///////////////////////////////////////////////////////////////////////////
+    private class BufferAnnotatable implements AnnotatableSentence {
+        @Override public Locale   getLocale()   { return ByteBufferSentence.this.getLocale(); }
+        @Override public String   getText()     { return ByteBufferSentence.this.getText(); }
+        @Override public Analyzer getAnalyzer() { return analyzer; }
+
+        @Override public <T> boolean hasAnnotation(AnnotationType<T> type)         { return ByteBufferSentence.this.hasAnnotation(type); }
+        @Override public <T> Annotations<T> getAnnotations(AnnotationType<T> type) { return ByteBufferSentence.this.getAnnotations(type); }
+
+        @Override
+        public <T> void setAnnotations(AnnotationType<T> type, Annotations<T> annotations) {
+            annotationCache.set(type, annotations);
+        }
+    }
+}
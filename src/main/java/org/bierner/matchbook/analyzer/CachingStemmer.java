@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A {@link Stemmer} that memoizes another stemmer in a bounded cache.  Since most text is made up of a relatively small
+ * number of distinct words, nearly all stemming can be answered from the cache.  The cache is safe to share across
+ * sentences and threads, and stems are canonicalized in the global {@link Vocabulary} so that equal stems share an instance.
+ * <p/>
+ * Any stemming annotator can use this by wrapping its stemmer, eg <code>new CachingStemmer(myStemmer, 100000)</code>.
+ *
+ * @author gann
+ */
+public class CachingStemmer implements Stemmer {
+    @Getter private final Stemmer stemmer;
+    private final LoadingCache<String, String> cache;
+
+    /**
+     * Constructs a new caching stemmer.
+     * @param stemmer the stemmer to cache.  It must be thread-safe.
+     * @param maximumSize the maximum number of tokens to cache
+     */
+    public CachingStemmer(@NonNull Stemmer stemmer, long maximumSize) {
+        this.stemmer = stemmer;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(new CacheLoader<String, String>() {
+                    @Override public String load(String token) {
+                        return Vocabulary.getGlobal().canonical(stemmer.stem(token));
+                    }
+                });
+    }
+
+    @Override
+    public String stem(String token) {
+        return cache.getUnchecked(token);
+    }
+
+    /**
+     * Returns the hit and miss statistics of the cache.
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the number of tokens currently cached.
+     * @return the cache size
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.nio.CharBuffer;
+import java.util.Locale;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+
+/**
+ * A memory efficient sentence for applications that hold on to large numbers of analyzed sentences.  Like {@link SimpleSentence},
+ * annotations are lazily obtained from the analyzer, but they are stored in columnar form: token boundaries are kept as character
+ * offsets into the original text and string valued unit annotations (tokens, stems, pos tags, etc) are kept as arrays of
+ * {@link Vocabulary} ids, by default in the {@link Vocabulary#getGlobal() global} vocabulary.  Token text is available as a view of the original text without copying.
+ * <p/>
+ * It can be used with a {@link SimpleAnalyzer} via its sentence factory, eg <code>analyzer.getSentences(text, CompactSentence::new)</code>.
+ *
+ * @author gann
+ */
+@Getter
+public class CompactSentence implements OffsetSentence {
+    private static final int[]      NO_OFFSETS = new int[0];
+
+    @NonNull private final String   text;
+    @NonNull private final Locale   locale;
+    @NonNull private final Analyzer analyzer;
+
+    @Getter(AccessLevel.NONE) private final Vocabulary         vocabulary;
+    @Getter(AccessLevel.NONE) private final CompactAnnotatable annotatable = new CompactAnnotatable();
+    @Getter(AccessLevel.NONE) private final AnnotationCache    annotationCache = new AnnotationCache();
+
+    // Token start and end offsets, interleaved.  Set before the tokens are cached so that they are visible to anyone
+    // who can see the tokens.
+    @Getter(AccessLevel.NONE) private volatile int[] offsets;
+
+    public CompactSentence(@NonNull String text, @NonNull Locale locale, @NonNull Analyzer analyzer) {
+        this(text, locale, analyzer, Vocabulary.getGlobal());
+    }
+
+    public CompactSentence(@NonNull String text, @NonNull Locale locale, @NonNull Analyzer analyzer, @NonNull Vocabulary vocabulary) {
+        this.text       = text;
+        this.locale     = locale;
+        this.analyzer   = analyzer;
+        this.vocabulary = vocabulary;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Sentence implementation
+    ///////////////////////////////////////////////////////////////////////////
+    @Override
+    public <T> Annotations<T> getAnnotations(AnnotationType<T> type) {
+        return annotationCache.get(type, analyzer, annotatable);
+    }
+
+    @Override
+    public <T> boolean hasAnnotation(AnnotationType<T> type) {
+        return analyzer.provides(annotatable, type);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // OffsetSentence implementation
+    ///////////////////////////////////////////////////////////////////////////
+    @Override
+    public boolean hasTokenOffsets() {
+        return tokenOffsets() != NO_OFFSETS;
+    }
+
+    @Override
+    public int getTokenStart(int token) {
+        return alignedOffsets()[token * 2];
+    }
+
+    @Override
+    public int getTokenEnd(int token) {
+        return alignedOffsets()[token * 2 + 1];
+    }
+
+    @Override
+    public CharSequence getTokenText(int token) {
+        int[] o = tokenOffsets();
+        if (o == NO_OFFSETS)
+            return SentenceUtilities.getTokens(this).get(token);
+        return CharBuffer.wrap(text, o[token * 2], o[token * 2 + 1]);
+    }
+
+    private int[] tokenOffsets() {
+        int[] o = offsets;
+        if (o == null) {
+            getAnnotations(AnnotationType.TOKEN);
+            o = offsets;
+        }
+        return o == null? NO_OFFSETS : o;
+    }
+
+    private int[] alignedOffsets() {
+        int[] o = tokenOffsets();
+        if (o == NO_OFFSETS)
+            throw new IllegalStateException("Tokens do not align with the text of sentence: " + text);
+        return o;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Annotation storage
+    ///////////////////////////////////////////////////////////////////////////
+    private class CompactAnnotatable implements AnnotatableSentence {
+        @Override public Locale   getLocale()   { return locale; }
+        @Override public String   getText()     { return text; }
+        @Override public Analyzer getAnalyzer() { return analyzer; }
+
+        @Override public <T> boolean hasAnnotation(AnnotationType<T> type)         { return CompactSentence.this.hasAnnotation(type); }
+        @Override public <T> Annotations<T> getAnnotations(AnnotationType<T> type) { return CompactSentence.this.getAnnotations(type); }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void setAnnotations(AnnotationType<T> type, Annotations<T> annotations) {
+            if (type.getValueClass() == String.class && annotations instanceof UnitAnnotations && !(annotations instanceof InternedAnnotations))
+                annotations = (Annotations<T>) new IdAnnotations(((UnitAnnotations<String>) annotations).getValueList(), vocabulary);
+
+            if (type == AnnotationType.TOKEN) {
+                int[] aligned = SentenceUtilities.alignTokens(text, SentenceUtilities.getValues((Annotations<String>) annotations));
+                offsets = aligned == null? NO_OFFSETS : aligned;
+            }
+
+            annotationCache.set(type, annotations);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import lombok.AllArgsConstructor;
+
+/**
+ * A {@link UnitAnnotations} implementation for string values that stores each value as an integer id in a
+ * {@link Vocabulary}.  Values are shared with the vocabulary rather than held per sentence.
+ *
+ * @author gann
+ */
+public class IdAnnotations extends UnitAnnotations<String> implements InternedAnnotations<String> {
+    private final int[]      ids;
+    private final Vocabulary vocabulary;
+
+    /**
+     * Creates annotations from vocabulary ids.
+     * @param ids the vocabulary id of each annotation's value, in order
+     * @param vocabulary the vocabulary defining the ids
+     */
+    public IdAnnotations(int[] ids, Vocabulary vocabulary) {
+        super(new IdList(ids, vocabulary));
+        this.ids = ids;
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Creates annotations from string values, interning them in the given vocabulary.
+     * @param values the annotation values, in order
+     * @param vocabulary the vocabulary in which to intern the values
+     */
+    public IdAnnotations(List<String> values, Vocabulary vocabulary) {
+        this(intern(values, vocabulary), vocabulary);
+    }
+
+    /**
+     * Creates annotations from string values, interning them in the global vocabulary.
+     * @param values the annotation values, in order
+     */
+    public IdAnnotations(List<String> values) {
+        this(values, Vocabulary.getGlobal());
+    }
+
+    @Override
+    public int getLocalIdCode(int i) {
+        return ids[i];
+    }
+
+    @Override
+    public String getId(int i) {
+        return vocabulary.get(ids[i]);
+    }
+
+    @Override
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    private static int[] intern(List<String> values, Vocabulary vocabulary) {
+        int[] ids = new int[values.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = vocabulary.intern(values.get(i));
+        return ids;
+    }
+
+    // A read-only list view of the ids as strings
+    @AllArgsConstructor
+    private static class IdList extends AbstractList<String> implements RandomAccess {
+        private final int[]      ids;
+        private final Vocabulary vocabulary;
+
+        @Override public String get(int i) { return vocabulary.get(ids[i]); }
+        @Override public int size()        { return ids.length; }
+    }
+}
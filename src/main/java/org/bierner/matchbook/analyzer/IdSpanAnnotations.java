@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.util.Iterator;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.Annotation.SimpleAnnotation;
+
+/**
+ * An {@link Annotations} implementation for string valued annotations with arbitrary spans.  Spans are stored in
+ * primitive arrays and ids in the global {@link Vocabulary}, so an annotation object is only created if one is
+ * explicitly requested with {@link #get(int)}.
+ *
+ * @author gann
+ */
+public class IdSpanAnnotations implements InternedAnnotations<String> {
+    private final int[] ids;
+    private final int[] starts;
+    private final int[] ends;
+
+    /**
+     * Creates annotations from parallel arrays.  Annotations should be ordered by start then end position.
+     * @param ids the global vocabulary id of each annotation
+     * @param starts the start position of each annotation, inclusive
+     * @param ends the end position of each annotation, exclusive
+     */
+    public IdSpanAnnotations(@NonNull int[] ids, @NonNull int[] starts, @NonNull int[] ends) {
+        if (ids.length != starts.length || ids.length != ends.length)
+            throw new IllegalArgumentException("Annotation arrays must be the same length");
+        this.ids    = ids;
+        this.starts = starts;
+        this.ends   = ends;
+    }
+
+    /**
+     * Creates a single annotation.
+     * @param id the annotation id
+     * @param start the start position, inclusive
+     * @param end the end position, exclusive
+     */
+    public IdSpanAnnotations(String id, int start, int end) {
+        this(new int[] {Vocabulary.getGlobal().intern(id)}, new int[] {start}, new int[] {end});
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Annotation<String> get(int i) {
+        String id = getId(i);
+        return new SimpleAnnotation<>(id, id, starts[i], ends[i]);
+    }
+
+    @Override public int        getStart(int i)       { return starts[i]; }
+    @Override public int        getEnd(int i)         { return ends[i]; }
+    @Override public int        getLocalIdCode(int i) { return ids[i]; }
+    @Override public Vocabulary getVocabulary()       { return Vocabulary.getGlobal(); }
+
+    @Override
+    public void forEach(SpanConsumer consumer) {
+        for (int i = 0; i < ids.length; i++)
+            consumer.accept(i, starts[i], ends[i]);
+    }
+
+    @Override
+    public Iterator<Annotation<String>> iterator() {
+        return new Iterator<Annotation<String>>() {
+            private int pos = 0;
+            @Override public boolean hasNext() { return pos < ids.length; }
+            @Override public Annotation<String> next() { return get(pos++); }
+            @Override public void remove() { throw new UnsupportedOperationException("Annotations are immutable."); }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+/**
+ * Annotations whose ids are stored as {@link Vocabulary} ids.  Matchers can use these to compare annotation ids as
+ * integers rather than strings.
+ *
+ * @param <T> The type of the value of the annotation.
+ * @author gann
+ */
+public interface InternedAnnotations<T> extends Annotations<T> {
+    /**
+     * Returns the vocabulary defining the ids of these annotations.
+     * @return a vocabulary
+     */
+    Vocabulary getVocabulary();
+
+    /**
+     * Returns the id of the ith annotation as an id in {@link #getVocabulary()}, which need not be the global
+     * vocabulary.
+     * @param i the annotation to retrieve
+     * @return a vocabulary id
+     */
+    int getLocalIdCode(int i);
+
+    /**
+     * Returns the id of the ith annotation as an id in the global {@link Vocabulary}.  This is the local id itself when
+     * the annotations use the global vocabulary, as they nearly always do.
+     * @param i the annotation to retrieve
+     * @return a vocabulary id or {@link Vocabulary#UNKNOWN} if the annotation id is not in the global vocabulary
+     */
+    @Override
+    public default int getIdCode(int i) {
+        int code = getLocalIdCode(i);
+        Vocabulary global = Vocabulary.getGlobal(), local = getVocabulary();
+        return local == global || code == Vocabulary.UNKNOWN? code : global.lookup(local.get(code));
+    }
+
+    @Override
+    public default String getId(int i) {
+        int code = getLocalIdCode(i);
+        return code == Vocabulary.UNKNOWN? null : getVocabulary().get(code);
+    }
+}
@@ -19,4 +19,14 @@ public interface LanguageDetector {
      * @return a locale
      */
     Locale getLanguage(String text);
+
+    /**
+     * Gets the language for the given text unless the caller already knows it, in which case detection is skipped.
+     * @param text
+     * @param hint the language of the text or null if it should be detected
+     * @return a locale
+     */
+    public default Locale getLanguage(String text, Locale hint) {
+        return hint != null? hint : getLanguage(text);
+    }
 }
@@ -5,32 +5,31 @@
 package org.bierner.matchbook.analyzer;
 
 import com.google.common.base.Splitter;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
-import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import lombok.Value;
 import org.bierner.matchbook.analyzer.SimpleAnalyzer.SimpleAnalyzerBuilder;
 
 /**
  * An {@link Analyzer} composed of Locale-based factories so that it can adaptively apply the appropriate analysis depending on the language.
  * There are two ways to localize this analyzer.  The first is to call the {@link #localize(java.util.Locale)} method to get a new Analyzer meant for
  * the requested locale.  Alternatively, calling {@link #getSentence(java.lang.String) } or {@link #getSentences(java.lang.String)} will use
- * the language detector to determine the language and use a localized version of this analyzer for further analysis.
+ * the language detector to determine the language and use a localized version of this analyzer for further analysis.  Localized analyzers
+ * are built once per locale and cached, and the sentences they create dispatch annotation requests directly to their annotators.
  * <p/>
  * This analyzer can be constructed using a builder but also through a string representation amenable to configuration settings.  The syntax
  * is <code>type[.locale]=class;...</code> where the type is one of "languageDetector", "sentenceDetector", or "annotator" and the class is
@@ -83,94 +82,119 @@ public class MultiLingualAnalyzer implements Analyzer {
     ///////////////////////////////////////////////////////////////////////////
     // Caches
     ///////////////////////////////////////////////////////////////////////////
-    @Value
-    private static class LocalizedType {
-        private Locale            locale;
-        private AnnotationType<?> type;
-    }
+    // Localized analyzers, built on the first use of each locale
+    private final ConcurrentHashMap<Locale, SimpleAnalyzer> localizedAnalyzers = new ConcurrentHashMap<>();
 
-    private <T> T getLocalized(Map<Locale, LocalizedFactory<T>> factories, Locale locale, String type) {
+    private <T> LocalizedFactory<T> getFactory(Map<Locale, LocalizedFactory<T>> factories, Locale locale) {
         LocalizedFactory<T> factory = factories.get(locale);             // Try the entire locale first
         if (factory == null)
             factory = factories.get(new Locale(locale.getLanguage()));   // If that fails, try just the language
         if (factory == null)
             factory = factories.get(DEFAULT_LOCALE);                     // Finally, try the default
-        if (factory == null)
-            throw new UnsupportedOperationException("Analyzer does not support " + type + " for locale " + locale);
-        return factory.newInstance(locale);
+        return factory;
     }
 
-    private LoadingCache<LocalizedType, SentenceAnnotator> annotatorCache = CacheBuilder.newBuilder()
-            .build(new CacheLoader<LocalizedType, SentenceAnnotator>() {
-                @Override public SentenceAnnotator load(LocalizedType lType) {
-                    return getLocalized(annotators.row(lType.getType()), lType.getLocale(), lType.getType().getName());
-                }
-            });
+    private SimpleAnalyzer newLocalizedAnalyzer(Locale locale) {
+        LocalizedFactory<SentenceDetector> detectorFactory = getFactory(sentenceDetectors, locale);
+        SimpleAnalyzerBuilder builder = SimpleAnalyzer.builder().
+                locale(locale).
+                sentenceDetector(detectorFactory != null? detectorFactory.newInstance(locale) : text -> {
+                    throw new UnsupportedOperationException("Analyzer does not support SentenceDetector for locale " + locale);
+                });
 
-    private LoadingCache<Locale, SentenceDetector> sentenceDetectorCache = CacheBuilder.newBuilder()
-            .build(new CacheLoader<Locale, SentenceDetector>() {
-                @Override public SentenceDetector load(Locale locale) {
-                    return getLocalized(sentenceDetectors, locale, "SentenceDetector");
-                }
-            });
+        // A factory may supply several types, so only make one instance of each
+        Map<LocalizedFactory<SentenceAnnotator>, SentenceAnnotator> instances = new HashMap<>();
+        for (AnnotationType<?> type : annotators.rowKeySet()) {
+            LocalizedFactory<SentenceAnnotator> factory = getFactory(annotators.row(type), locale);
+            if (factory == null)
+                continue;
+            try {
+                SentenceAnnotator annotator = instances.get(factory);
+                if (annotator == null)
+                    instances.put(factory, annotator = factory.newInstance(locale));
+                builder.annotator(type, annotator);
+            } catch (IllegalArgumentException ex) {
+                // Skip over annotation factories that do not support this locale
+            }
+        }
+        return builder.build();
+    }
 
     ///////////////////////////////////////////////////////////////////////////
     // Local implementation
     ///////////////////////////////////////////////////////////////////////////
     /**
-     * Constructs a new analyzer composed of those modules (annotators, sentence detector, etc) that support
+     * Returns an analyzer composed of those modules (annotators, sentence detector, etc) that support
      * the requested locale.  This is useful when needing to support multiple languages, but the language
-     * of the text is known before analysis.  The new analyzer is not cached, so the client is required
-     * to do so to avoid creating a new Analyzer object each time.
+     * of the text is known before analysis.  Localized analyzers are cached, so each locale is only built once.
      *
      * @param locale
      * @return a localized analyzer
      */
     public Analyzer localize(Locale locale) {
-        SimpleAnalyzerBuilder builder = SimpleAnalyzer.builder().
-                locale(locale).
-                sentenceDetector(sentenceDetectorCache.getUnchecked(locale));
+        return localized(locale);
+    }
 
-        for (AnnotationType<?> type : annotators.rowKeySet()) {
-            try {
-                builder.annotator(annotatorCache.getUnchecked(new LocalizedType(locale, type)));
-            } catch (UncheckedExecutionException ex) {
-                // Ignore IllegalArgumentExceptions so that we just skip over annotation factories
-                // that do not support this locale.  Rethrow anything else
-                if (! (ex.getCause() instanceof IllegalArgumentException))
-                    throw ex;
-            }
-        }
-        return builder.build();
+    private SimpleAnalyzer localized(Locale locale) {
+        SimpleAnalyzer analyzer = localizedAnalyzers.get(locale);
+        return analyzer != null? analyzer : localizedAnalyzers.computeIfAbsent(locale, this::newLocalizedAnalyzer);
+    }
+
+    /**
+     * Builds the localized analyzers for the given locales in parallel so that their models are loaded before
+     * they are first needed.
+     * @param locales
+     */
+    public void preload(Collection<Locale> locales) {
+        locales.parallelStream().forEach(this::localized);
     }
 
     ///////////////////////////////////////////////////////////////////////////
     // Analyzer implementation
+    //
+    // Sentences are created by the localized analyzer for their language, so their
+    // annotators are resolved once, when the sentence is created.
     ///////////////////////////////////////////////////////////////////////////
     @Override
     public Sentence getSentence(String text) {
-        Locale locale = languageDetector.getLanguage(text);
-        return new SimpleSentence(text, locale, this);
+        return localized(languageDetector.getLanguage(text)).getSentence(text);
     }
 
     @Override
     public List<Sentence> getSentences(String text) {
-        Locale locale = languageDetector.getLanguage(text);
-        List<Sentence> result = new ArrayList<>();
-        for (String sentence : sentenceDetectorCache.getUnchecked(locale).getSentences(text))
-            result.add(new SimpleSentence(sentence, locale, this));
-        return result;
+        return localized(languageDetector.getLanguage(text)).getSentences(text);
+    }
+
+    /**
+     * Constructs a single sentence, skipping language detection if the language is already known.
+     * @param text
+     * @param hint the language of the text or null if it should be detected
+     * @return a sentence
+     */
+    public Sentence getSentence(String text, Locale hint) {
+        return localized(languageDetector.getLanguage(text, hint)).getSentence(text);
+    }
+
+    /**
+     * Sentence detects the given text, skipping language detection if the language is already known.
+     * @param text
+     * @param hint the language of the text or null if it should be detected
+     * @return a list of sentences
+     */
+    public List<Sentence> getSentences(String text, Locale hint) {
+        return localized(languageDetector.getLanguage(text, hint)).getSentences(text);
     }
 
     @Override
     public <T> void applyAnnotations(AnnotatableSentence sentence, AnnotationType<T> type) {
-        annotatorCache.getUnchecked(new LocalizedType(sentence.getLocale(), type)).annotate(sentence);
+        localized(sentence.getLocale()).applyAnnotations(sentence, type);
     }
 
     @Override
     public <T> boolean provides(AnnotatableSentence sentence, AnnotationType<T> type) {
-        return null != annotatorCache.getUnchecked(new LocalizedType(sentence.getLocale(), type));
+        return localized(sentence.getLocale()).provides(sentence, type);
     }
+
     ///////////////////////////////////////////////////////////////////////////
     // Constructing
     ///////////////////////////////////////////////////////////////////////////
@@ -192,13 +216,47 @@ public class MultiLingualAnalyzer implements Analyzer {
         private LanguageDetector languageDetector = null;
         private Map<Locale, LocalizedFactory<SentenceDetector>> sentenceDetectors = null;
         private Table<AnnotationType<?>, Locale, LocalizedFactory<SentenceAnnotator>> annotators = null;
+        private Set<Locale> preload = new LinkedHashSet<>();
+        private boolean preloadConfigured = false;
 
         /**
-         * Builds the final {@link MultiLingualAnalyzer} object
+         * Builds the final {@link MultiLingualAnalyzer} object, preloading any requested locales.
          * @return a new instance of the analyzer
          */
         public MultiLingualAnalyzer build() {
-            return new MultiLingualAnalyzer(languageDetector, sentenceDetectors, annotators);
+            MultiLingualAnalyzer analyzer = new MultiLingualAnalyzer(languageDetector, sentenceDetectors, annotators);
+
+            Set<Locale> locales = new LinkedHashSet<>(preload);
+            if (preloadConfigured) {
+                if (sentenceDetectors != null)
+                    locales.addAll(sentenceDetectors.keySet());
+                if (annotators != null)
+                    locales.addAll(annotators.columnKeySet());
+                locales.remove(DEFAULT_LOCALE);
+            }
+            analyzer.preload(locales);
+
+            return analyzer;
+        }
+
+        /**
+         * Requests that every locale with a specifically configured module be loaded, in parallel, when the analyzer is built
+         * rather than on first use.
+         * @return this builder
+         */
+        public MultiLingualAnalyzerBuilder preload() {
+            preloadConfigured = true;
+            return this;
+        }
+
+        /**
+         * Requests that the given locales be loaded, in parallel, when the analyzer is built rather than on first use.
+         * @param locales
+         * @return this builder
+         */
+        public MultiLingualAnalyzerBuilder preload(Locale ... locales) {
+            preload.addAll(Arrays.asList(locales));
+            return this;
         }
 
         /**
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+/**
+ * A sentence that knows where each of its tokens occurs in its original text.  This allows portions of the sentence
+ * to be obtained by slicing the original text rather than rebuilding it from tokens.  Offsets are only known once the
+ * sentence has been tokenized, so these methods may cause {@link AnnotationType#TOKEN} annotations to be computed.
+ * @author gann
+ */
+public interface OffsetSentence extends Sentence {
+    /**
+     * Returns true if the token offsets are known.  This is not the case if the tokenizer produced tokens that do not
+     * appear verbatim in the original text.
+     * @return true if the token offsets are known.
+     */
+    boolean hasTokenOffsets();
+
+    /**
+     * Returns the character offset of the start of the given token in the sentence text, inclusive.
+     * @param token the token position
+     * @return a character offset
+     * @throws IllegalStateException if the token offsets are not known
+     */
+    int getTokenStart(int token);
+
+    /**
+     * Returns the character offset of the end of the given token in the sentence text, exclusive.
+     * @param token the token position
+     * @return a character offset
+     * @throws IllegalStateException if the token offsets are not known
+     */
+    int getTokenEnd(int token);
+
+    /**
+     * Returns the text of the given token as a view of the sentence text, without copying.
+     * @param token the token position
+     * @return the token text
+     */
+    CharSequence getTokenText(int token);
+}
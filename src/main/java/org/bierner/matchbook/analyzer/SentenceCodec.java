@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.ontology.Ontology;
+
+/**
+ * A compact binary format for analyzed sentences so that a corpus can be analyzed once and matched many times.  A
+ * sentence is written with the layers of the codec's annotation types, computing any that haven't been computed yet, and
+ * is read back as a {@link ByteBufferSentence} that decodes each layer straight from the buffer the first time it is
+ * requested.
+ * <p/>
+ * The format of a sentence record is below.  All integers are unsigned variable length (7 bits per byte, low order
+ * first) except where noted, and strings are UTF-8 preceded by their length in bytes.
+ * <pre>
+ *   version          a single byte, currently 1
+ *   string count     followed by each distinct annotation id, type name and the locale
+ *   locale           index of the locale's language tag in the string table
+ *   text             the sentence text as a string
+ *   layer count      followed by each layer:
+ *     type           index of the annotation type's name in the string table
+ *     kind           a single byte, 0 for layers with one annotation of length one per token, 1 for arbitrary spans
+ *     length         the number of bytes in the rest of the layer, so that readers may skip it
+ *     size           the number of annotations, followed by each annotation:
+ *       start        (spans only) the zigzag encoded difference from the previous annotation's start
+ *       length       (spans only) end - start
+ *       id           1 + the index of the annotation id in the string table, or 0 for a null id
+ * </pre>
+ * Annotation values are not stored.  When a layer is read back, string values are the ids, boolean values are parsed
+ * from the ids and ontology {@link Ontology.Entity entities} are looked up in the reader's ontology.  Other values are
+ * null.
+ *
+ * @author gann
+ */
+public class SentenceCodec {
+    static final byte VERSION = 1;
+    static final byte UNIT    = 0;
+    static final byte SPAN    = 1;
+
+    @Getter private final List<AnnotationType<?>> types;
+    @Getter private final Ontology                ontology;
+
+    /**
+     * Creates a codec that stores the given annotation layers.
+     * @param types the annotation types to store
+     */
+    public SentenceCodec(AnnotationType<?>... types) {
+        this(Arrays.asList(types), null);
+    }
+
+    /**
+     * Creates a codec that stores the given annotation layers.
+     * @param types the annotation types to store
+     * @param ontology the ontology used to resolve the values of entity valued annotations when reading, or null
+     */
+    public SentenceCodec(@NonNull Collection<AnnotationType<?>> types, Ontology ontology) {
+        this.types    = new ArrayList<>(types);
+        this.ontology = ontology;
+    }
+
+    /**
+     * Encodes a sentence along with the codec's annotation layers.  Layers the sentence does not provide are skipped.
+     * @param sentence the sentence to encode
+     * @return the encoded sentence
+     */
+    public byte[] encode(Sentence sentence) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Output layers = new Output(256);
+        Output layer  = new Output(256);
+        int count = 0;
+
+        for (AnnotationType<?> type : types) {
+            if (!sentence.hasAnnotation(type))
+                continue;
+            Annotations<?> annotations = sentence.getAnnotations(type);
+            if (annotations == null)
+                continue;
+
+            layer.reset();
+            boolean unit = isUnit(annotations);
+            int size = annotations.size();
+            layer.varint(size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                if (!unit) {
+                    int start = annotations.getStart(i);
+                    layer.varint(zigzag(start - previous));
+                    layer.varint(annotations.getEnd(i) - start);
+                    previous = start;
+                }
+                String id = annotations.getId(i);
+                layer.varint(id == null? 0 : index(strings, id) + 1);
+            }
+
+            layers.varint(index(strings, type.getName()));
+            layers.write(unit? UNIT : SPAN);
+            layers.varint(layer.size());
+            layers.write(layer);
+            count++;
+        }
+
+        int locale = index(strings, sentence.getLocale().toLanguageTag());
+
+        Output out = new Output(layers.size() + sentence.getText().length() * 2 + strings.size() * 8 + 16);
+        out.write(VERSION);
+        out.varint(strings.size());
+        for (String string : strings.keySet())
+            out.string(string);
+        out.varint(locale);
+        out.string(sentence.getText());
+        out.varint(count);
+        out.write(layers);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns a sentence that reads from the given buffer.  The sentence is a view of the buffer's remaining bytes, so
+     * the buffer's contents must not change while the sentence is in use, but its position may.
+     * @param buffer a buffer positioned at an encoded sentence
+     * @param analyzer the analyzer used for any layers not in the encoded sentence
+     * @return a sentence
+     */
+    public ByteBufferSentence decode(ByteBuffer buffer, Analyzer analyzer) {
+        return new ByteBufferSentence(buffer, analyzer, ontology);
+    }
+
+    private static boolean isUnit(Annotations<?> annotations) {
+        if (annotations instanceof UnitAnnotations)
+            return true;
+        for (int i = 0, size = annotations.size(); i < size; i++)
+            if (annotations.getStart(i) != i || annotations.getEnd(i) != i + 1)
+                return false;
+        return true;
+    }
+
+    private static int index(Map<String, Integer> strings, String string) {
+        Integer index = strings.get(string);
+        if (index == null)
+            strings.put(string, index = strings.size());
+        return index;
+    }
+
+    static int zigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    // A growable byte array
+    private static class Output {
+        private byte[] bytes;
+        private int    size;
+
+        Output(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        int size()   { return size; }
+        void reset() { size = 0; }
+
+        void write(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void write(Output o) {
+            write(o.bytes, o.size);
+        }
+
+        void write(byte[] b, int length) {
+            ensure(length);
+            System.arraycopy(b, 0, bytes, size, length);
+            size += length;
+        }
+
+        void varint(int n) {
+            ensure(5);
+            while ((n & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((n & 0x7F) | 0x80);
+                n >>>= 7;
+            }
+            bytes[size++] = (byte) n;
+        }
+
+        void string(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            write(b, b.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int n) {
+            if (size + n > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+        }
+    }
+
+    // Reads the format from a buffer using absolute positions, so the buffer's own position is never changed
+    static class Input {
+        private final ByteBuffer buffer;
+        int                      position;
+
+        Input(ByteBuffer buffer, int position) {
+            this.buffer   = buffer;
+            this.position = position;
+        }
+
+        byte read() {
+            return buffer.get(position++);
+        }
+
+        int varint() {
+            int n = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                n |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return n;
+            }
+        }
+
+        // Skips a string, returning its offset
+        int skipString() {
+            int offset = position;
+            int length = varint();
+            position += length;
+            return offset;
+        }
+
+        String string(int offset) {
+            Input in = new Input(buffer, offset);
+            int length = in.varint();
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(in.position + length).position(in.position);
+            return StandardCharsets.UTF_8.decode(slice).toString();
+        }
+    }
+}
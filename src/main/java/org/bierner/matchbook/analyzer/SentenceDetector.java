@@ -16,4 +16,27 @@ public interface SentenceDetector {
      * @return a list of Strings, each one a sentence.
      */
     List<String> getSentences(String text);
+
+    /**
+     * Divides the given text into sentences without copying them.  This is used when streaming large documents, so
+     * implementations should override it if they can avoid the copies made by {@link #getSentences(java.lang.String)}.
+     * @param text
+     * @return the start (inclusive) and end (exclusive) offset of each sentence, interleaved
+     */
+    public default int[] getSentenceSpans(CharSequence text) {
+        String string = text.toString();
+        List<String> sentences = getSentences(string);
+        int[] spans = new int[sentences.size() * 2];
+        int pos = 0;
+        for (int i = 0; i < sentences.size(); i++) {
+            String sentence = sentences.get(i);
+            int start = string.indexOf(sentence, pos);
+            if (start < 0)
+                start = pos;  // The detector altered the sentence, so make our best guess
+            pos = Math.min(start + sentence.length(), string.length());
+            spans[i * 2]     = start;
+            spans[i * 2 + 1] = pos;
+        }
+        return spans;
+    }
 }
@@ -6,13 +6,17 @@ package org.bierner.matchbook.analyzer;
 
 import com.google.common.base.Splitter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * An {@link Analyzer} implementation for sentences from a single language,
@@ -24,11 +28,24 @@ import java.util.regex.Pattern;
  * it is used given the previously specified locale (which is required in this case), otherwise the former is used.
  * @author gann
  */
-@RequiredArgsConstructor
 public class SimpleAnalyzer implements Analyzer {
-    @NonNull private Locale locale;
-    @NonNull private SentenceDetector sentenceDetector;
-    @NonNull private Map<AnnotationType<?>, SentenceAnnotator> annotators;
+    private final Locale locale;
+    private final SentenceDetector sentenceDetector;
+
+    // The annotators indexed by annotation type ordinal so that dispatch is an array lookup
+    private final SentenceAnnotator[] annotatorsByOrdinal;
+
+    public SimpleAnalyzer(@NonNull Locale locale, @NonNull SentenceDetector sentenceDetector, @NonNull Map<AnnotationType<?>, SentenceAnnotator> annotators) {
+        this.locale = locale;
+        this.sentenceDetector = sentenceDetector;
+
+        int size = 0;
+        for (AnnotationType<?> type : annotators.keySet())
+            size = Math.max(size, type.getOrdinal() + 1);
+        annotatorsByOrdinal = new SentenceAnnotator[size];
+        for (Map.Entry<AnnotationType<?>, SentenceAnnotator> entry : annotators.entrySet())
+            annotatorsByOrdinal[entry.getKey().getOrdinal()] = entry.getValue();
+    }
 
     public interface SentenceFactory {
         Sentence getSentence(String text, Locale local, Analyzer analyzer);
@@ -63,11 +80,29 @@ public class SimpleAnalyzer implements Analyzer {
         return result;
     }
 
+    @Override
+    public Stream<Sentence> sentences(Reader reader) {
+        return sentences(reader, DEFAULT_SENTENCE_FACTORY);
+    }
+
+    public Stream<Sentence> sentences(Reader reader, SentenceFactory sentenceFactory) {
+        return StreamingSentences.of(reader::read, StreamingSentences.segmenter(sentenceDetector, sentenceFactory, locale, this));
+    }
+
+    @Override
+    public Stream<Sentence> sentences(Path path, Charset charset) throws IOException {
+        return sentences(path, charset, DEFAULT_SENTENCE_FACTORY);
+    }
+
+    public Stream<Sentence> sentences(Path path, Charset charset, SentenceFactory sentenceFactory) throws IOException {
+        return StreamingSentences.of(path, charset, StreamingSentences.segmenter(sentenceDetector, sentenceFactory, locale, this));
+    }
+
     @Override
     public <T> void applyAnnotations(AnnotatableSentence sentence, AnnotationType<T> type) {
-        SentenceAnnotator annotator = annotators.get(type);
         if (type == null)
             throw new UnsupportedOperationException("Unknown type");
+        SentenceAnnotator annotator = getAnnotator(type);
         if (annotator == null)
             throw new UnsupportedOperationException("Analyzer does not support type: " + type.getName());
         else
@@ -76,7 +111,12 @@ public class SimpleAnalyzer implements Analyzer {
 
     @Override
     public <T> boolean provides(AnnotatableSentence sentence, AnnotationType<T> type) {
-        return annotators.containsKey(type);
+        return getAnnotator(type) != null;
+    }
+
+    private SentenceAnnotator getAnnotator(AnnotationType<?> type) {
+        int ordinal = type.getOrdinal();
+        return ordinal < annotatorsByOrdinal.length? annotatorsByOrdinal[ordinal] : null;
     }
 
    ///////////////////////////////////////////////////////////////////////////
@@ -133,11 +173,26 @@ public class SimpleAnalyzer implements Analyzer {
             return this;
         }
 
+        /**
+         * Specifies an annotator for just one of the types it provides.
+         * @param type the annotation type
+         * @param annotator
+         * @return this builder
+         */
+        public SimpleAnalyzerBuilder annotator(AnnotationType<?> type, SentenceAnnotator annotator) {
+            if (annotators == null)
+                annotators = new HashMap<>();
+            annotators.put(type, annotator);
+            return this;
+        }
+
         /**
          * Builds the final {@link SimpleAnalyzer} object
          * @return a new instance of the analyzer
          */
         public SimpleAnalyzer build() {
+            if (annotators == null)
+                annotators = new HashMap<>();
             SimpleAnalyzer analyzer = new SimpleAnalyzer(locale, sentenceDetector, annotators);
 
             for (SentenceAnnotator a : annotators.values())
@@ -4,14 +4,13 @@
 
 package org.bierner.matchbook.analyzer;
 
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 
 import lombok.*;
 
 /**
- * An implementation of sentence which lazily gets annotations from its analyzer upon request.
+ * An implementation of sentence which lazily gets annotations from its analyzer upon request.  Sentences may be shared
+ * across threads: each annotation type is computed at most once, no matter how many threads ask for it.
  * @author gann
  */
 @RequiredArgsConstructor @Getter
@@ -28,12 +27,8 @@ public class SimpleSentence implements Sentence {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> Annotations<T> getAnnotations(AnnotationType<T> type) {
-        if (! annotatable.annotationCache.containsKey(type))
-            analyzer.applyAnnotations(annotatable, type);
-
-        return (Annotations<T>) annotatable.annotationCache.get(type);
+        return annotatable.annotationCache.get(type, analyzer, annotatable);
     }
 
     @Override
@@ -46,11 +41,11 @@ public class SimpleSentence implements Sentence {
         @NonNull @Delegate
         SimpleSentence delegate;
 
-        private Map<AnnotationType<?>, Annotations<?>> annotationCache = new HashMap<>();
+        private final AnnotationCache annotationCache = new AnnotationCache();
 
         @Override
         public <T> void setAnnotations(AnnotationType<T> type, Annotations<T> annotations) {
-            annotationCache.put(type, annotations);
+            annotationCache.set(type, annotations);
         }
     }
 
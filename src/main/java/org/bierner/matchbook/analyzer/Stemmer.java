@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+/**
+ * An adapter for 3rd party stemmers.
+ * @author gann
+ */
+public interface Stemmer {
+    /**
+     * Returns the stem of a token.
+     * @param token to stem
+     * @return the stem
+     */
+    String stem(String token);
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lazily breaks a document into sentences without holding the whole document in memory.  Text is read into a fixed
+ * size window which is sentence detected.  All but the last sentence in the window are returned and the last, which
+ * may have been cut off by the end of the window, is carried over to the next window.  A sentence longer than the
+ * window is broken at the window's end, as is the last sentence of a window when the analyzer has changed the text of
+ * every sentence in it so that none can be found.  Memory use is therefore bounded by the window size regardless of
+ * the size of the document.
+ * <p/>
+ * Files are memory-mapped and decoded into the window a region at a time.
+ *
+ * @author gann
+ */
+final class StreamingSentences {
+    static final int WINDOW_SIZE = 1 << 16;        // chars
+    static final int REGION_SIZE = 1 << 26;        // bytes of a file to map at once
+
+    private StreamingSentences() { }
+
+    /**
+     * A source of text.
+     */
+    interface Source {
+        /**
+         * Reads as many characters as are available into the buffer.
+         * @return the number of characters read or -1 if the end of input has been reached
+         */
+        int read(CharBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Breaks a window of text into sentences.
+     */
+    interface Segmenter {
+        /**
+         * Adds the sentences found in the window to the output, starting from the beginning of the window.
+         * @param window the text
+         * @param endOfInput true if the window is the end of the document, in which case the last sentence is complete
+         * @param out the list to which to add sentences
+         * @return the number of characters of the window covered by the sentences that were added
+         */
+        int segment(CharSequence window, boolean endOfInput, List<Sentence> out);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Segmenters
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns a segmenter that uses the sentence detector's spans so that only complete sentences are copied out of the window.
+     */
+    static Segmenter segmenter(SentenceDetector detector, SimpleAnalyzer.SentenceFactory factory, Locale locale, Analyzer analyzer) {
+        return (window, endOfInput, out) -> {
+            int[] spans = detector.getSentenceSpans(window);
+            int count = spans.length / 2;
+            int complete = endOfInput? count : count - 1;
+            for (int i = 0; i < complete; i++)
+                out.add(factory.getSentence(window.subSequence(spans[i * 2], spans[i * 2 + 1]).toString(), locale, analyzer));
+
+            if (endOfInput)
+                return window.length();
+            else
+                return count < 2? 0 : spans[complete * 2];
+        };
+    }
+
+    /**
+     * Returns a segmenter for analyzers that only provide {@link Analyzer#getSentences(java.lang.String)}.  The last
+     * sentence is carried over by finding it at the end of the window.  If the analyzer has changed its text, the
+     * window is instead cut after the nearest earlier sentence that can be found, and if none can, nothing is consumed
+     * and the window is broken at its end as for an over-long sentence.
+     */
+    static Segmenter segmenter(Analyzer analyzer) {
+        return (window, endOfInput, out) -> {
+            String text = window.toString();
+            List<Sentence> sentences = analyzer.getSentences(text);
+            if (endOfInput) {
+                out.addAll(sentences);
+                return text.length();
+            }
+            int n = sentences.size();
+            if (n < 2)
+                return 0;
+
+            // The incomplete sentence runs to the end of the window, apart from any whitespace
+            String last = trimEnd(sentences.get(n - 1).getText());
+            int end = trimEnd(text).length();
+            if (!last.isEmpty() && end > last.length() && text.startsWith(last, end - last.length())) {
+                out.addAll(sentences.subList(0, n - 1));
+                return end - last.length();
+            }
+
+            for (int i = n - 2; i >= 0; i--) {
+                String sentence = sentences.get(i).getText();
+                int start = text.lastIndexOf(sentence), cut = start + sentence.length();
+                if (start >= 0 && cut > 0) {
+                    out.addAll(sentences.subList(0, i + 1));
+                    return cut;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static String trimEnd(String s) {
+        int end = s.length();
+        while (end > 0 && Character.isWhitespace(s.charAt(end - 1)))
+            end--;
+        return s.substring(0, end);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Streams
+    ///////////////////////////////////////////////////////////////////////////
+    static Stream<Sentence> of(Source source, Segmenter segmenter) {
+        Iterator<Sentence> iterator = new SentenceIterator(source, segmenter);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    static Stream<Sentence> of(Path path, Charset charset, Segmenter segmenter) throws IOException {
+        MappedSource source = new MappedSource(FileChannel.open(path, StandardOpenOption.READ), charset);
+        return of(source, segmenter).onClose(() -> {
+            try {
+                source.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Fills a window from the source and hands out the sentences found in it
+    private static class SentenceIterator implements Iterator<Sentence> {
+        private final Source         source;
+        private final Segmenter      segmenter;
+        private final CharBuffer     window  = CharBuffer.allocate(WINDOW_SIZE);
+        private final List<Sentence> pending = new ArrayList<>();
+        private int                  next    = 0;
+        private boolean              endOfInput = false;
+        private boolean              done       = false;
+
+        SentenceIterator(Source source, Segmenter segmenter) {
+            this.source = source;
+            this.segmenter = segmenter;
+            window.flip();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == pending.size() && !done)
+                advance();
+            return next < pending.size();
+        }
+
+        @Override
+        public Sentence next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return pending.get(next++);
+        }
+
+        private void advance() {
+            pending.clear();
+            next = 0;
+
+            // Top up the window after whatever was carried over from the last one
+            window.compact();
+            try {
+                while (window.hasRemaining() && !endOfInput)
+                    if (source.read(window) < 0)
+                        endOfInput = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            window.flip();
+
+            int consumed = segmenter.segment(window, endOfInput, pending);
+            if (consumed == 0 && !endOfInput)
+                consumed = segmenter.segment(window, true, pending);  // A single sentence fills the window, so break it here
+            window.position(window.position() + consumed);
+            done = endOfInput;
+        }
+    }
+
+    // Decodes a file into a character buffer by mapping it a region at a time
+    @RequiredArgsConstructor
+    private static class MappedSource implements Source, Closeable {
+        private final FileChannel    channel;
+        private final CharsetDecoder decoder;
+        private       long           offset = 0;
+        private       MappedByteBuffer region;
+        private       boolean        flushed = false;
+
+        MappedSource(FileChannel channel, Charset charset) {
+            this(channel, charset.newDecoder().
+                    onMalformedInput(CodingErrorAction.REPLACE).
+                    onUnmappableCharacter(CodingErrorAction.REPLACE));
+        }
+
+        @Override
+        public int read(CharBuffer buffer) throws IOException {
+            int start = buffer.position();
+            long size = channel.size();
+            while (buffer.hasRemaining()) {
+                if (region == null) {
+                    if (offset >= size) {
+                        if (!flushed && !decoder.flush(buffer).isOverflow())
+                            flushed = true;
+                        break;
+                    }
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(REGION_SIZE, size - offset));
+                }
+
+                boolean last = offset + region.limit() >= size;
+                CoderResult result = decoder.decode(region, buffer, last);
+                if (result.isOverflow())
+                    break;
+
+                // The region is used up except perhaps for a character split across its end, which starts the next region
+                offset += region.position();
+                region = null;
+            }
+
+            int read = buffer.position() - start;
+            return read == 0 && flushed? -1 : read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            region = null;
+            channel.close();
+        }
+    }
+}
@@ -39,6 +39,27 @@ public class UnitAnnotations<T> implements Annotations<T> {
         return new UnitAnnotation<>(valueList.get(i).toString(), valueList.get(i), i);
     }
 
+    @Override
+    public int getStart(int i) {
+        return i;
+    }
+
+    @Override
+    public int getEnd(int i) {
+        return i + 1;
+    }
+
+    @Override
+    public String getId(int i) {
+        return valueList.get(i).toString();
+    }
+
+    @Override
+    public void forEach(SpanConsumer consumer) {
+        for (int i = 0, size = valueList.size(); i < size; i++)
+            consumer.accept(i, i, i + 1);
+    }
+
     @Override
     public Iterator<Annotation<T>> iterator() {
         return new Iterator<Annotation<T>>() {
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only table mapping strings to dense integer ids and back.  This allows string based annotation layers
+ * (tokens, stems, pos tags, etc) to be stored as arrays of ints while sharing a single instance of each distinct string.
+ * <p/>
+ * The {@link #getGlobal() global} vocabulary is shared by the tokenizers, stemmers and taggers in this library as well as by
+ * the matchers, so annotation values and the values being matched can be compared as ints.  Since ids are never removed,
+ * it is meant for closed or slowly growing sets of strings such as a corpus vocabulary or a tag set.
+ * <p/>
+ * Lookups are lock free.  Adding a new string takes a lock, but that only happens the first time a string is seen.
+ *
+ * @author gann
+ */
+public class Vocabulary {
+    /**
+     * The id returned by {@link #lookup(java.lang.String)} for strings not in the vocabulary.
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final Vocabulary GLOBAL = new Vocabulary();
+
+    /**
+     * Returns the process-wide vocabulary.
+     * @return the global vocabulary
+     */
+    public static Vocabulary getGlobal() {
+        return GLOBAL;
+    }
+
+    private final    ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[]                           strings = new String[1024];
+    private          int                                size = 0;
+
+    /**
+     * Returns the id for the given string, adding it to the vocabulary if necessary.
+     * @param string
+     * @return the string's id
+     */
+    public int intern(String string) {
+        Integer id = ids.get(string);
+        return id != null? id : add(string);
+    }
+
+    /**
+     * Returns the id for the given string without modifying the vocabulary.
+     * @param string
+     * @return the string's id or {@link #UNKNOWN} if the string has not been added
+     */
+    public int lookup(String string) {
+        Integer id = ids.get(string);
+        return id != null? id : UNKNOWN;
+    }
+
+    /**
+     * Returns the shared instance of the given string, adding it to the vocabulary if necessary.
+     * @param string
+     * @return an equal string shared with everything else using this vocabulary
+     */
+    public String canonical(String string) {
+        return get(intern(string));
+    }
+
+    /**
+     * Returns the string for the given id.
+     * @param id an id previously returned by {@link #intern(java.lang.String)}
+     * @return the shared string instance
+     */
+    public String get(int id) {
+        return strings[id];
+    }
+
+    /**
+     * Returns the number of distinct strings in the vocabulary.
+     * @return the size of the vocabulary
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int add(String string) {
+        Integer id = ids.get(string);
+        if (id != null)
+            return id;
+
+        String[] s = strings;
+        if (size == s.length) {
+            String[] grown = new String[s.length * 2];
+            System.arraycopy(s, 0, grown, 0, s.length);
+            strings = s = grown;
+        }
+
+        // Publish the string before its id so that anyone who can find the id can also find the string
+        s[size] = string;
+        ids.put(string, size);
+        return size++;
+    }
+}
@@ -4,12 +4,14 @@
 
 package org.bierner.matchbook.analyzer.java;
 
+import gnu.trove.list.array.TIntArrayList;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import lombok.AllArgsConstructor;
 import org.bierner.matchbook.analyzer.SentenceDetector;
+import org.bierner.matchbook.analyzer.util.CharSequenceIterator;
 
 /**
  * A wrapper around Java's BreakIterator for sentence detection.  Any locale supported
@@ -33,5 +35,18 @@ public class BreakIteratorSentenceDetector implements SentenceDetector {
         }
         return sentences;
     }
-    
+
+    @Override
+    public int[] getSentenceSpans(CharSequence text) {
+        TIntArrayList spans = new TIntArrayList();
+        BreakIterator iterator = BreakIterator.getSentenceInstance(locale);
+        iterator.setText(new CharSequenceIterator(text));
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            spans.add(start);
+            spans.add(end);
+        }
+        return spans.toArray();
+    }
+
 }
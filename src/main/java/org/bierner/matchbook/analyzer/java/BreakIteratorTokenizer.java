@@ -12,9 +12,9 @@ import com.google.common.base.CharMatcher;
 import lombok.AllArgsConstructor;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
 import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.IdAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
 import org.bierner.matchbook.analyzer.Tokenizer;
-import org.bierner.matchbook.analyzer.UnitAnnotations;
 
 /**
  * A wrapper around Java's BreakIterator for tokenization.  Any locale supported
@@ -49,6 +49,6 @@ public class BreakIteratorTokenizer implements SentenceAnnotator, Tokenizer {
     @Override
     public void annotate(AnnotatableSentence sentence) {
         List<String> tokens = tokenize(sentence.getText());
-        sentence.setAnnotations(AnnotationType.TOKEN, new UnitAnnotations<>(tokens));
+        sentence.setAnnotations(AnnotationType.TOKEN, new IdAnnotations(tokens));
     }
 }
@@ -4,15 +4,13 @@
 
 package org.bierner.matchbook.analyzer.misc;
 
-import com.google.common.collect.Lists;
-import lombok.AllArgsConstructor;
 import lombok.experimental.ExtensionMethod;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
 import org.bierner.matchbook.analyzer.Annotation;
 import org.bierner.matchbook.analyzer.AnnotationType;
-import org.bierner.matchbook.analyzer.Annotations;
-import org.bierner.matchbook.analyzer.RangeAnnotations;
+import org.bierner.matchbook.analyzer.IdSpanAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
+import org.bierner.matchbook.analyzer.Vocabulary;
 import org.bierner.matchbook.analyzer.util.SentenceUtilities;
 
 /**
@@ -24,24 +22,14 @@ public class BoundaryAnnotator implements SentenceAnnotator {
     static {
         AnnotationType.registerAnnotator(BoundaryAnnotator.class, AnnotationType.BOUNDARY);
     }
-    
-    @AllArgsConstructor
-    private static class BoundaryAnnotation implements Annotation<String> {
-        private String value;        
-        private int pos;        
-        @Override public String getValue() { return value; }
-        @Override public String getId()    { return value; }
-        @Override public int getStart()    { return pos; }
-        @Override public int getEnd()      { return pos; }                
-    }
+
+    private static final int[] IDS = {Vocabulary.getGlobal().intern(Annotation.BOUNDARY_START),
+                                      Vocabulary.getGlobal().intern(Annotation.BOUNDARY_END)};
 
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        Annotations<String> annotations = new RangeAnnotations<>(Lists.newArrayList(
-                new BoundaryAnnotation(Annotation.BOUNDARY_START, 0),
-                new BoundaryAnnotation(Annotation.BOUNDARY_END, sentence.getAnnotations(AnnotationType.TOKEN).size())                
-                ));
-        sentence.setAnnotations(AnnotationType.BOUNDARY, annotations);
+        int end = sentence.getAnnotations(AnnotationType.TOKEN).size();
+        sentence.setAnnotations(AnnotationType.BOUNDARY, new IdSpanAnnotations(IDS, new int[] {0, end}, new int[] {0, end}));
     }
 
 }
@@ -1,11 +1,8 @@
 package org.bierner.matchbook.analyzer.misc;
 
-import java.util.Collections;
-import java.util.List;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
-import org.bierner.matchbook.analyzer.Annotation;
 import org.bierner.matchbook.analyzer.AnnotationType;
-import org.bierner.matchbook.analyzer.RangeAnnotations;
+import org.bierner.matchbook.analyzer.IdSpanAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
 
 /**
@@ -20,8 +17,6 @@ public class SentenceSpanAnnotator implements SentenceAnnotator {
 
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        List<Annotation<String>> annotations =
-                Collections.singletonList(new Annotation.SimpleAnnotation("", "", 0, sentence.getAnnotations(AnnotationType.TOKEN).size()));
-        sentence.setAnnotations(AnnotationType.SENTENCE, new RangeAnnotations<String>(annotations));
+        sentence.setAnnotations(AnnotationType.SENTENCE, new IdSpanAnnotations("", 0, sentence.getAnnotations(AnnotationType.TOKEN).size()));
     }
 }
@@ -16,7 +16,7 @@ import org.bierner.matchbook.analyzer.util.SentenceUtilities;
 
 /**
  * Annotates each token with a boolean indicating whether or not whitespace occurred before that token
- * in the original string.
+ * in the original string.  This is determined from the character offsets of the tokens in the text.
  * @author gann
  */
 @ExtensionMethod(SentenceUtilities.class)
@@ -28,11 +28,31 @@ public class SpaceAnnotator implements SentenceAnnotator {
 
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        List<String> tokens = sentence.getTokens();
+        String        text    = sentence.getText();
+        List<String>  tokens  = sentence.getTokens();
+        int[]         offsets = SentenceUtilities.alignTokens(text, tokens);
+        List<Boolean> spaces  = new ArrayList<>(tokens.size());
 
-        String[] wsTokens = sentence.getText().split("\\s+");
-        List<Boolean> spaces;
-        spaces = new ArrayList(tokens.size());
+        if (offsets != null) {
+            for (int i = 0; i < tokens.size(); i++)
+                spaces.add(i > 0 && hasWhitespace(text, offsets[i * 2 - 1], offsets[i * 2]));
+        } else
+            addUnalignedSpaces(text, tokens, spaces);
+
+        sentence.setAnnotations(AnnotationType.SPACE, new UnitAnnotations<>(spaces));
+    }
+
+    // A tokenizer may drop characters other than whitespace, so a gap between tokens is not necessarily a space
+    private static boolean hasWhitespace(String text, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (Character.isWhitespace(text.charAt(i)))
+                return true;
+        return false;
+    }
+
+    // When tokens do not appear verbatim in the text, we can only guess by comparing them to whitespace separated chunks
+    private void addUnalignedSpaces(String text, List<String> tokens, List<Boolean> spaces) {
+        String[] wsTokens = text.split("\\s+");
         spaces.add(Boolean.FALSE);
         if (wsTokens.length == tokens.size()) {
             for (int i = 1; i < tokens.size(); i++)
@@ -50,7 +70,6 @@ public class SpaceAnnotator implements SentenceAnnotator {
                 }
             }
         }
-        sentence.setAnnotations(AnnotationType.SPACE, new UnitAnnotations<>(spaces));
     }
 
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.misc;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.AnnotatableSentence;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.IdAnnotations;
+import org.bierner.matchbook.analyzer.SentenceAnnotator;
+import org.bierner.matchbook.analyzer.Vocabulary;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+
+/**
+ * Annotates each token with its normalized form, case folded and with its accents removed, so that tokens can be
+ * matched regardless of case and accents with the <code>`...`</code> syntax.  For example, "Caf&eacute;", "CAFE" and
+ * "cafe" are all NORM:cafe.  Normalized forms are interned in the global {@link Vocabulary}, so they are matched as
+ * ints like tokens and stems.
+ * <p/>
+ * Pure ASCII tokens, which are nearly all the tokens of most English text, are simply lowercased.  Only other tokens
+ * go through {@link Normalizer}.
+ * @author gann
+ */
+@ExtensionMethod(SentenceUtilities.class)
+public class TokenNormalizer implements SentenceAnnotator {
+    static {
+        AnnotationType.registerAnnotator(TokenNormalizer.class, AnnotationType.NORM);
+    }
+
+    @Override
+    public void annotate(AnnotatableSentence sentence) {
+        List<String> tokens = sentence.getTokens();
+        int[] norms = new int[tokens.size()];
+        for (int i = 0; i < norms.length; i++)
+            norms[i] = Vocabulary.getGlobal().intern(normalize(tokens.get(i)));
+        sentence.setAnnotations(AnnotationType.NORM, new IdAnnotations(norms, Vocabulary.getGlobal()));
+    }
+
+    /**
+     * Case folds a token and removes its accents.
+     * @param token a token
+     * @return the normalized token
+     */
+    public static String normalize(String token) {
+        boolean upper = false;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= 0x80)
+                return normalizeUnicode(token);
+            upper |= c >= 'A' && c <= 'Z';
+        }
+        if (!upper)
+            return token;
+
+        char[] chars = token.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            if (chars[i] >= 'A' && chars[i] <= 'Z')
+                chars[i] += 'a' - 'A';
+        return new String(chars);
+    }
+
+    // Compatibility decomposition splits accents from their letters (and ligatures into letters), so the accents can
+    // be dropped.  Upper then lower casing approximates Unicode case folding, eg sharp s -> SS -> ss.
+    private static String normalizeUnicode(String token) {
+        String decomposed = Normalizer.normalize(token, Normalizer.Form.NFKD);
+        StringBuilder s = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK)
+                s.append(c);
+        }
+        return s.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+}
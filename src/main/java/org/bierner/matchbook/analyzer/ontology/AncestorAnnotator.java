@@ -4,21 +4,25 @@
 
 package org.bierner.matchbook.analyzer.ontology;
 
+import gnu.trove.list.array.TIntArrayList;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import lombok.experimental.ExtensionMethod;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
 import org.bierner.matchbook.analyzer.Annotation;
 import org.bierner.matchbook.analyzer.AnnotationType;
-import org.bierner.matchbook.analyzer.RangeAnnotations;
+import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.InternedAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
+import org.bierner.matchbook.analyzer.Vocabulary;
 import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
 
 /**
+ * Annotates each concept mention with all of the concept's ancestors, looked up in the ontology's {@link Ancestors}.
+ * Annotations are stored in primitive arrays, so an annotation object is only created if one is requested.
  *
  * @author gann
  */
-@ExtensionMethod(OntologyUtilities.class)
 public class AncestorAnnotator implements SentenceAnnotator {
 
     static {
@@ -27,14 +31,68 @@ public class AncestorAnnotator implements SentenceAnnotator {
     
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        List<Annotation<Concept>> annotations = new ArrayList<>();
-        for (Annotation<Concept> a : sentence.getAnnotations(AnnotationType.CONCEPT)) {
-            for (Concept ancestor : a.getValue().isa()) {
-                annotations.add(new Annotation.SimpleAnnotation<>(ancestor.getId(), ancestor, a.getStart(), a.getEnd()));
+        Annotations<Concept> concepts = sentence.getAnnotations(AnnotationType.CONCEPT);
+        Vocabulary           vocabulary = Vocabulary.getGlobal();
+        List<Concept>        values     = new ArrayList<>();
+        TIntArrayList        ids        = new TIntArrayList();
+        TIntArrayList        starts     = new TIntArrayList();
+        TIntArrayList        ends       = new TIntArrayList();
+
+        // Mentions nearly always share an ontology, so its ancestors are fetched once rather than per mention
+        Ontology  ontology  = null;
+        Ancestors ancestors = null;
+        for (int i = 0, size = concepts.size(); i < size; i++) {
+            Concept concept = concepts.get(i).getValue();
+            if (concept.getOntology() != ontology) {
+                ontology  = concept.getOntology();
+                ancestors = ontology.getAncestors();
+            }
+            for (Concept ancestor : ancestors.getAncestors(concept)) {
+                values.add(ancestor);
+                ids.add(vocabulary.intern(ancestor.getId()));
+                starts.add(concepts.getStart(i));
+                ends.add(concepts.getEnd(i));
             }
         }
 
-        sentence.setAnnotations(AnnotationType.ANCESTOR_CONCEPT, new RangeAnnotations<>(annotations));
+        sentence.setAnnotations(AnnotationType.ANCESTOR_CONCEPT, new ConceptAnnotations(values, ids.toArray(), starts.toArray(), ends.toArray()));
     }
 
+    // Concept annotations in parallel arrays with ids in the global vocabulary
+    private static class ConceptAnnotations implements InternedAnnotations<Concept> {
+        private final List<Concept> values;
+        private final int[]         ids;
+        private final int[]         starts;
+        private final int[]         ends;
+
+        ConceptAnnotations(List<Concept> values, int[] ids, int[] starts, int[] ends) {
+            this.values = values;
+            this.ids    = ids;
+            this.starts = starts;
+            this.ends   = ends;
+        }
+
+        @Override
+        public Annotation<Concept> get(int i) {
+            Concept concept = values.get(i);
+            return new Annotation.SimpleAnnotation<>(concept.getId(), concept, starts[i], ends[i]);
+        }
+
+        @Override public int        size()                { return ids.length; }
+        @Override public int        getStart(int i)       { return starts[i]; }
+        @Override public int        getEnd(int i)         { return ends[i]; }
+        @Override public String     getId(int i)          { return values.get(i).getId(); }
+        @Override public int        getLocalIdCode(int i) { return ids[i]; }
+        @Override public Vocabulary getVocabulary()       { return Vocabulary.getGlobal(); }
+
+        @Override
+        public Iterator<Annotation<Concept>> iterator() {
+            return new Iterator<Annotation<Concept>>() {
+                private int pos = 0;
+                @Override public boolean hasNext() { return pos < ids.length; }
+                @Override public Annotation<Concept> next() { return get(pos++); }
+                @Override public void remove() { throw new UnsupportedOperationException("Annotations are immutable."); }
+            };
+        }
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+
+/**
+ * A precomputed {@link Ancestors} index of an ontology that isn't changing.  Concepts are given dense ids, and the
+ * ancestors of all the concepts are stored in one array in compressed sparse row form, so the ancestors of a concept
+ * are a slice of that array and looking them up allocates nothing but a view.  Each concept's ancestors are computed
+ * once, reusing the already computed ancestors of its parents.
+ * <p/>
+ * Concepts are also numbered in pre and post order of a depth first traversal from the roots of the hierarchy.  For a
+ * concept whose ancestors each have a single parent, as in a tree, its ancestors are exactly the concepts whose
+ * intervals contain its own, so {@link #isa(Concept, Concept)} is two comparisons.  Only for concepts below a concept
+ * with multiple parents does it search the concept's ancestors.
+ * <p/>
+ * The index reflects the ontology when it was built and is thread-safe.
+ *
+ * @author gann
+ */
+public final class AncestorIndex implements Ancestors {
+    private final Concept[]                  concepts;   // Dense id -> Concept
+    private final ToIntFunction<Concept>     ids;        // Concept -> Dense id, or -1
+    private final int[]                      offsets;    // The ancestors of concept i are ancestors[offsets[i]] up to ancestors[offsets[i+1]]
+    private final int[]                      ancestors;  // Sorted within each concept
+    private final int[]                      pre;        // Pre order number, or -1 if not reachable from a root
+    private final int[]                      post;       // Post order number
+    private final boolean[]                  tree;       // True if every ancestor has a single parent
+
+    private AncestorIndex(Concept[] concepts, ToIntFunction<Concept> ids, int[] offsets, int[] ancestors,
+                          int[] pre, int[] post, boolean[] tree) {
+        this.concepts  = concepts;
+        this.ids       = ids;
+        this.offsets   = offsets;
+        this.ancestors = ancestors;
+        this.pre       = pre;
+        this.post      = post;
+        this.tree      = tree;
+    }
+
+    /**
+     * Builds an index of all the concepts in an ontology.
+     * @param ontology the ontology
+     * @return an index
+     */
+    public static AncestorIndex build(Ontology ontology) {
+        Concept[] concepts = ontology.getEntities(Concept.class).toArray(new Concept[0]);
+        TObjectIntHashMap<Concept> ids = new TObjectIntHashMap<>(concepts.length, 0.5f, -1);
+        for (int i = 0; i < concepts.length; i++)
+            ids.put(concepts[i], i);
+
+        int[][] parents = new int[concepts.length][];
+        for (int i = 0; i < concepts.length; i++) {
+            TIntArrayList p = new TIntArrayList();
+            for (Concept parent : ontology.getRelation(concepts[i], Relation.HYPE))
+                if (ids.containsKey(parent))
+                    p.add(ids.get(parent));
+            parents[i] = p.toArray();
+        }
+        return build(concepts, ids::get, parents);
+    }
+
+    /**
+     * Builds an index of concepts that already have dense ids, such as those of a {@link CompactOntology}.
+     * @param concepts the concepts by dense id
+     * @param ids the dense id of a concept, or -1 if it isn't one of the concepts
+     * @param parents the dense ids of the parents of each concept
+     * @return an index
+     */
+    static AncestorIndex build(Concept[] concepts, ToIntFunction<Concept> ids, int[][] parents) {
+        // Depth first over the parents, stopping at concepts whose ancestors are already known and copying them
+        int[][] closures = new int[concepts.length][];
+        int[] mark = new int[concepts.length];
+        TIntArrayList stack = new TIntArrayList(), closure = new TIntArrayList();
+        for (int c = 0; c < concepts.length; c++) {
+            int stamp = c + 1;
+            closure.resetQuick();
+            stack.resetQuick();
+            stack.add(parents[c]);
+            while (!stack.isEmpty()) {
+                int p = stack.removeAt(stack.size() - 1);
+                if (mark[p] == stamp)
+                    continue;
+                mark[p] = stamp;
+                closure.add(p);
+                if (closures[p] != null) {
+                    for (int a : closures[p])
+                        if (mark[a] != stamp) {
+                            mark[a] = stamp;
+                            closure.add(a);
+                        }
+                } else
+                    stack.add(parents[p]);
+            }
+            closure.sort();
+            closures[c] = closure.toArray();
+        }
+
+        int[] offsets = new int[concepts.length + 1];
+        for (int c = 0; c < concepts.length; c++)
+            offsets[c + 1] = offsets[c] + closures[c].length;
+        int[] ancestors = new int[offsets[concepts.length]];
+        for (int c = 0; c < concepts.length; c++)
+            System.arraycopy(closures[c], 0, ancestors, offsets[c], closures[c].length);
+
+        // Interval labels from a depth first traversal from the roots.  A concept with one parent is in a tree if its
+        // parent is.  Concepts in cycles aren't reachable from a root, so they aren't in a tree.
+        int[][] children = children(parents);
+        int[] pre = new int[concepts.length], post = new int[concepts.length];
+        boolean[] tree = new boolean[concepts.length];
+        Arrays.fill(pre, -1);
+        int preCount = 0, postCount = 0;
+        TIntArrayList path = new TIntArrayList(), next = new TIntArrayList();
+        for (int root = 0; root < concepts.length; root++) {
+            if (parents[root].length != 0)
+                continue;
+            tree[root] = true;
+            pre[root] = preCount++;
+            path.add(root);
+            next.add(0);
+            while (!path.isEmpty()) {
+                int top = path.size() - 1, c = path.get(top), i = next.get(top);
+                if (i == children[c].length) {
+                    post[c] = postCount++;
+                    path.removeAt(top);
+                    next.removeAt(top);
+                    continue;
+                }
+                next.set(top, i + 1);
+                int child = children[c][i];
+                if (pre[child] >= 0)
+                    continue;
+                tree[child] = tree[c] && parents[child].length == 1;
+                pre[child] = preCount++;
+                path.add(child);
+                next.add(0);
+            }
+        }
+
+        return new AncestorIndex(concepts, ids, offsets, ancestors, pre, post, tree);
+    }
+
+    /**
+     * Restores an index from the arrays of {@link #arrays()}, as saved in a snapshot.
+     */
+    static AncestorIndex of(Concept[] concepts, ToIntFunction<Concept> ids, int[][] arrays) {
+        boolean[] tree = new boolean[concepts.length];
+        for (int i = 0; i < tree.length; i++)
+            tree[i] = arrays[4][i] != 0;
+        return new AncestorIndex(concepts, ids, arrays[0], arrays[1], arrays[2], arrays[3], tree);
+    }
+
+    /**
+     * Returns the offsets, ancestors, pre order, post order and tree flag arrays of the index.
+     */
+    int[][] arrays() {
+        int[] t = new int[tree.length];
+        for (int i = 0; i < t.length; i++)
+            t[i] = tree[i]? 1 : 0;
+        return new int[][] {offsets, ancestors, pre, post, t};
+    }
+
+    private static int[][] children(int[][] parents) {
+        TIntArrayList[] lists = new TIntArrayList[parents.length];
+        for (int c = 0; c < parents.length; c++)
+            for (int p : parents[c]) {
+                if (lists[p] == null)
+                    lists[p] = new TIntArrayList();
+                lists[p].add(c);
+            }
+        int[][] children = new int[parents.length][];
+        for (int c = 0; c < parents.length; c++)
+            children[c] = lists[c] == null? new int[0] : lists[c].toArray();
+        return children;
+    }
+
+    /**
+     * Returns the number of concepts in the index.
+     * @return the number of concepts
+     */
+    public int size() {
+        return concepts.length;
+    }
+
+    /**
+     * Returns the dense id of a concept.
+     * @param concept a concept
+     * @return the id or -1 if the concept isn't in the index
+     */
+    public int getId(Concept concept) {
+        return ids.applyAsInt(concept);
+    }
+
+    /**
+     * Returns the concept with a dense id.
+     * @param id a dense id
+     * @return the concept
+     */
+    public Concept getConcept(int id) {
+        return concepts[id];
+    }
+
+    @Override
+    public List<Concept> getAncestors(Concept concept) {
+        int id = ids.applyAsInt(concept);
+        if (id < 0)
+            return Collections.emptyList();
+        return new Slice(offsets[id], offsets[id + 1]);
+    }
+
+    @Override
+    public boolean isa(Concept concept, Concept ancestor) {
+        int id = ids.applyAsInt(concept), a = ids.applyAsInt(ancestor);
+        return id >= 0 && a >= 0 && isa(id, a);
+    }
+
+    /**
+     * Returns true if a concept is a kind of another.
+     * @param id the dense id of a concept
+     * @param ancestor the dense id of a possible ancestor
+     * @return true if ancestor is an ancestor of the concept
+     */
+    public boolean isa(int id, int ancestor) {
+        if (tree[id])
+            return pre[ancestor] >= 0 && pre[ancestor] < pre[id] && post[id] < post[ancestor];
+        return Arrays.binarySearch(ancestors, offsets[id], offsets[id + 1], ancestor) >= 0;
+    }
+
+    // A view of a concept's ancestors
+    private class Slice extends AbstractList<Concept> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        Slice(int from, int to) {
+            this.from = from;
+            this.to   = to;
+        }
+
+        @Override public Concept get(int i) { return concepts[ancestors[from + i]]; }
+        @Override public int     size()     { return to - from; }
+    }
+}
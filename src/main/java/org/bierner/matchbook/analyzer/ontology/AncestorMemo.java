@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+
+/**
+ * An {@link Ancestors} implementation that computes the ancestors of each concept the first time they're requested
+ * and remembers them, for ontologies that may still be changing.  Any number of threads may share a memo.  When the
+ * ontology changes, the memo must be {@link #clear() cleared}.  A memo refers to its ontology, so the ontology should
+ * own it, as {@link SimpleOntology} does, rather than a longer lived cache.
+ *
+ * @author gann
+ */
+public class AncestorMemo implements Ancestors {
+    private final Ontology                              ontology;
+    private final ConcurrentMap<Concept, List<Concept>> memo = new ConcurrentHashMap<>();
+
+    public AncestorMemo(Ontology ontology) {
+        this.ontology = ontology;
+    }
+
+    /**
+     * Forgets all the ancestors computed so far.
+     */
+    public void clear() {
+        memo.clear();
+    }
+
+    @Override
+    public List<Concept> getAncestors(Concept concept) {
+        List<Concept> ancestors = memo.get(concept);
+        if (ancestors == null) {
+            ancestors = compute(concept);
+            List<Concept> existing = memo.putIfAbsent(concept, ancestors);
+            if (existing != null)
+                ancestors = existing;
+        }
+        return ancestors;
+    }
+
+    // Depth first over the parents, stopping at concepts whose ancestors are already remembered
+    private List<Concept> compute(Concept concept) {
+        Set<Concept> seen = new HashSet<>();
+        List<Concept> ancestors = new ArrayList<>();
+        Deque<Concept> stack = new ArrayDeque<>(ontology.getRelation(concept, Relation.HYPE));
+        while (!stack.isEmpty()) {
+            Concept parent = stack.pop();
+            if (!seen.add(parent))
+                continue;
+            ancestors.add(parent);
+            List<Concept> known = memo.get(parent);
+            if (known != null) {
+                for (Concept a : known)
+                    if (seen.add(a))
+                        ancestors.add(a);
+            } else
+                stack.addAll(ontology.getRelation(parent, Relation.HYPE));
+        }
+        return Collections.unmodifiableList(ancestors);
+    }
+}
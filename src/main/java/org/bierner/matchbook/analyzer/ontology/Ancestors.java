@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.List;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+
+/**
+ * The transitive closure of the {@link Ontology.Relation#HYPE HYPE} relation of an ontology, that is, every concept
+ * that a concept is a kind of.
+ *
+ * @author gann
+ */
+public interface Ancestors {
+    /**
+     * Returns the ancestors of a concept, not including the concept itself unless the hierarchy has a cycle.
+     * @param concept a concept
+     * @return an unmodifiable list of distinct ancestors
+     */
+    List<Concept> getAncestors(Concept concept);
+
+    /**
+     * Returns true if a concept is a kind of another.
+     * @param concept a concept
+     * @param ancestor a possible ancestor
+     * @return true if ancestor is an ancestor of concept
+     */
+    public default boolean isa(Concept concept, Concept ancestor) {
+        return getAncestors(concept).contains(ancestor);
+    }
+}
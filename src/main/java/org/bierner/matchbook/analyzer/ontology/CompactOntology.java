@@ -0,0 +1,727 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import lombok.NonNull;
+
+/**
+ * An immutable ontology stored in primitive arrays, for ontologies too large to hold as maps of objects.  The entities
+ * of each class are given dense int ids, and their string ids are interned so an id shared by, say, a concept and a
+ * lemma is stored once.  Each relation is stored in compressed sparse row form, with an array of offsets indexed by
+ * source entity into a sorted array of target entities, together with the same arrays for its reverse edges.  A
+ * relation and its registered reverse share one pair of arrays, and the reverse edges of other relations are available
+ * from {@link #getSources(Entity, Relation)}.
+ * <p/>
+ * Relations and entity sets are returned as views that allocate nothing else, and an {@link AncestorIndex} is
+ * computed when the ontology is built.  An ontology is thread-safe.
+ * <p/>
+ * A built ontology can be saved as a versioned binary {@link #writeSnapshot(OutputStream) snapshot}, which is much
+ * faster to {@link #readSnapshot(Path) read} than the text it was built from.
+ *
+ * @author gann
+ */
+public final class CompactOntology implements Ontology {
+    private final Map<Class<? extends Entity>, EntityTable> tables;
+    private final Map<Relation<?,?>, Adjacency>             relations;
+    private final List<Relation<?,?>>                       stored;      // The relations with their own arrays
+    private final AncestorIndex                             ancestors;
+
+    private CompactOntology(Contents contents) {
+        Map<Class<? extends Entity>, EntityTable> t = new LinkedHashMap<>();
+        for (Map.Entry<Class<? extends Entity>, String[]> e : contents.ids.entrySet())
+            t.put(e.getKey(), new EntityTable(this, e.getKey(), e.getValue(), contents.given.get(e.getKey())));
+        this.tables = t;
+
+        Map<Relation<?,?>, Adjacency> r = new HashMap<>();
+        List<Relation<?,?>> s = new ArrayList<>();
+        for (Map.Entry<Relation<?,?>, int[][]> e : contents.relations.entrySet()) {
+            Relation<?,?> relation = e.getKey();
+            int[][] a = e.getValue();
+            Adjacency adjacency = new Adjacency(t.get(relation.getFrom()), t.get(relation.getTo()), a[0], a[1], a[2], a[3]);
+            r.put(relation, adjacency);
+            if (relation.getReverse() != null)
+                r.put(relation.getReverse(), adjacency.reverse());
+            s.add(relation);
+        }
+        this.relations = r;
+        this.stored    = s;
+
+        EntityTable concepts = t.get(Concept.class);
+        Concept[] c = concepts == null? new Concept[0] : (Concept[]) concepts.entities;
+        ToIntFunction<Concept> ids = concept -> concepts == null? -1 : concepts.indexOf(concept);
+        this.ancestors = contents.ancestors != null? AncestorIndex.of(c, ids, contents.ancestors) : AncestorIndex.build(c, ids, parents(c.length));
+    }
+
+    // The parents of each concept, read straight from the arrays of the hypernym relation
+    private int[][] parents(int count) {
+        int[][] parents = new int[count][];
+        Adjacency hype = relations.get(Relation.HYPE);
+        for (int i = 0; i < count; i++)
+            parents[i] = hype == null? new int[0] : Arrays.copyOfRange(hype.targets, hype.offsets[i], hype.offsets[i + 1]);
+        return parents;
+    }
+
+    public static CompactOntologyBuilder builder() {
+        return new CompactOntologyBuilder();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading
+    ///////////////////////////////////////////////////////////////////////////
+    @Override
+    public <From extends Entity, To extends Entity> Set<To> getRelation(From from, Relation<From, To> relation) {
+        Adjacency adjacency = relations.get(relation);
+        if (adjacency == null)
+            return Collections.emptySet();
+        int i = adjacency.from.indexOf(from);
+        if (i < 0)
+            return Collections.emptySet();
+        return new EntitySet<>(adjacency.to, adjacency.targets, adjacency.offsets[i], adjacency.offsets[i + 1]);
+    }
+
+    /**
+     * Returns the entities related to an entity by the reverse edges of a relation, whether or not the relation has a
+     * registered reverse.  For example, the sources of a lemma by {@link Relation#SYNS} are the concepts it names.
+     * @param to the target of the relation
+     * @param relation the relation
+     * @return the entities related to the target
+     */
+    public <From extends Entity, To extends Entity> Set<From> getSources(To to, Relation<From, To> relation) {
+        Adjacency adjacency = relations.get(relation);
+        if (adjacency == null)
+            return Collections.emptySet();
+        int i = adjacency.to.indexOf(to);
+        if (i < 0)
+            return Collections.emptySet();
+        return new EntitySet<>(adjacency.from, adjacency.sources, adjacency.reverseOffsets[i], adjacency.reverseOffsets[i + 1]);
+    }
+
+    @Override
+    public <E extends Entity> Set<E> getEntities(Class<E> clazz) {
+        EntityTable table = tables.get(clazz);
+        return table == null? Collections.<E>emptySet() : new EntitySet<E>(table, null, 0, table.size());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> E getEntity(Class<E> clazz, String id) {
+        EntityTable table = tables.get(clazz);
+        if (table != null) {
+            int i = table.find(id);
+            if (i >= 0)
+                return (E) table.entities[i];
+        }
+        return newEntity(clazz, id, -1, this);
+    }
+
+    @Override
+    public Ancestors getAncestors() {
+        return ancestors;
+    }
+
+    /**
+     * Returns the number of entities of a class.
+     * @param clazz the entity class
+     * @return the number of entities
+     */
+    public int size(Class<? extends Entity> clazz) {
+        EntityTable table = tables.get(clazz);
+        return table == null? 0 : table.size();
+    }
+
+    // The dense id of an entity of a class, or -1 if it isn't in the ontology
+    int indexOf(Class<? extends Entity> clazz, Object entity) {
+        EntityTable table = tables.get(clazz);
+        return table == null? -1 : table.indexOf(entity);
+    }
+
+    @SuppressWarnings("unchecked")
+    <E extends Entity> E entity(Class<E> clazz, int index) {
+        return (E) tables.get(clazz).entities[index];
+    }
+
+    // The offsets and targets arrays of a relation, or null if it has no edges
+    int[][] arrays(Relation<?,?> relation) {
+        Adjacency adjacency = relations.get(relation);
+        return adjacency == null? null : new int[][] {adjacency.offsets, adjacency.targets};
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Storage
+    ///////////////////////////////////////////////////////////////////////////
+    // The entities of one class by dense id
+    private static final class EntityTable {
+        private final CompactOntology           ontology;
+        private final Entity[]                  entities;
+        private final String[]                  ids;
+        private final int[]                     slots;        // Open addressed hash of string ids to dense id + 1
+
+        EntityTable(CompactOntology ontology, Class<? extends Entity> clazz, String[] ids, List<Entity> given) {
+            this.ontology = ontology;
+            this.entities = (Entity[]) Array.newInstance(clazz, ids.length);
+            this.ids      = ids;
+            this.slots    = new int[Integer.highestOneBit(Math.max(1, ids.length) * 2) * 2];
+            for (int i = 0; i < ids.length; i++) {
+                int slot = slot(ids[i]);
+                while (slots[slot] != 0)
+                    slot = (slot + 1) & (slots.length - 1);
+                slots[slot] = i + 1;
+                Entity e = given == null? null : given.get(i);
+                entities[i] = e != null? e : newEntity(clazz, ids[i], i, ontology);
+            }
+        }
+
+        int size() {
+            return entities.length;
+        }
+
+        private int slot(String id) {
+            return (id.hashCode() * 0x9e3779b9) >>> 1 & (slots.length - 1);
+        }
+
+        // The dense id of a string id, or -1
+        int find(String id) {
+            for (int slot = slot(id); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1))
+                if (ids[slots[slot] - 1].equals(id))
+                    return slots[slot] - 1;
+            return -1;
+        }
+
+        // The dense id of an entity, or -1 if it isn't one of this table's
+        int indexOf(Object o) {
+            if (o instanceof CompactEntity) {
+                CompactEntity e = (CompactEntity) o;
+                if (e.ontology == ontology)
+                    return e.index >= 0 && e.index < entities.length && entities[e.index] == e? e.index : -1;
+            }
+            if (!(o instanceof Entity))
+                return -1;
+            int i = find(((Entity) o).getId());
+            return i >= 0 && entities[i].equals(o)? i : -1;
+        }
+    }
+
+    // A relation and its reverse edges in compressed sparse row form
+    private static final class Adjacency {
+        private final EntityTable from;
+        private final EntityTable to;
+        private final int[]       offsets;          // The targets of source i are targets[offsets[i]] up to targets[offsets[i+1]]
+        private final int[]       targets;          // Sorted within each source
+        private final int[]       reverseOffsets;
+        private final int[]       sources;
+
+        Adjacency(EntityTable from, EntityTable to, int[] offsets, int[] targets, int[] reverseOffsets, int[] sources) {
+            this.from           = from;
+            this.to             = to;
+            this.offsets        = offsets;
+            this.targets        = targets;
+            this.reverseOffsets = reverseOffsets;
+            this.sources        = sources;
+        }
+
+        Adjacency reverse() {
+            return new Adjacency(to, from, reverseOffsets, sources, offsets, targets);
+        }
+
+        /**
+         * Arranges edges into the offsets, targets, reverse offsets and sources arrays of an adjacency.  Each edge is
+         * packed as source << 32 | target, so sorting groups them by source in target order.
+         */
+        static int[][] arrays(TLongArrayList edges, int fromSize, int toSize) {
+            edges.sort();
+            long[] forward = dedupe(edges.toArray());
+            long[] backward = new long[forward.length];
+            for (int i = 0; i < forward.length; i++)
+                backward[i] = forward[i] << 32 | forward[i] >>> 32;
+            Arrays.sort(backward);
+
+            int[][] a = {new int[fromSize + 1], new int[forward.length], new int[toSize + 1], new int[backward.length]};
+            fill(forward, a[0], a[1]);
+            fill(backward, a[2], a[3]);
+            return a;
+        }
+
+        private static long[] dedupe(long[] sorted) {
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++)
+                if (n == 0 || sorted[i] != sorted[n - 1])
+                    sorted[n++] = sorted[i];
+            return Arrays.copyOf(sorted, n);
+        }
+
+        private static void fill(long[] sorted, int[] offsets, int[] values) {
+            for (int i = 0; i < sorted.length; i++) {
+                offsets[(int) (sorted[i] >>> 32) + 1]++;
+                values[i] = (int) sorted[i];
+            }
+            for (int i = 1; i < offsets.length; i++)
+                offsets[i] += offsets[i - 1];
+        }
+    }
+
+    // A view of some or all of the entities of a table
+    private static final class EntitySet<E extends Entity> extends AbstractSet<E> {
+        private final EntityTable table;
+        private final int[]       members;       // Sorted dense ids, or null for the whole table
+        private final int         from;
+        private final int         to;
+
+        EntitySet(EntityTable table, int[] members, int from, int to) {
+            this.table   = table;
+            this.members = members;
+            this.from    = from;
+            this.to      = to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int i = table.indexOf(o);
+            if (i < 0)
+                return false;
+            return members == null? true : Arrays.binarySearch(members, from, to, i) >= 0;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int pos = from;
+
+                @Override
+                public boolean hasNext() {
+                    return pos < to;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public E next() {
+                    if (pos >= to)
+                        throw new NoSuchElementException();
+                    int i = pos++;
+                    return (E) table.entities[members == null? i : members[i]];
+                }
+            };
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Entities
+    ///////////////////////////////////////////////////////////////////////////
+    // Entities are equal if they have the same class, ontology and id.  The dense id is only a shortcut for lookups.
+    private static abstract class CompactEntity implements Entity {
+        private final String          id;
+        private final CompactOntology ontology;
+        private final int             index;         // -1 if not in the ontology
+
+        CompactEntity(String id, CompactOntology ontology, int index) {
+            this.id       = id;
+            this.ontology = ontology;
+            this.index    = index;
+        }
+
+        @Override public String   getId()       { return id; }
+        @Override public Ontology getOntology() { return ontology; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            CompactEntity e = (CompactEntity) o;
+            return e.ontology == ontology && e.id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(id=" + id + ")";
+        }
+    }
+
+    private static final class CompactConcept extends CompactEntity implements Concept {
+        CompactConcept(String id, CompactOntology ontology, int index) {
+            super(id, ontology, index);
+        }
+    }
+
+    private static final class CompactLemma extends CompactEntity implements Lemma {
+        CompactLemma(String id, CompactOntology ontology, int index) {
+            super(id, ontology, index);
+        }
+
+        @Override public String getLemma() { return getId(); }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Entity> E newEntity(Class<E> clazz, String id, int index, CompactOntology ontology) {
+        if (clazz == Concept.class)
+            return (E) new CompactConcept(id, ontology, index);
+        else if (clazz == Lemma.class)
+            return (E) new CompactLemma(id, ontology, index);
+        else {
+            try {
+                return clazz.getConstructor(String.class).newInstance(id);
+            } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+                throw new IllegalArgumentException("Unable to instantiate " + clazz.getCanonicalName() + " with a string argument");
+            }
+        }
+    }
+
+    // The arrays an ontology is made of, whether from a builder or a snapshot
+    private static final class Contents {
+        private final Map<Class<? extends Entity>, String[]>     ids       = new LinkedHashMap<>();
+        private final Map<Class<? extends Entity>, List<Entity>> given     = new HashMap<>();
+        private final Map<Relation<?,?>, int[][]>                relations = new LinkedHashMap<>();  // Offsets, targets, reverse offsets, sources
+        private int[][]                                          ancestors;                         // Null to compute them
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Snapshots
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * The file extension of ontology snapshots.
+     */
+    public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    private static final int SNAPSHOT_MAGIC   = 0x4d424f4e;      // MBON
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Writes a binary snapshot of this ontology.  The snapshot holds the interned ids once each, followed by the
+     * entities of each class as indexes of their ids, the arrays of each relation and the arrays of the ancestor
+     * index, so reading it back is little more than copying arrays.  Entities of classes other than concepts and
+     * lemmas are recreated from their ids when the snapshot is read.
+     * @param out the stream to write to
+     * @throws IOException if the snapshot can't be written
+     */
+    public void writeSnapshot(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(SNAPSHOT_MAGIC);
+        data.writeInt(SNAPSHOT_VERSION);
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (EntityTable table : tables.values())
+            for (Entity e : table.entities)
+                if (!strings.containsKey(e.getId()))
+                    strings.put(e.getId(), strings.size());
+        data.writeInt(strings.size());
+        for (String s : strings.keySet())
+            writeString(data, s);
+
+        data.writeInt(tables.size());
+        for (Map.Entry<Class<? extends Entity>, EntityTable> e : tables.entrySet()) {
+            writeString(data, e.getKey().getName());
+            data.writeInt(e.getValue().size());
+            for (Entity entity : e.getValue().entities)
+                data.writeInt(strings.get(entity.getId()));
+        }
+
+        data.writeInt(stored.size());
+        for (Relation<?,?> relation : stored) {
+            Adjacency adjacency = relations.get(relation);
+            writeString(data, relation.getId());
+            writeString(data, relation.getFrom().getName());
+            writeString(data, relation.getTo().getName());
+            writeString(data, relation.getReverse() == null? "" : relation.getReverse().getId());
+            data.writeInt(adjacency.targets.length);
+            writeInts(data, adjacency.offsets, adjacency.targets, adjacency.reverseOffsets, adjacency.sources);
+        }
+
+        int[][] a = ancestors.arrays();
+        data.writeInt(a[1].length);
+        writeInts(data, a);
+        data.flush();
+    }
+
+    /**
+     * Writes a binary snapshot of this ontology to a file.
+     * @param path the file to write
+     * @throws IOException if the snapshot can't be written
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads a snapshot file by memory mapping it.
+     * @param path the snapshot file
+     * @return the ontology
+     * @throws IOException if the file can't be read or isn't a snapshot of a supported version
+     */
+    public static CompactOntology readSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a snapshot from a buffer, starting at its position.
+     * @param buffer the buffer holding the snapshot
+     * @return the ontology
+     * @throws IOException if the buffer doesn't hold a snapshot of a supported version
+     */
+    public static CompactOntology readSnapshot(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC)
+                throw new IOException("Not an ontology snapshot");
+            int version = buffer.getInt();
+            if (version != SNAPSHOT_VERSION)
+                throw new IOException("Unsupported ontology snapshot version " + version);
+
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++)
+                strings[i] = readString(buffer);
+
+            Contents contents = new Contents();
+            for (int t = buffer.getInt(); t > 0; t--) {
+                Class<? extends Entity> clazz = Class.forName(readString(buffer)).asSubclass(Entity.class);
+                String[] ids = new String[buffer.getInt()];
+                for (int i = 0; i < ids.length; i++)
+                    ids[i] = strings[buffer.getInt()];
+                contents.ids.put(clazz, ids);
+            }
+
+            for (int r = buffer.getInt(); r > 0; r--) {
+                String id = readString(buffer), from = readString(buffer), to = readString(buffer), reverse = readString(buffer);
+                Relation<?,?> relation = Relation.getRelation(id);
+                if (relation == null) {
+                    Class<? extends Entity> fromClass = Class.forName(from).asSubclass(Entity.class);
+                    Class<? extends Entity> toClass   = Class.forName(to).asSubclass(Entity.class);
+                    relation = reverse.isEmpty()? Relation.register(id, fromClass, toClass) : Relation.register(id, reverse, fromClass, toClass);
+                }
+                String[] fromIds = contents.ids.get(relation.getFrom()), toIds = contents.ids.get(relation.getTo());
+                if (fromIds == null || toIds == null)
+                    throw new IOException("The entities of relation " + id + " are missing");
+                int edges = buffer.getInt();
+                contents.relations.put(relation, new int[][] {readInts(buffer, fromIds.length + 1), readInts(buffer, edges),
+                                                              readInts(buffer, toIds.length + 1), readInts(buffer, edges)});
+            }
+
+            String[] concepts = contents.ids.get(Concept.class);
+            int count = concepts == null? 0 : concepts.length, length = buffer.getInt();
+            contents.ancestors = new int[][] {readInts(buffer, count + 1), readInts(buffer, length), readInts(buffer, count),
+                                              readInts(buffer, count), readInts(buffer, count)};
+            return new CompactOntology(contents);
+        } catch (BufferUnderflowException | ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid ontology snapshot", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static void writeInts(DataOutputStream data, int[]... arrays) throws IOException {
+        for (int[] a : arrays)
+            for (int i : a)
+                data.writeInt(i);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String s;
+        if (buffer.hasArray())
+            s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        else {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+
+    // Copies ints in bulk, which for a mapped buffer reads straight from the page cache
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] a = new int[length];
+        buffer.asIntBuffer().get(a);
+        buffer.position(buffer.position() + length * 4);
+        return a;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Builder
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * A builder for compact ontologies, accepting the same relations and text format as a
+     * {@link SimpleOntology.SimpleOntologyBuilder}.  Relations are collected as packed edges, and arranged into arrays
+     * when the ontology is built.
+     */
+    public static class CompactOntologyBuilder {
+        private final Map<String, String>                                strings = new HashMap<>();
+        private final Map<Class<? extends Entity>, EntityTableBuilder>   tables  = new LinkedHashMap<>();
+        private final Map<Relation<?,?>, TLongArrayList>                 edges   = new LinkedHashMap<>();
+
+        private CompactOntologyBuilder() { }
+
+        public <From extends Entity, To extends Entity> CompactOntologyBuilder add(@NonNull From from, @NonNull To to, Relation<From, To> relation) {
+            return add(table(relation.getFrom()).add(intern(from.getId()), from),
+                       table(relation.getTo()).add(intern(to.getId()), to), relation);
+        }
+
+        public CompactOntologyBuilder add(@NonNull String from, @NonNull String to, Relation<? extends Entity, ? extends Entity> relation) {
+            return add(table(relation.getFrom()).add(intern(from), null),
+                       table(relation.getTo()).add(intern(to), null), relation);
+        }
+
+        public CompactOntologyBuilder add(Reader reader) throws IOException, ClassNotFoundException {
+            OntologyReader.read(reader, this::add);
+            return this;
+        }
+
+        /**
+         * Adds all the relations of another compact ontology, such as one read from a snapshot.
+         * @param ontology the ontology to add
+         * @return this builder
+         */
+        public CompactOntologyBuilder add(@NonNull CompactOntology ontology) {
+            Map<EntityTable, int[]> mapped = new HashMap<>();
+            for (Relation<?,?> relation : ontology.stored) {
+                Adjacency adjacency = ontology.relations.get(relation);
+                int[] from = map(adjacency.from, relation.getFrom(), mapped), to = map(adjacency.to, relation.getTo(), mapped);
+                for (int i = 0; i < adjacency.from.size(); i++)
+                    for (int j = adjacency.offsets[i]; j < adjacency.offsets[i + 1]; j++)
+                        add(from[i], to[adjacency.targets[j]], relation);
+            }
+            return this;
+        }
+
+        // The ids in this builder of the entities of a table
+        private int[] map(EntityTable table, Class<? extends Entity> clazz, Map<EntityTable, int[]> mapped) {
+            int[] ids = mapped.get(table);
+            if (ids == null) {
+                ids = new int[table.size()];
+                for (int i = 0; i < ids.length; i++)
+                    ids[i] = entity(clazz, table.entities[i].getId());
+                mapped.put(table, ids);
+            }
+            return ids;
+        }
+
+        /**
+         * Adds an entity if it isn't already present.
+         * @return the dense id of the entity
+         */
+        int entity(Class<? extends Entity> clazz, String id) {
+            return table(clazz).add(intern(id), null);
+        }
+
+        /**
+         * Records an edge under the relation, or reversed under its reverse if that was seen first.
+         * @param from the dense id of the source entity
+         * @param to the dense id of the target entity
+         */
+        CompactOntologyBuilder add(int from, int to, Relation<?,?> relation) {
+            TLongArrayList list = edges.get(relation);
+            if (list == null && relation.getReverse() != null && edges.containsKey(relation.getReverse()))
+                edges.get(relation.getReverse()).add((long) to << 32 | from);
+            else {
+                if (list == null)
+                    edges.put(relation, list = new TLongArrayList());
+                list.add((long) from << 32 | to);
+            }
+            return this;
+        }
+
+        private String intern(String id) {
+            String s = strings.get(id);
+            if (s == null)
+                strings.put(id, s = id);
+            return s;
+        }
+
+        private EntityTableBuilder table(Class<? extends Entity> clazz) {
+            EntityTableBuilder table = tables.get(clazz);
+            if (table == null)
+                tables.put(clazz, table = new EntityTableBuilder(clazz));
+            return table;
+        }
+
+        public CompactOntology build() {
+            Contents contents = new Contents();
+            for (EntityTableBuilder table : tables.values()) {
+                contents.ids.put(table.clazz, table.ids.toArray(new String[table.ids.size()]));
+                if (table.given != null)
+                    contents.given.put(table.clazz, new ArrayList<>(table.given));
+            }
+            for (Map.Entry<Relation<?,?>, TLongArrayList> e : edges.entrySet()) {
+                Relation<?,?> relation = e.getKey();
+                contents.relations.put(relation, Adjacency.arrays(e.getValue(), tables.get(relation.getFrom()).ids.size(),
+                                                                  tables.get(relation.getTo()).ids.size()));
+            }
+            return new CompactOntology(contents);
+        }
+    }
+
+    private static class EntityTableBuilder {
+        private final Class<? extends Entity>   clazz;
+        private final List<String>              ids   = new ArrayList<>();
+        private final TObjectIntHashMap<String> index = new TObjectIntHashMap<>(16, 0.5f, -1);
+        private List<Entity>                    given;       // Entities of other classes than concepts and lemmas
+
+        EntityTableBuilder(Class<? extends Entity> clazz) {
+            this.clazz = clazz;
+        }
+
+        int add(String id, Entity entity) {
+            int i = index.get(id);
+            if (i < 0) {
+                i = ids.size();
+                ids.add(id);
+                index.put(id, i);
+                if (given != null)
+                    given.add(null);
+            }
+            if (entity != null && !(entity instanceof Concept) && !(entity instanceof Lemma)) {
+                if (given == null)
+                    given = new ArrayList<>(Collections.<Entity>nCopies(ids.size(), null));
+                if (given.get(i) == null)
+                    given.set(i, entity);
+            }
+            return i;
+        }
+    }
+}
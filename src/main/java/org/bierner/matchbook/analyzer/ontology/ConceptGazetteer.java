@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.bierner.matchbook.analyzer.Annotation;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.Vocabulary;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.bierner.matchbook.matcher.realtime.expr.AnnotationExpression;
+import org.bierner.matchbook.matcher.realtime.expr.CompoundExpression;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+
+/**
+ * Finds mentions of many concepts at once using a trie over the token and stem sequences of their lemmas.  Each edge
+ * of the trie is labeled with an annotation type (token or stem) and a global {@link Vocabulary} id, and each node
+ * where a lemma ends holds the concepts it names.  Walking the trie from every position of a sentence finds all the
+ * mentions in a single pass, whatever the number of concepts, and produces them already in order.
+ * <p/>
+ * Only lemmas that are sequences of tokens and stems can be added to the trie.  Others, such as regular expressions,
+ * must be matched some other way.
+ *
+ * @author gann
+ */
+final class ConceptGazetteer {
+    private static final int TOKEN = 0;
+    private static final int STEM  = 1;
+
+    private final List<Concept>            concepts;
+    private final TLongIntHashMap          edges;      // Node x Type x Vocabulary Id -> Node
+    private final TIntObjectHashMap<int[]> outputs;    // Node -> Concept indexes
+    private final boolean[]                usesType;
+
+    private ConceptGazetteer(Builder builder) {
+        this.concepts = builder.concepts;
+        this.edges    = builder.edges;
+        this.outputs  = builder.outputs;
+        this.usesType = builder.usesType;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns true if no lemmas were added.
+     */
+    boolean isEmpty() {
+        return outputs.isEmpty();
+    }
+
+    /**
+     * Returns the concepts by index.
+     */
+    List<Concept> getConcepts() {
+        return concepts;
+    }
+
+    // The root is node 0, so 0 also means there is no edge
+    private static long edge(int node, int type, int code) {
+        return (long) node << 33 | (long) type << 32 | code;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Matching
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Finds all the concept mentions in a sentence.
+     * @param sentence the sentence to search
+     * @return the mentions ordered by start, then end, then the order in which their concepts were added
+     */
+    List<Annotation<Concept>> find(Sentence sentence) {
+        return find(sentence, ConceptSelection.ALL, null, null);
+    }
+
+    /**
+     * Finds the concept mentions in a sentence that a selection policy keeps.  The policy is applied to the mentions
+     * at each start position as they are found, so only the kept mentions become annotations.
+     * @param sentence the sentence to search
+     * @param selection the selection policy
+     * @param ranks the policy's data for this gazetteer's concepts
+     * @param extra mentions found some other way, by start position, each packed as end << 32 | concept index, or null
+     * @return the mentions ordered by start, then end, then the order in which their concepts were added, or their
+     *         priority for policies that rank concepts
+     */
+    List<Annotation<Concept>> find(Sentence sentence, ConceptSelection selection, int[] ranks, TLongArrayList[] extra) {
+        List<Annotation<Concept>> found = new ArrayList<>();
+        int length = SentenceUtilities.tokenCount(sentence);
+        if (length == 0 || (isEmpty() && extra == null))
+            return found;
+
+        int[][] codes = new int[2][];
+        if (usesType[TOKEN])
+            codes[TOKEN] = codes(sentence.getAnnotations(AnnotationType.TOKEN), length);
+        if (usesType[STEM])
+            codes[STEM] = codes(sentence.getAnnotations(AnnotationType.STEM), length);
+
+        // Depth first from each start, collecting end x concept pairs so they can be sorted and deduplicated
+        int[] nodes = new int[16], ends = new int[16];
+        TLongArrayList hits = new TLongArrayList();
+        long[] h = new long[16];
+        boolean exclusive = selection.isExclusive();
+        for (int start = 0, covered = 0; start < length; start++) {
+            if (exclusive && start < covered)
+                continue;
+            if (extra != null && extra[start] != null)
+                hits.addAll(extra[start]);
+
+            int top = 0;
+            nodes[top] = 0;
+            ends[top++] = start;
+            while (top > 0) {
+                int node = nodes[--top], end = ends[top];
+                int[] named = outputs.get(node);
+                if (named != null)
+                    for (int c : named)
+                        hits.add((long) end << 32 | c);
+                if (end == length)
+                    continue;
+                for (int type = TOKEN; type <= STEM; type++) {
+                    if (codes[type] == null || codes[type][end] == Vocabulary.UNKNOWN)
+                        continue;
+                    int child = edges.get(edge(node, type, codes[type][end]));
+                    if (child != 0) {
+                        if (top == nodes.length) {
+                            nodes = Arrays.copyOf(nodes, top * 2);
+                            ends = Arrays.copyOf(ends, top * 2);
+                        }
+                        nodes[top] = child;
+                        ends[top++] = end + 1;
+                    }
+                }
+            }
+
+            if (!hits.isEmpty()) {
+                hits.sort();
+                if (h.length < hits.size())
+                    h = new long[hits.size() * 2];
+                hits.toArray(h, 0, hits.size());
+                int size = 0;
+                for (int i = 0, n = hits.size(); i < n; i++)
+                    if (size == 0 || h[i] != h[size - 1])
+                        h[size++] = h[i];
+
+                size = selection.select(h, size, ranks);
+                for (int i = 0; i < size; i++) {
+                    Concept concept = concepts.get((int) h[i]);
+                    int end = (int) (h[i] >>> 32);
+                    found.add(new Annotation.SimpleAnnotation<>(concept.getId(), concept, start, end));
+                    covered = Math.max(covered, end);
+                }
+                hits.resetQuick();
+            }
+        }
+        return found;
+    }
+
+    // The global vocabulary id of the unit annotation at each position
+    private static int[] codes(Annotations<?> annotations, int length) {
+        int[] codes = new int[length];
+        Arrays.fill(codes, Vocabulary.UNKNOWN);
+        if (annotations == null)
+            return codes;
+
+        for (int i = 0, size = annotations.size(); i < size; i++) {
+            int start = annotations.getStart(i);
+            if (start >= 0 && start < length)
+                codes[start] = annotations.getIdCode(i);
+        }
+        return codes;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Building
+    ///////////////////////////////////////////////////////////////////////////
+    static class Builder {
+        private final List<Concept>            concepts  = new ArrayList<>();
+        private final TLongIntHashMap          edges     = new TLongIntHashMap();
+        private final TIntObjectHashMap<int[]> outputs   = new TIntObjectHashMap<>();
+        private final boolean[]                usesType  = new boolean[2];
+        private int                            nodeCount = 1;
+
+        /**
+         * Adds a concept.  Its lemmas are added separately with {@link #add(int, Expression)}.
+         * @return the index of the concept
+         */
+        int addConcept(Concept concept) {
+            concepts.add(concept);
+            return concepts.size() - 1;
+        }
+
+        /**
+         * Adds a parsed lemma of a concept if it is a sequence of tokens and stems.
+         * @param concept the index of the concept
+         * @param lemma the parsed lemma
+         * @return true if the lemma was added, or false if it must be matched some other way
+         */
+        boolean add(int concept, Expression lemma) {
+            List<AnnotationExpression> sequence = new ArrayList<>();
+            if (lemma instanceof AnnotationExpression)
+                sequence.add((AnnotationExpression) lemma);
+            else if (lemma instanceof CompoundExpression && ((CompoundExpression) lemma).getType() == CompoundExpression.Type.SEQUENCE) {
+                for (Expression e : ((CompoundExpression) lemma).getSubExpressions()) {
+                    if (!(e instanceof AnnotationExpression))
+                        return false;
+                    sequence.add((AnnotationExpression) e);
+                }
+            } else
+                return false;
+
+            for (AnnotationExpression e : sequence)
+                if (e.getValue() == null || type(e) < 0)
+                    return false;
+
+            int node = 0;
+            for (AnnotationExpression e : sequence) {
+                int type = type(e);
+                usesType[type] = true;
+                long key = edge(node, type, e.getValueCode());
+                int child = edges.get(key);
+                if (child == 0)
+                    edges.put(key, child = nodeCount++);
+                node = child;
+            }
+
+            int[] named = outputs.get(node);
+            if (named == null)
+                outputs.put(node, new int[] {concept});
+            else if (named[named.length - 1] != concept) {
+                named = Arrays.copyOf(named, named.length + 1);
+                named[named.length - 1] = concept;
+                outputs.put(node, named);
+            }
+            return true;
+        }
+
+        private static int type(AnnotationExpression e) {
+            switch (e.getType()) {
+                case Annotation.TOKEN: return TOKEN;
+                case Annotation.STEM:  return STEM;
+                default:               return -1;
+            }
+        }
+
+        ConceptGazetteer build() {
+            return new ConceptGazetteer(this);
+        }
+    }
+}
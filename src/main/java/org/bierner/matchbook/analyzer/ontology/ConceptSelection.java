@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+
+/**
+ * A policy for which concept mentions a {@link SimpleConceptAnnotator} keeps when mentions overlap.  Policies are
+ * applied while the sentence is searched, one start position at a time, so mentions that aren't kept are never turned
+ * into annotations, and with {@link #LONGEST} positions inside a kept mention aren't searched at all.
+ *
+ * @author gann
+ */
+public abstract class ConceptSelection {
+    /**
+     * Keeps every mention, including those inside longer ones.
+     */
+    public static final ConceptSelection ALL = new ConceptSelection() {
+        @Override
+        int select(long[] hits, int size, int[] ranks) {
+            return size;
+        }
+    };
+
+    /**
+     * Keeps the leftmost longest mentions, so no two kept mentions overlap.  Starting from the left, the longest
+     * mentions at each position are kept and the positions they cover are skipped.  Concepts with exactly the same
+     * span are all kept, as this doesn't choose among them.
+     */
+    public static final ConceptSelection LONGEST = new ConceptSelection() {
+        @Override
+        boolean isExclusive() {
+            return true;
+        }
+
+        @Override
+        int select(long[] hits, int size, int[] ranks) {
+            long longest = hits[size - 1] >>> 32;
+            int kept = 0;
+            for (int i = 0; i < size; i++)
+                if (hits[i] >>> 32 == longest)
+                    hits[kept++] = hits[i];
+            return kept;
+        }
+    };
+
+    /**
+     * Keeps at most k concepts for each span, choosing those first in a priority order.  Mentions of different spans
+     * are kept even if they overlap.
+     * @param k the number of concepts to keep per span
+     * @param priority orders concepts from most to least preferred
+     * @return the policy
+     */
+    public static ConceptSelection topK(int k, @NonNull Comparator<? super Concept> priority) {
+        if (k < 1)
+            throw new IllegalArgumentException("At least one concept must be kept per span");
+
+        return new ConceptSelection() {
+            @Override
+            int[] ranks(List<Concept> concepts) {
+                Integer[] order = new Integer[concepts.size()];
+                for (int i = 0; i < order.length; i++)
+                    order[i] = i;
+                Arrays.sort(order, (a, b) -> priority.compare(concepts.get(a), concepts.get(b)));
+                // The rank of each concept, followed by the concept of each rank
+                int[] ranks = new int[order.length * 2];
+                for (int i = 0; i < order.length; i++) {
+                    ranks[order[i]] = i;
+                    ranks[order.length + i] = order[i];
+                }
+                return ranks;
+            }
+
+            @Override
+            int select(long[] hits, int size, int[] ranks) {
+                int kept = 0;
+                for (int from = 0, to; from < size; from = to) {
+                    long end = hits[from] >>> 32;
+                    to = from + 1;
+                    while (to < size && hits[to] >>> 32 == end)
+                        to++;
+                    if (to - from > k) {
+                        // Reorder the span's concepts by rank, so the first k are the ones to keep
+                        for (int i = from; i < to; i++)
+                            hits[i] = end << 32 | ranks[(int) hits[i]];
+                        Arrays.sort(hits, from, to);
+                        for (int i = from; i < to; i++)
+                            hits[i] = end << 32 | ranks[ranks.length / 2 + (int) hits[i]];
+                    }
+                    for (int i = from; i < Math.min(to, from + k); i++)
+                        hits[kept++] = hits[i];
+                }
+                return kept;
+            }
+        };
+    }
+
+    ConceptSelection() { }
+
+    /**
+     * Returns true if positions covered by kept mentions should not be searched.
+     */
+    boolean isExclusive() {
+        return false;
+    }
+
+    /**
+     * Precomputes whatever the policy needs to know about the concepts.
+     * @param concepts the concepts by index
+     * @return data for {@link #select(long[], int, int[])}, or null if the policy needs none
+     */
+    int[] ranks(List<Concept> concepts) {
+        return null;
+    }
+
+    /**
+     * Selects among the mentions starting at one position, moving those kept to the front.
+     * @param hits the mentions, each packed as end << 32 | concept index, sorted and distinct
+     * @param size the number of mentions
+     * @param ranks the result of {@link #ranks(List)} for the concepts the indexes refer to
+     * @return the number of mentions kept
+     */
+    abstract int select(long[] hits, int size, int[] ranks);
+}
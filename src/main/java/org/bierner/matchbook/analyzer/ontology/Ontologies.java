@@ -4,15 +4,27 @@
 
 package org.bierner.matchbook.analyzer.ontology;
 
+import com.google.common.io.ByteStreams;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import lombok.AllArgsConstructor;
 import lombok.Cleanup;
 import lombok.Setter;
-import org.bierner.matchbook.analyzer.ontology.SimpleOntology.SimpleOntologyBuilder;
+import org.bierner.matchbook.analyzer.ontology.CompactOntology.CompactOntologyBuilder;
 
 /**
+ * Loads ontologies by name.  The standard strategies load {@link CompactOntology compact ontologies}, preferring a
+ * snapshot named with {@link CompactOntology#SNAPSHOT_EXTENSION} after the ontology when one exists, and otherwise
+ * parsing the text with an {@link OntologyLoader}.  A snapshot file older than its ontology's text file is stale and
+ * is ignored, so that editing the text and reloading picks up the change.
  *
  * @author gann
  */
@@ -32,18 +44,92 @@ public class Ontologies {
         private String basePath;
         @Override
         public Ontology load(String... names) {
-                SimpleOntologyBuilder builder = SimpleOntology.builder();
-                for (String name : names) {
-                    try {
-                        @Cleanup Reader reader = new InputStreamReader(ClassLoader.getSystemResourceAsStream(basePath + "/" + name));                    
-                        builder.add(reader);
-                    } catch (ClassNotFoundException | IOException | NullPointerException e) {
-                        throw new IllegalArgumentException("Unable to load ontology: " + name, e);
-                    }
+            return Ontologies.load(names, name -> ClassLoader.getSystemResource(basePath + "/" + name));
+        }
+    }
+
+    /**
+     * A model loading strategy that loads files from a given directory.
+     */
+    @AllArgsConstructor
+    public static class FileLoadStrategy implements LoadStrategy {
+        private Path directory;
+        @Override
+        public Ontology load(String... names) {
+            return Ontologies.load(names, name -> {
+                Path file = directory.resolve(name);
+                try {
+                    return Files.exists(file)? file.toUri().toURL() : null;
+                } catch (MalformedURLException e) {
+                    return null;
                 }
-                return builder.build();
+            });
         }
     }
+
+    // Finds the URL of a named file, or null if there is none
+    private interface Locator {
+        URL locate(String name);
+    }
+
+    private static Ontology load(String[] names, Locator locator) {
+        if (names.length == 1) {
+            URL snapshot = snapshot(names[0], locator);
+            if (snapshot != null)
+                return readSnapshot(names[0], snapshot);
+        }
+
+        CompactOntologyBuilder builder = CompactOntology.builder();
+        OntologyLoader loader = new OntologyLoader();
+        for (String name : names) {
+            URL snapshot = snapshot(name, locator);
+            if (snapshot != null) {
+                builder.add(readSnapshot(name, snapshot));
+                continue;
+            }
+            URL text = locator.locate(name);
+            if (text == null)
+                throw new IllegalArgumentException("Unable to load ontology: " + name);
+            try {
+                loader.add(builder, read(text));
+            } catch (IOException | URISyntaxException e) {
+                throw new IllegalArgumentException("Unable to load ontology: " + name, e);
+            }
+        }
+        return builder.build();
+    }
+
+    // The snapshot of an ontology, unless the ontology is a file that has been modified since the snapshot was written
+    private static URL snapshot(String name, Locator locator) {
+        URL snapshot = locator.locate(name + CompactOntology.SNAPSHOT_EXTENSION);
+        if (snapshot == null || !"file".equals(snapshot.getProtocol()))
+            return snapshot;
+        URL text = locator.locate(name);
+        if (text == null || !"file".equals(text.getProtocol()))
+            return snapshot;
+        try {
+            FileTime modified = Files.getLastModifiedTime(Paths.get(text.toURI()));
+            return modified.compareTo(Files.getLastModifiedTime(Paths.get(snapshot.toURI()))) > 0? null : snapshot;
+        } catch (IOException | URISyntaxException e) {
+            return snapshot;
+        }
+    }
+
+    private static CompactOntology readSnapshot(String name, URL snapshot) {
+        try {
+            return CompactOntology.readSnapshot(read(snapshot));
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalArgumentException("Unable to load ontology snapshot: " + name, e);
+        }
+    }
+
+    // Maps files, and reads anything else such as resources in jars
+    private static ByteBuffer read(URL url) throws IOException, URISyntaxException {
+        if ("file".equals(url.getProtocol()))
+            return OntologyLoader.map(Paths.get(url.toURI()));
+        @Cleanup InputStream in = url.openStream();
+        return ByteBuffer.wrap(ByteStreams.toByteArray(in));
+    }
     
     @Setter private static LoadStrategy loader = new ResourceLoadStrategy(Ontologies.class.getPackage().getName().replaceAll("\\\\.", "/"));
     
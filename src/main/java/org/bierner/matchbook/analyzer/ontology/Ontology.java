@@ -81,4 +81,15 @@ public interface Ontology {
     
     <E extends Entity> E getEntity(Class<E> clazz, String id);
 
+    /**
+     * Returns the ancestors of the concepts in this ontology.  By default, they are computed on demand by a new
+     * {@link AncestorMemo}, which remembers them only as long as the caller keeps it.  Implementations should override
+     * this to return one they own, or a precomputed {@link AncestorIndex}.  Callers should fetch the ancestors once
+     * per sentence or query rather than once per concept.
+     * @return the ancestors
+     */
+    public default Ancestors getAncestors() {
+        return new AncestorMemo(this);
+    }
+
 }
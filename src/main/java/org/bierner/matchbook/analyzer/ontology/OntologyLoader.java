@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.ontology.CompactOntology.CompactOntologyBuilder;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Entity;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+
+/**
+ * Loads ontologies in the tab separated text format into a {@link CompactOntology}, parsing large files in parallel.
+ * A file is split into chunks at line boundaries and each chunk is parsed in a fork/join pool into a table of its
+ * distinct strings and an array of edges between them.  The chunks are then added to the builder in order, so each
+ * distinct string of a chunk is interned once however many edges use it, and relations declared in the file take
+ * effect at the same point as when reading it line by line.
+ * <p/>
+ * Files are memory mapped rather than read.  Running the loader on text files writes a snapshot that
+ * {@link Ontologies} will prefer to the text:
+ * <pre>
+ *   java org.bierner.matchbook.analyzer.ontology.OntologyLoader animal.ont.snapshot animal.ont
+ * </pre>
+ *
+ * @author gann
+ */
+public class OntologyLoader {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int          chunkSize;
+
+    /**
+     * Creates a loader that runs in the common fork/join pool.
+     */
+    public OntologyLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a loader.
+     * @param pool the pool in which to parse chunks
+     */
+    public OntologyLoader(ForkJoinPool pool) {
+        this(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    OntologyLoader(@NonNull ForkJoinPool pool, int chunkSize) {
+        this.pool      = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads text files into one ontology.
+     * @param files the files to load
+     * @return the ontology
+     * @throws IOException if a file can't be read
+     */
+    public CompactOntology load(Path... files) throws IOException {
+        CompactOntologyBuilder builder = CompactOntology.builder();
+        for (Path file : files)
+            add(builder, map(file));
+        return builder.build();
+    }
+
+    /**
+     * Parses text into a builder.
+     * @param builder the builder to add to
+     * @param text UTF-8 text from its position to its limit
+     * @return the builder
+     */
+    public CompactOntologyBuilder add(CompactOntologyBuilder builder, ByteBuffer text) {
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        int start = text.position(), limit = text.limit();
+        while (start < limit) {
+            int end = Math.min(limit, start + chunkSize);
+            while (end < limit && text.get(end - 1) != '\n')
+                end++;
+            tasks.add(pool.submit(new Parse(text, start, end)));
+            start = end;
+        }
+
+        try {
+            for (ForkJoinTask<Chunk> task : tasks)
+                task.join().addTo(builder);
+        } finally {
+            for (ForkJoinTask<Chunk> task : tasks)
+                task.cancel(false);
+        }
+        return builder;
+    }
+
+    static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Parsing
+    ///////////////////////////////////////////////////////////////////////////
+    // The lines of a chunk, with strings replaced by indexes into a table of the chunk's distinct strings
+    private static final class Chunk {
+        private static final int DECLARATION = -1;
+
+        private final List<String>              strings      = new ArrayList<>();
+        private final TObjectIntHashMap<String> index        = new TObjectIntHashMap<>(16, 0.5f, -1);
+        private final TIntArrayList             edges        = new TIntArrayList();    // Relation, from, to
+        private final List<String[]>            declarations = new ArrayList<>();
+
+        int string(String s) {
+            int i = index.get(s);
+            if (i < 0) {
+                index.put(s, i = strings.size());
+                strings.add(s);
+            }
+            return i;
+        }
+
+        void declare(String[] fields) {
+            edges.add(DECLARATION);
+            edges.add(declarations.size());
+            edges.add(0);
+            declarations.add(fields);
+        }
+
+        void addTo(CompactOntologyBuilder builder) {
+            Relation<?,?>[] relations = new Relation<?,?>[strings.size()];
+            Map<Class<? extends Entity>, int[]> ids = new HashMap<>();
+            for (int i = 0; i < edges.size(); i += 3) {
+                int key = edges.getQuick(i), from = edges.getQuick(i + 1), to = edges.getQuick(i + 2);
+                if (key == DECLARATION) {
+                    register(declarations.get(from));
+                    Arrays.fill(relations, null);
+                    continue;
+                }
+
+                Relation<?,?> relation = relations[key];
+                if (relation == null) {
+                    relation = relations[key] = Relation.getRelation(strings.get(key));
+                    if (relation == null)
+                        throw new IllegalArgumentException("Unknown relation: " + strings.get(key));
+                }
+                builder.add(id(builder, ids, relation.getFrom(), from), id(builder, ids, relation.getTo(), to), relation);
+            }
+        }
+
+        // The id in the builder of the entity of a class named by a string of this chunk
+        private int id(CompactOntologyBuilder builder, Map<Class<? extends Entity>, int[]> ids, Class<? extends Entity> clazz, int string) {
+            int[] a = ids.get(clazz);
+            if (a == null) {
+                ids.put(clazz, a = new int[strings.size()]);
+                Arrays.fill(a, -1);
+            }
+            if (a[string] < 0)
+                a[string] = builder.entity(clazz, strings.get(string));
+            return a[string];
+        }
+
+        // Registers a relation, as OntologyReader does
+        private static void register(String[] fields) {
+            try {
+                Class<? extends Entity> fromClass = Class.forName(fields[2]).asSubclass(Entity.class);
+                Class<? extends Entity> toClass   = Class.forName(fields[3]).asSubclass(Entity.class);
+                if (fields.length > 4)
+                    Relation.register(fields[1], fields[4], fromClass, toClass);
+                else
+                    Relation.register(fields[1], fromClass, toClass);
+            } catch (ClassNotFoundException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid relation declaration: " + String.join("\t", fields), e);
+            }
+        }
+    }
+
+    // Parses the lines from start up to end of a shared buffer, which is only read by absolute position
+    private static final class Parse implements Callable<Chunk> {
+        private final ByteBuffer text;
+        private final int        start;
+        private final int        end;
+        private byte[]           scratch = new byte[64];
+
+        Parse(ByteBuffer text, int start, int end) {
+            this.text  = text;
+            this.start = start;
+            this.end   = end;
+        }
+
+        @Override
+        public Chunk call() {
+            Chunk chunk = new Chunk();
+            List<String> fields = new ArrayList<>();
+            int line = start;
+            while (line < end) {
+                int next = line;
+                while (next < end && text.get(next) != '\n')
+                    next++;
+
+                fields.clear();
+                for (int field = line; field <= next; ) {
+                    int tab = field;
+                    while (tab < next && text.get(tab) != '\t')
+                        tab++;
+                    fields.add(decode(field, tab));
+                    field = tab + 1;
+                }
+                line = next + 1;
+
+                if (fields.size() == 1 && fields.get(0).isEmpty())
+                    continue;
+                if (fields.get(0).equals("#"))
+                    chunk.declare(fields.toArray(new String[fields.size()]));
+                else {
+                    if (fields.size() < 2)
+                        throw new IllegalArgumentException("Relation has no source: " + fields.get(0));
+                    int key = chunk.string(fields.get(0)), from = chunk.string(fields.get(1));
+                    for (int i = 2; i < fields.size(); i++) {
+                        chunk.edges.add(key);
+                        chunk.edges.add(from);
+                        chunk.edges.add(chunk.string(fields.get(i)));
+                    }
+                }
+            }
+            return chunk;
+        }
+
+        // Decodes a field, trimmed of whitespace as in OntologyReader
+        private String decode(int from, int to) {
+            while (from < to && isWhitespace(text.get(from)))
+                from++;
+            while (to > from && isWhitespace(text.get(to - 1)))
+                to--;
+            int length = to - from;
+            if (text.hasArray())
+                return new String(text.array(), text.arrayOffset() + from, length, StandardCharsets.UTF_8);
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            for (int i = 0; i < length; i++)
+                scratch[i] = text.get(from + i);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\r' || b == '\t' || b == '\f' || b == 0x0b;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Command line
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Writes a snapshot of ontology text files.
+     * @param args the snapshot file to write, followed by the text files to load
+     * @throws IOException if a file can't be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OntologyLoader <snapshot> <ontology>...");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        Path[] files = new Path[args.length - 1];
+        for (int i = 1; i < args.length; i++)
+            files[i - 1] = Paths.get(args[i]);
+        CompactOntology ontology = new OntologyLoader().load(files);
+        long loaded = System.nanoTime();
+        ontology.writeSnapshot(Paths.get(args[0]));
+        long written = System.nanoTime();
+        CompactOntology.readSnapshot(Paths.get(args[0]));
+        long read = System.nanoTime();
+
+        System.out.printf("%d concepts and %d lemmas loaded from text in %.1fms, snapshot read in %.1fms%n",
+                          ontology.size(Ontology.Concept.class), ontology.size(Ontology.Lemma.class),
+                          (loaded - start) / 1e6, (read - written) / 1e6);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import com.google.common.base.Splitter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Entity;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+
+/**
+ * Reads the tab separated ontology format.  Each line is a relation id, a source entity id, and any number of target
+ * entity ids.  A line starting with {@code #} registers a new relation by name, source and target entity classes, and
+ * optionally the name of its reverse.
+ *
+ * @author gann
+ */
+final class OntologyReader {
+    /**
+     * Receives the relations read.
+     */
+    interface Handler {
+        void add(String from, String to, Relation<? extends Entity, ? extends Entity> relation);
+    }
+
+    private OntologyReader() { }
+
+    static void read(Reader reader, Handler handler) throws IOException, ClassNotFoundException {
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        Splitter splitter = Splitter.on('\t').trimResults();
+        while ((line = br.readLine()) != null) {
+            Iterator<String> split = splitter.split(line).iterator();
+
+            if (! split.hasNext())
+                continue;
+
+            String key = split.next();
+            if (key.equals("#")) {
+                // Save the new relation by creating a new instance.  We'll be able to then access by name.
+                String name = split.next(), from = split.next(), to = split.next();
+                Class<? extends Entity> fromClass = Class.forName(from).asSubclass(Entity.class);
+                Class<? extends Entity> toClass   = Class.forName(to).asSubclass(Entity.class);
+                if (split.hasNext())
+                    Relation.register(name, split.next(), fromClass, toClass);
+                else
+                    Relation.register(name, fromClass, toClass);
+            } else {
+                Relation<? extends Entity,? extends Entity> relation = Relation.getRelation(key);
+                String from = split.next();
+                while (split.hasNext())
+                    handler.add(from, split.next(), relation);
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Entity;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+
+/**
+ * Traverses the relations of an ontology breadth or depth first, to any depth, and remembers the closures it is asked
+ * for most often.  A traversal follows one relation between entities of the same class, such as
+ * {@link Relation#HYPO HYPO} for the descendants of a concept.  Over a {@link CompactOntology} it walks the relation's
+ * arrays by dense id, and over other ontologies it numbers entities as they are reached, so either way the entities
+ * already seen are a bit set.
+ * <p/>
+ * Closures are kept in a bounded cache that evicts those least recently used, so repeated queries such as the
+ * descendants of the same concept aren't recomputed.  The cache reflects the ontology when each closure was computed,
+ * so it must be {@link #clear() cleared} if the ontology changes.  A traversal is thread-safe.
+ *
+ * @author gann
+ */
+public class OntologyTraversal {
+    private static final long DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * The order in which entities are visited.
+     */
+    public enum Order { BREADTH_FIRST, DEPTH_FIRST }
+
+    /**
+     * A callback for each entity a traversal reaches.
+     */
+    public interface Visitor<E extends Entity> {
+        /**
+         * Visits an entity.
+         * @param entity the entity
+         * @param depth the number of edges from the start of the traversal to the entity
+         * @return true to follow the entity's edges, or false to go no further from it
+         */
+        boolean visit(E entity, int depth);
+    }
+
+    @Value
+    private static class Key<E extends Entity> {
+        private E              from;
+        private Relation<E, E> relation;
+        private int            maxDepth;
+    }
+
+    @Getter private final Ontology                             ontology;
+    private final LoadingCache<Key<?>, List<? extends Entity>> closures;
+
+    /**
+     * Creates a traversal that caches up to 10,000 closures.
+     * @param ontology the ontology to traverse
+     */
+    public OntologyTraversal(Ontology ontology) {
+        this(ontology, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a traversal.
+     * @param ontology the ontology to traverse
+     * @param cacheSize the maximum number of closures to cache
+     */
+    public OntologyTraversal(@NonNull Ontology ontology, long cacheSize) {
+        this.ontology = ontology;
+        this.closures = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build(new CacheLoader<Key<?>, List<? extends Entity>>() {
+                    @Override public List<? extends Entity> load(Key<?> key) {
+                        return compute(key);
+                    }
+                });
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Traversing
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Visits each entity reachable from an entity once.  Breadth first, an entity is visited at its distance from the
+     * start.  Depth first, entities are visited in preorder, each at the depth of the first path to it.  Either way,
+     * every entity within the greatest depth of the start is visited, unless the visitor prunes all paths to it.
+     * @param from the entity to start from, which is visited at depth 0
+     * @param relation the relation to follow
+     * @param order breadth or depth first
+     * @param maxDepth the greatest depth to visit
+     * @param visitor the visitor
+     */
+    public <E extends Entity> void traverse(@NonNull E from, @NonNull Relation<E, E> relation, @NonNull Order order, int maxDepth,
+                                            @NonNull Visitor<? super E> visitor) {
+        checkDepth(maxDepth);
+        Graph<E> graph = graph(relation);
+        int start = graph.id(from);
+        if (start < 0)
+            visitor.visit(from, 0);
+        else if (order == Order.BREADTH_FIRST)
+            breadthFirst(graph, start, maxDepth, (id, depth) -> visitor.visit(graph.entity(id), depth));
+        else
+            depthFirst(graph, start, maxDepth, (id, depth) -> visitor.visit(graph.entity(id), depth));
+    }
+
+    /**
+     * Returns the entities reachable from an entity, nearest first.
+     * @param from the entity to start from
+     * @param relation the relation to follow
+     * @return an unmodifiable list of the distinct entities reachable, not including the entity itself
+     */
+    public <E extends Entity> List<E> closure(E from, Relation<E, E> relation) {
+        return closure(from, relation, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the entities reachable from an entity within a number of edges, nearest first.
+     * @param from the entity to start from
+     * @param relation the relation to follow
+     * @param maxDepth the greatest number of edges to follow
+     * @return an unmodifiable list of the distinct entities reachable, not including the entity itself
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> List<E> closure(@NonNull E from, @NonNull Relation<E, E> relation, int maxDepth) {
+        checkDepth(maxDepth);
+        return (List<E>) closures.getUnchecked(new Key<>(from, relation, maxDepth));
+    }
+
+    /**
+     * Returns the descendants of a concept, that is, the closure of {@link Relation#HYPO HYPO}.
+     * @param concept a concept
+     * @return an unmodifiable list of descendants, nearest first
+     */
+    public List<Concept> descendants(Concept concept) {
+        return closure(concept, Relation.HYPO);
+    }
+
+    private <E extends Entity> List<E> compute(Key<E> key) {
+        Graph<E> graph = graph(key.getRelation());
+        int start = graph.id(key.getFrom());
+        if (start < 0)
+            return Collections.emptyList();
+
+        List<E> closure = new ArrayList<>();
+        breadthFirst(graph, start, key.getMaxDepth(), (id, depth) -> {
+            if (depth > 0)
+                closure.add(graph.entity(id));
+            return true;
+        });
+        return Collections.unmodifiableList(closure);
+    }
+
+    private static void checkDepth(int maxDepth) {
+        if (maxDepth < 0)
+            throw new IllegalArgumentException("Negative depth: " + maxDepth);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Distances
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the number of edges on a shortest path from one entity to another.
+     * @param from the entity to start from
+     * @param to the entity to reach
+     * @param relation the relation to follow
+     * @return the distance, or -1 if the entity can't be reached
+     */
+    public <E extends Entity> int distance(@NonNull E from, @NonNull E to, @NonNull Relation<E, E> relation) {
+        Graph<E> graph = graph(relation);
+        int start = graph.id(from), goal = graph.id(to);
+        if (start < 0 || goal < 0)
+            return from.equals(to)? 0 : -1;
+
+        int[] distance = {-1};
+        breadthFirst(graph, start, Integer.MAX_VALUE, (id, depth) -> {
+            if (id == goal)
+                distance[0] = depth;
+            return distance[0] < 0;
+        });
+        return distance[0];
+    }
+
+    /**
+     * Returns the lowest common ancestor of two concepts, the concept both are a kind of with the shortest total path
+     * up to it from the two by {@link Relation#HYPE HYPE}.  A concept counts as its own ancestor here, so if one
+     * concept is a kind of the other, the other is returned.
+     * @param a a concept
+     * @param b another concept
+     * @return the ancestor, or null if the concepts have none in common
+     */
+    public Concept lowestCommonAncestor(Concept a, Concept b) {
+        Graph<Concept> graph = graph(Relation.HYPE);
+        int[] meet = meet(graph, a, b);
+        return meet == null? null : graph.entity(meet[0]);
+    }
+
+    /**
+     * Returns the length of the shortest path between two concepts through a common ancestor.
+     * @param a a concept
+     * @param b another concept
+     * @return the number of edges on the path, or -1 if the concepts have no ancestor in common
+     */
+    public int pathDistance(Concept a, Concept b) {
+        int[] meet = meet(graph(Relation.HYPE), a, b);
+        return meet == null? -1 : meet[1];
+    }
+
+    // The common ancestor nearest to two concepts and the length of the path through it, or null if there is none
+    private static int[] meet(Graph<Concept> graph, @NonNull Concept a, @NonNull Concept b) {
+        int ia = graph.id(a), ib = graph.id(b);
+        if (ia < 0 || ib < 0)
+            return null;
+
+        TIntIntHashMap up = new TIntIntHashMap(16, 0.5f, -1, -1);
+        breadthFirst(graph, ia, Integer.MAX_VALUE, (id, depth) -> {
+            up.put(id, depth);
+            return true;
+        });
+
+        // Ancestors of b deeper than the best path so far can't be on a shorter one
+        int[] best = {-1, Integer.MAX_VALUE};
+        breadthFirst(graph, ib, Integer.MAX_VALUE, (id, depth) -> {
+            if (depth >= best[1])
+                return false;
+            int d = up.get(id);
+            if (d >= 0 && d + depth < best[1]) {
+                best[0] = id;
+                best[1] = d + depth;
+            }
+            return true;
+        });
+        return best[0] < 0? null : best;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Cache
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the hit and miss statistics of the closure cache.
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return closures.stats();
+    }
+
+    /**
+     * Forgets all the cached closures.
+     */
+    public void clear() {
+        closures.invalidateAll();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Graphs
+    ///////////////////////////////////////////////////////////////////////////
+    private interface IdVisitor {
+        boolean visit(int id, int depth);
+    }
+
+    private static void breadthFirst(Graph<?> graph, int start, int maxDepth, IdVisitor visitor) {
+        BitSet seen = new BitSet();
+        TIntArrayList queue = new TIntArrayList();
+        seen.set(start);
+        queue.add(start);
+        for (int head = 0, depth = 0, levelEnd = 1; head < queue.size(); head++) {
+            if (head == levelEnd) {
+                depth++;
+                levelEnd = queue.size();
+            }
+            int id = queue.getQuick(head);
+            if (!visitor.visit(id, depth) || depth == maxDepth)
+                continue;
+            for (int i = 0, n = graph.degree(id); i < n; i++) {
+                int next = graph.neighbor(id, i);
+                if (!seen.get(next)) {
+                    seen.set(next);
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    // Each entity is visited once, but is expanded again if reached later by a shorter path, so that with a depth limit
+    // nothing within the limit is missed
+    private static void depthFirst(Graph<?> graph, int start, int maxDepth, IdVisitor visitor) {
+        TIntIntHashMap best   = new TIntIntHashMap();    // The least depth each entity has been expanded at
+        BitSet         pruned = new BitSet();
+        TIntArrayList  stack  = new TIntArrayList();     // Id, depth pairs
+        stack.add(start);
+        stack.add(0);
+        while (!stack.isEmpty()) {
+            int depth = stack.removeAt(stack.size() - 1), id = stack.removeAt(stack.size() - 1);
+            if (best.containsKey(id)) {
+                if (depth >= best.get(id) || pruned.get(id))
+                    continue;
+            } else if (!visitor.visit(id, depth)) {
+                best.put(id, depth);
+                pruned.set(id);
+                continue;
+            }
+            best.put(id, depth);
+            if (depth == maxDepth)
+                continue;
+            // Pushed in reverse, so the edges are followed in order
+            for (int i = graph.degree(id) - 1; i >= 0; i--) {
+                int next = graph.neighbor(id, i);
+                if (!best.containsKey(next) || best.get(next) > depth + 1) {
+                    stack.add(next);
+                    stack.add(depth + 1);
+                }
+            }
+        }
+    }
+
+    private <E extends Entity> Graph<E> graph(Relation<E, E> relation) {
+        if (relation.getFrom() != relation.getTo())
+            throw new IllegalArgumentException("Not a relation between entities of one class: " + relation);
+        if (ontology instanceof CompactOntology)
+            return new CompactGraph<>((CompactOntology) ontology, relation);
+        return new LazyGraph<>(ontology, relation);
+    }
+
+    // A relation's edges between entities numbered by int ids
+    private interface Graph<E extends Entity> {
+        int id(E entity);                  // -1 if the entity isn't in the ontology
+        E entity(int id);
+        int degree(int id);
+        int neighbor(int id, int i);
+    }
+
+    // The arrays of a compact ontology's relation, by dense id
+    private static final class CompactGraph<E extends Entity> implements Graph<E> {
+        private final CompactOntology ontology;
+        private final Class<E>        clazz;
+        private final int[]           offsets;     // Null if the relation has no edges
+        private final int[]           targets;
+
+        CompactGraph(CompactOntology ontology, Relation<E, E> relation) {
+            int[][] arrays = ontology.arrays(relation);
+            this.ontology = ontology;
+            this.clazz    = relation.getFrom();
+            this.offsets  = arrays == null? null : arrays[0];
+            this.targets  = arrays == null? null : arrays[1];
+        }
+
+        @Override public int id(E entity)            { return ontology.indexOf(clazz, entity); }
+        @Override public E   entity(int id)          { return ontology.entity(clazz, id); }
+        @Override public int degree(int id)          { return offsets == null? 0 : offsets[id + 1] - offsets[id]; }
+        @Override public int neighbor(int id, int i) { return targets[offsets[id] + i]; }
+    }
+
+    // Numbers entities as they are reached, for ontologies that don't number them, and is used by one thread at a time
+    private static final class LazyGraph<E extends Entity> implements Graph<E> {
+        private final Ontology             ontology;
+        private final Relation<E, E>       relation;
+        private final TObjectIntHashMap<E> ids       = new TObjectIntHashMap<>(16, 0.5f, -1);
+        private final List<E>              entities  = new ArrayList<>();
+        private final List<int[]>          neighbors = new ArrayList<>();
+
+        LazyGraph(Ontology ontology, Relation<E, E> relation) {
+            this.ontology = ontology;
+            this.relation = relation;
+        }
+
+        @Override
+        public int id(E entity) {
+            int id = ids.get(entity);
+            if (id < 0) {
+                ids.put(entity, id = entities.size());
+                entities.add(entity);
+                neighbors.add(null);
+            }
+            return id;
+        }
+
+        @Override public E   entity(int id)          { return entities.get(id); }
+        @Override public int degree(int id)          { return neighbors(id).length; }
+        @Override public int neighbor(int id, int i) { return neighbors(id)[i]; }
+
+        private int[] neighbors(int id) {
+            int[] n = neighbors.get(id);
+            if (n == null) {
+                Set<E> related = ontology.getRelation(entities.get(id), relation);
+                n = new int[related.size()];
+                int i = 0;
+                for (E e : related)
+                    n[i++] = id(e);
+                neighbors.set(id, n);
+            }
+            return n;
+        }
+    }
+}
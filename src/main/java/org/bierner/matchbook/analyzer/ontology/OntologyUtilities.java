@@ -5,10 +5,10 @@
 package org.bierner.matchbook.analyzer.ontology;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
 import org.bierner.matchbook.analyzer.ontology.Ontology.Lemma;
-import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
 
 /**
  *
@@ -24,15 +24,14 @@ public class OntologyUtilities {
     }
         
     public static Set<Concept> isa(Concept from) {
-        Set<Concept> result = new HashSet<>();
-        isa(from, result);
-        return result;
+        return new HashSet<>(ancestors(from));
     }
-    
-    private static void isa(Concept from, Set<Concept> accumulator) {
-        for (Concept c : from.getOntology().getRelation(from, Relation.HYPE)) {
-            accumulator.add(c);
-            isa(c, accumulator);
-        }
+
+    public static List<Concept> ancestors(Concept from) {
+        return from.getOntology().getAncestors().getAncestors(from);
+    }
+
+    public static boolean isa(Concept from, Concept ancestor) {
+        return from.getOntology().getAncestors().isa(from, ancestor);
     }
 }
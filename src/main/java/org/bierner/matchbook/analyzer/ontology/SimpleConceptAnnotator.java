@@ -4,10 +4,12 @@
 
 package org.bierner.matchbook.analyzer.ontology;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import lombok.AllArgsConstructor;
+import lombok.NonNull;
 import lombok.experimental.ExtensionMethod;
 import org.bierner.matchbook.analyzer.Analyzer;
 import org.bierner.matchbook.analyzer.AnalyzingSentenceAnnotator;
@@ -27,41 +29,118 @@ import org.bierner.matchbook.matcher.realtime.indexing.IndexingRealtimeSentenceM
 import org.bierner.matchbook.matcher.realtime.indexing.IndexingRealtimeSentenceMatcher.IndexingRealtimeSentenceMatcherBuilder;
 
 /**
+ * Annotates mentions of the concepts in an ontology by matching the lemmas of each concept.  Lemmas are matchbook
+ * expressions.  Those that are sequences of tokens and stems, which is nearly all of them, are found in a single pass
+ * by a {@link ConceptGazetteer}, however many concepts there are.  Any others are matched with a realtime matcher.
+ * <p/>
+ * Overlapping mentions are all kept unless a {@link ConceptSelection} policy chooses among them.  Given a
+ * {@link VersionedOntology}, the annotator picks up new versions of the ontology as they are loaded without the
+ * analyzer being rebuilt.  Closing the annotator detaches it from the versioned ontology.
  *
  * @author gann
  */
 @ExtensionMethod(SentenceUtilities.class)
-public class SimpleConceptAnnotator implements SentenceAnnotator, AnalyzingSentenceAnnotator {    
+public class SimpleConceptAnnotator implements SentenceAnnotator, AnalyzingSentenceAnnotator, AutoCloseable {    
     static {
         AnnotationType.registerAnnotator(SimpleConceptAnnotator.class, AnnotationType.CONCEPT);
     }
     
-    private IndexingRealtimeSentenceMatcher matcher;
-    private List<Concept>                   concepts = new ArrayList<>();
-    private Ontology                        ontology;
+    private final VersionedOntology ontology;
+    private final ConceptSelection  selection;
+    private volatile Compiled       compiled;
+    private VersionedOntology.Listener listener;        // Following the ontology for the analyzer last initialized
     
     public SimpleConceptAnnotator(String... names) {
-        ontology = Ontologies.getOntology(names);
+        this(Ontologies.getOntology(names));
     }
     
     public SimpleConceptAnnotator(Ontology ontology) {
-        this.ontology = ontology;
+        this(new VersionedOntology(ontology));
+    }
+
+    public SimpleConceptAnnotator(Ontology ontology, ConceptSelection selection) {
+        this(new VersionedOntology(ontology), selection);
+    }
+
+    /**
+     * Creates an annotator that follows the versions of an ontology.  When a new version is loaded, the annotator's
+     * matchers are compiled for it on the loading thread and then swapped in, and each sentence is annotated entirely
+     * with one version.
+     * @param ontology the versioned ontology
+     */
+    public SimpleConceptAnnotator(VersionedOntology ontology) {
+        this(ontology, ConceptSelection.ALL);
+    }
+
+    /**
+     * Creates an annotator that follows the versions of an ontology and keeps the mentions chosen by a policy.
+     * @param ontology the versioned ontology
+     * @param selection the policy for overlapping mentions
+     */
+    public SimpleConceptAnnotator(@NonNull VersionedOntology ontology, @NonNull ConceptSelection selection) {
+        this.ontology  = ontology;
+        this.selection = selection;
     }
     
+    /**
+     * Compiles the matchers for an analyzer and follows the ontology's versions with them.  Initializing again
+     * replaces the previous analyzer's listener.
+     * @param analyzer the analyzer
+     */
+    @Override
+    public synchronized void init(Analyzer analyzer) {
+        if (listener != null)
+            ontology.removeListener(listener);
+        listener = next -> {
+            Compiled c = new Compiled(analyzer, next.getOntology(), selection);
+            return () -> compiled = c;
+        };
+        ontology.addListener(listener);
+    }
+
+    /**
+     * Stops following the ontology's versions, so that the annotator keeps its current matchers and the ontology no
+     * longer refers to it or its analyzer.
+     */
     @Override
-    public void init(Analyzer analyzer) {
-        IndexingRealtimeSentenceMatcherBuilder builder     = IndexingRealtimeSentenceMatcher.builder();
-        RealtimeExpressionFactory              exprFactory = new RealtimeExpressionFactory(analyzer);
+    public synchronized void close() {
+        if (listener != null)
+            ontology.removeListener(listener);
+        listener = null;
+    }
+
+    // The matchers for one version of the ontology
+    private static class Compiled {
+        private final ConceptGazetteer                gazetteer;
+        private final IndexingRealtimeSentenceMatcher matcher;            // For lemmas the gazetteer can't handle
+        private final int[]                           fallback;           // The gazetteer index of each matcher expression's concept
+        private final int[]                           ranks;              // The selection policy's data
+
+        Compiled(Analyzer analyzer, Ontology ontology, ConceptSelection selection) {
+            ConceptGazetteer.Builder               gazetteerBuilder = ConceptGazetteer.builder();
+            IndexingRealtimeSentenceMatcherBuilder builder          = IndexingRealtimeSentenceMatcher.builder();
+            RealtimeExpressionFactory              exprFactory      = new RealtimeExpressionFactory(analyzer);
+            TIntArrayList                          indexes          = new TIntArrayList();
 
-        for (Concept concept : ontology.getEntities(Concept.class)) {
-            List<Expression> exprs = new ArrayList<>();                    
-            for (Lemma lemma : ontology.getRelation(concept, Ontology.Relation.SYNS)) 
-                exprs.add(exprFactory.parse(lemma.getLemma()));
-            builder.addExpression(exprFactory.or(exprs));
-            concepts.add(concept);
+            for (Concept concept : ontology.getEntities(Concept.class)) {
+                int index = gazetteerBuilder.addConcept(concept);
+                List<Expression> exprs = new ArrayList<>();
+                for (Lemma lemma : ontology.getRelation(concept, Ontology.Relation.SYNS)) {
+                    Expression expr = exprFactory.parse(lemma.getLemma());
+                    if (!gazetteerBuilder.add(index, expr))
+                        exprs.add(expr);
+                }
+                if (!exprs.isEmpty()) {
+                    builder.addExpression(exprFactory.or(exprs));
+                    indexes.add(index);
+                }
+            }
+
+            gazetteer = gazetteerBuilder.build();
+            matcher   = indexes.isEmpty()? null : builder.build();
+            fallback  = indexes.toArray();
+            ranks     = selection.ranks(gazetteer.getConcepts());
         }
-        
-        matcher = builder.build();
     }
     
     
@@ -83,17 +162,24 @@ public class SimpleConceptAnnotator implements SentenceAnnotator, AnalyzingSente
     
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        List<MatchAnnotation> annotations = new ArrayList<>();
-        List<Matches>         exprMatches = matcher.matchIndividually(sentence);        
-        
-        for (int i = 0; i < exprMatches.size(); i++) {
-            Concept concept = concepts.get(i);
-            for (Match match : exprMatches.get(i))
-                annotations.add(new MatchAnnotation(concept, match));
+        Compiled c = compiled;
+
+        // Matches of the other lemmas join the gazetteer's mentions at their start positions, so they are selected
+        // among together
+        TLongArrayList[] extra = null;
+        if (c.matcher != null) {
+            List<Matches> exprMatches = c.matcher.matchIndividually(sentence);
+            for (int i = 0; i < exprMatches.size(); i++)
+                for (Match match : exprMatches.get(i)) {
+                    if (extra == null)
+                        extra = new TLongArrayList[sentence.tokenCount()];
+                    if (extra[match.getStart()] == null)
+                        extra[match.getStart()] = new TLongArrayList();
+                    extra[match.getStart()].add((long) match.getEnd() << 32 | c.fallback[i]);
+                }
         }
-        
-        Collections.sort(annotations);
-        sentence.setAnnotations(AnnotationType.CONCEPT, new RangeAnnotations<>(annotations));
+
+        sentence.setAnnotations(AnnotationType.CONCEPT, new RangeAnnotations<>(c.gazetteer.find(sentence, selection, c.ranks, extra)));
     }
 
 }
@@ -4,37 +4,42 @@
 
 package org.bierner.matchbook.analyzer.ontology;
 
-import com.google.common.base.Splitter;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Table;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.Value;
 
 /**
+ * An ontology held in memory.  When it is built, an {@link AncestorIndex} is precomputed.  If the ontology is added to
+ * afterward, ancestors are instead computed on demand by an {@link AncestorMemo}.
  *
  * @author gann
  */
-@AllArgsConstructor
 public class SimpleOntology implements Ontology {
     private Map<Relation<?,?>, HashMultimap<Entity, Entity>>  values;
     private Table<Class<? extends Entity>, String, Entity>    entities;
+    private volatile Ancestors                                ancestors;   // Null when the ontology has changed
+
+    public SimpleOntology(Map<Relation<?,?>, HashMultimap<Entity, Entity>> values, Table<Class<? extends Entity>, String, Entity> entities) {
+        this.values   = values;
+        this.entities = entities;
+    }
 
     @Override
     @SuppressWarnings("unchecked")
     public <From extends Entity, To extends Entity> Set<To> getRelation(From from, Relation<From, To> relation) {
-        return (Set<To>) values.get(relation).get(from);
+        HashMultimap<Entity, Entity> m = values.get(relation);
+        return m == null? Collections.<To>emptySet() : (Set<To>) m.get(from);
     }
 
     @Override
@@ -57,6 +62,14 @@ public class SimpleOntology implements Ontology {
         return getEntity(clazz, id, entities, this);
     }
 
+    @Override
+    public Ancestors getAncestors() {
+        Ancestors a = ancestors;
+        if (a == null)
+            ancestors = a = new AncestorMemo(this);
+        return a;
+    }
+
     
     @Value
     private static class SimpleConcept implements Concept {
@@ -107,6 +120,7 @@ public class SimpleOntology implements Ontology {
         }
         
         private SimpleOntologyBuilder _add(Entity from, Entity to, Relation<? extends Entity, ? extends Entity> relation) {
+            ontology.ancestors = null;
             entities.put(relation.getFrom(), from.getId(), from);
             entities.put(relation.getTo(), to.getId(), to);            
             
@@ -123,37 +137,12 @@ public class SimpleOntology implements Ontology {
         }
         
         public SimpleOntologyBuilder add(Reader reader)  throws IOException, ClassNotFoundException {
-            BufferedReader br = new BufferedReader(reader);
-            String line;
-            Splitter splitter = Splitter.on('\t').trimResults();
-            while ((line = br.readLine()) != null) {
-                Iterator<String> split = splitter.split(line).iterator();
-                
-                if (! split.hasNext())
-                    continue;
-                
-                String key = split.next();
-                if (key.equals("#")) {
-                    // Save the new relation by creating a new instance.  We'll be able to then access by name.
-                    String name = split.next(), from = split.next(), to = split.next();
-                    Class<? extends Entity> fromClass = Class.forName(from).asSubclass(Entity.class);
-                    Class<? extends Entity> toClass   = Class.forName(to).asSubclass(Entity.class);                
-                    if (split.hasNext()) 
-                        Relation.register(name, split.next(), fromClass, toClass);                    
-                    else 
-                        Relation.register(name, fromClass, toClass);
-                } else {
-                    Relation<? extends Entity,? extends Entity> relation = Relation.getRelation(key);
-                    String from = split.next();                
-                    while (split.hasNext()) 
-                        add(from, split.next(), relation);
-                    
-                }
-            }
+            OntologyReader.read(reader, this::add);
             return this;
         }
         
         public SimpleOntology build() {
+            ontology.ancestors = AncestorIndex.build(ontology);
             return ontology;
         }
     }
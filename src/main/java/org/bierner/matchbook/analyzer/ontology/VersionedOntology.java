@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * An ontology that can be replaced while it is in use.  Each ontology it holds is an immutable {@link Version} with an
+ * increasing number, and the current version is swapped with a single reference update.  Whatever is derived from the
+ * ontology, such as the concept matcher of a {@link SimpleConceptAnnotator}, is registered as a {@link Listener} and
+ * is prepared for a new version before the swap, so nothing is ever seen half built.  Ancestors come with each
+ * ontology, as the concepts of a version refer to their own ontology.
+ * <p/>
+ * A {@link #reload()} loads and prepares the next version on a background thread, so analyzers keep annotating with
+ * the old version until the new one is ready.  Work that started with the old version finishes with it.  Reloads are
+ * serialized, and one that fails leaves the current version in place.
+ *
+ * @author gann
+ */
+public class VersionedOntology {
+    /**
+     * An ontology and its version number.
+     */
+    @Value
+    public static class Version {
+        private long     number;
+        private Ontology ontology;
+    }
+
+    /**
+     * Something derived from the ontology that must change with it.
+     */
+    public interface Listener {
+        /**
+         * Prepares for a new version, which isn't yet current.  This is called on the thread doing the update and
+         * may take as long as it needs.
+         * @param next the new version
+         * @return the action that makes the prepared state current, which should be a single reference update
+         */
+        Runnable prepare(Version next);
+    }
+
+    private final AtomicReference<Version> current;
+    private final Supplier<Ontology>       source;
+    private final List<Listener>           listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService          background;
+
+    /**
+     * Creates a versioned ontology that is reloaded from a source.
+     * @param source the source of each version, called once now for the first version
+     */
+    public VersionedOntology(@NonNull Supplier<Ontology> source) {
+        this.source     = source;
+        this.current    = new AtomicReference<>(new Version(1, source.get()));
+        this.background = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "matchbook-ontology-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a versioned ontology that starts with a given ontology.  It changes only by {@link #update(Ontology)}.
+     * @param ontology the first version
+     */
+    public VersionedOntology(@NonNull Ontology ontology) {
+        this(() -> ontology);
+    }
+
+    /**
+     * Creates a versioned ontology that is loaded and reloaded by name with {@link Ontologies#getOntology(String...)}.
+     * @param names the names of the ontologies
+     * @return the versioned ontology
+     */
+    public static VersionedOntology load(String... names) {
+        return new VersionedOntology(() -> Ontologies.getOntology(names));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the current version.  Read it once and use it for a whole unit of work to see a single version.
+     * @return the current version
+     */
+    public Version getVersion() {
+        return current.get();
+    }
+
+    /**
+     * Returns the current ontology.
+     * @return the current ontology
+     */
+    public Ontology getOntology() {
+        return current.get().getOntology();
+    }
+
+    /**
+     * Registers a listener and prepares it for the current version.
+     * @param listener the listener
+     */
+    public synchronized void addListener(@NonNull Listener listener) {
+        listener.prepare(current.get()).run();
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.  It is not prepared for any later versions.
+     * @param listener the listener
+     */
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Updating
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Loads the next version from the source and swaps it in on a background thread.
+     * @return the new version once it is current
+     */
+    public Future<Version> reload() {
+        return background.submit(() -> update(source.get()));
+    }
+
+    /**
+     * Prepares the listeners for an ontology on this thread and then makes it the current version.
+     * @param ontology the new ontology
+     * @return the new version
+     */
+    public synchronized Version update(@NonNull Ontology ontology) {
+        Version next = new Version(current.get().getNumber() + 1, ontology);
+        List<Runnable> commits = new ArrayList<>(listeners.size());
+        for (Listener listener : listeners)
+            commits.add(listener.prepare(next));
+
+        current.set(next);
+        for (Runnable commit : commits)
+            commit.run();
+        return next;
+    }
+}
@@ -4,18 +4,35 @@
 
 package org.bierner.matchbook.analyzer.opennlp;
 
+import com.google.common.io.CountingInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import lombok.AllArgsConstructor;
-import lombok.Setter;
+import lombok.Value;
 
 /**
  * A common utility class for OpenNLP wrappers to access their models.  By default, it is assumed
  * that the models are all located in the opennlp.models package, but any strategy may be used for
- * loading them.  The strategy is set statically by the 
+ * loading them.  The strategy is set statically by the
  * {@link #setLoader(org.bierner.matchbook.analyzer.opennlp.OpenNLPModels.LoadStrategy)}
  * method.
- * 
+ * <p/>
+ * Models requested through {@link #getModel(org.bierner.matchbook.analyzer.opennlp.OpenNLPModels.ModelSpec, java.util.Locale)}
+ * are kept in a process-wide registry so that each model is deserialized only once, no matter how many
+ * annotators use it.  Models may also be {@link #preload(java.util.Collection, org.bierner.matchbook.analyzer.opennlp.OpenNLPModels.ModelSpec[]) preloaded}
+ * in the background, and the time taken to load each one is available from {@link #getStats()}.
+ *
  * @author gann
  */
 public class OpenNLPModels {
@@ -27,7 +44,7 @@ public class OpenNLPModels {
     public interface LoadStrategy {
         InputStream load(String modelName);
     }
-    
+
     /**
      * A model loading strategy that loads as a resource from a given base path.
      */
@@ -39,24 +56,61 @@ public class OpenNLPModels {
             return ClassLoader.getSystemResourceAsStream(basePath + "/" + modelName);
         }
     }
-    
+
+    /**
+     * Deserializes a model from a stream, typically a model class's InputStream constructor.
+     * @param <M> the model class
+     */
+    public interface ModelReader<M> {
+        M read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Describes a kind of model: the class requesting it, the non-Locale part of its name and how to read it.
+     * @param <M> the model class
+     */
+    @Value
+    public static class ModelSpec<M> {
+        Class<?>       requester;
+        String         modelSuffix;
+        ModelReader<M> reader;
+    }
+
+    /**
+     * Statistics about a model in the registry.  The footprint is estimated by the size of the model's
+     * serialized form, which is a reasonable proxy for the memory held by its deserialized form.
+     */
+    @Value
+    public static class ModelStats {
+        String modelName;
+        long   loadNanos;
+        long   bytes;
+    }
+
+    private static volatile LoadStrategy loader = new ResourceLoadStrategy("opennlp/models");
+
+    private static final ConcurrentMap<String, CompletableFuture<Loaded>> registry = new ConcurrentHashMap<>();
+
     /**
      * A strategy for identifying and loading OpenNLP models.  The default loader attempts to locate
-     * models as a resource from opennlp/models.
-     * 
-     * @param loader 
+     * models as a resource from opennlp/models.  Changing the loader empties the model registry.
+     *
+     * @param loader
      */
-    @Setter private static LoadStrategy loader = new ResourceLoadStrategy("opennlp/models");
-    
+    public static void setLoader(LoadStrategy loader) {
+        OpenNLPModels.loader = loader;
+        registry.clear();
+    }
+
     /**
-     * Loads the requested model for the requested locale.  This method assumes the current 
+     * Loads the requested model for the requested locale.  This method assumes the current
      * OpenNLP model naming convention where all models start with a language code.
-     * 
-     * @param clazz The class of the model requester.  This is only used to provide a clearer error 
+     *
+     * @param clazz The class of the model requester.  This is only used to provide a clearer error
      * message if the model does not exist
      * @param locale The Locale for the requested model.
      * @param modelSuffix The non-Locale part of the model name.
-     * @return the model as an InputStream 
+     * @return the model as an InputStream
      * @throws IllegalArgumentException If the model is not available for the requested locale
      */
     public static InputStream getModel(Class<?> clazz, Locale locale, String modelSuffix) {
@@ -66,4 +120,133 @@ public class OpenNLPModels {
             throw new IllegalArgumentException(clazz.getSimpleName() + " model not available for " + locale);
         return is;
     }
+
+    /**
+     * Returns the requested model for the requested locale, deserializing it only if it hasn't already
+     * been loaded.  If another thread is loading the model, this waits for it rather than loading it again.
+     *
+     * @param <M> the model class
+     * @param spec the kind of model
+     * @param locale The Locale for the requested model.
+     * @return the shared model instance
+     * @throws IOException If the model cannot be read
+     * @throws IllegalArgumentException If the model is not available for the requested locale
+     */
+    @SuppressWarnings("unchecked")
+    public static <M> M getModel(ModelSpec<M> spec, Locale locale) throws IOException {
+        CompletableFuture<Loaded> future = future(spec, locale, Runnable::run);
+        try {
+            return (M) future.get().model;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + modelName(spec, locale), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException)
+                throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Loads the given models for the given locales in the background using the common fork/join pool.
+     * Models that are already loaded or loading are not loaded again.
+     *
+     * @param locales the locales for which to load models
+     * @param specs the kinds of model to load
+     * @return a future that completes when all the models are loaded, or completes exceptionally if any fail
+     */
+    public static CompletableFuture<Void> preload(Collection<Locale> locales, ModelSpec<?>... specs) {
+        return preload(ForkJoinPool.commonPool(), locales, specs);
+    }
+
+    /**
+     * Loads the given models for the given locales in the background.  Models that are already loaded or
+     * loading are not loaded again.
+     *
+     * @param executor the executor on which to load the models
+     * @param locales the locales for which to load models
+     * @param specs the kinds of model to load
+     * @return a future that completes when all the models are loaded, or completes exceptionally if any fail
+     */
+    public static CompletableFuture<Void> preload(Executor executor, Collection<Locale> locales, ModelSpec<?>... specs) {
+        List<CompletableFuture<Loaded>> futures = new ArrayList<>();
+        for (Locale locale : locales)
+            for (ModelSpec<?> spec : specs)
+                futures.add(future(spec, locale, executor));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Returns load statistics for the models that have finished loading.
+     * @return the statistics of each loaded model
+     */
+    public static List<ModelStats> getStats() {
+        List<ModelStats> stats = new ArrayList<>();
+        for (CompletableFuture<Loaded> future : registry.values())
+            if (future.isDone() && !future.isCompletedExceptionally())
+                stats.add(future.join().stats);
+        return stats;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Registry
+    ///////////////////////////////////////////////////////////////////////////
+    @AllArgsConstructor
+    private static class Loaded {
+        private final Object     model;
+        private final ModelStats stats;
+    }
+
+    private static String modelName(ModelSpec<?> spec, Locale locale) {
+        return locale.getLanguage() + spec.getModelSuffix();
+    }
+
+    // Returns the registry's future for the model, starting a load on the executor if there isn't one.  A failed
+    // load is removed from the registry so that it may be retried.
+    private static CompletableFuture<Loaded> future(ModelSpec<?> spec, Locale locale, Executor executor) {
+        String name = modelName(spec, locale);
+        CompletableFuture<Loaded> future = registry.get(name);
+        if (future != null)
+            return future;
+
+        CompletableFuture<Loaded> created = new CompletableFuture<>();
+        future = registry.putIfAbsent(name, created);
+        if (future != null)
+            return future;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(load(spec, locale, name));
+                } catch (Throwable t) {
+                    fail(name, created, t);
+                }
+            });
+        } catch (RuntimeException e) {
+            fail(name, created, e);
+        }
+        return created;
+    }
+
+    // Forgets a load that could not finish, whether it threw or was never run, so that waiters see the failure and
+    // the next request tries again.
+    private static void fail(String name, CompletableFuture<Loaded> created, Throwable t) {
+        registry.remove(name, created);
+        created.completeExceptionally(t);
+    }
+
+    private static Loaded load(ModelSpec<?> spec, Locale locale, String name) {
+        long start = System.nanoTime();
+        try (CountingInputStream in = new CountingInputStream(getModel(spec.getRequester(), locale, spec.getModelSuffix()))) {
+            Object model = spec.getReader().read(in);
+            return new Loaded(model, new ModelStats(name, System.nanoTime() - start, in.getCount()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -4,32 +4,90 @@
 
 package org.bierner.matchbook.analyzer.opennlp;
 
-import java.util.ArrayList;
 import java.util.List;
 import lombok.experimental.ExtensionMethod;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
 import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.CachingStemmer;
+import org.bierner.matchbook.analyzer.IdAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
+import org.bierner.matchbook.analyzer.Stemmer;
+import org.bierner.matchbook.analyzer.Vocabulary;
 import org.bierner.matchbook.analyzer.util.SentenceUtilities;
-import org.bierner.matchbook.analyzer.UnitAnnotations;
 
 /**
- * A wrapper around OpenNLP's Porter stemmer implementation.
+ * A wrapper around OpenNLP's Porter stemmer implementation.  Stems are memoized in a {@link CachingStemmer}.  By default,
+ * the cache is shared by all instances of this class, but a private cache of a different size may be requested.
  * @author gann
  */
 @ExtensionMethod(SentenceUtilities.class)
-public class PorterStemmer implements SentenceAnnotator {
+public class PorterStemmer implements SentenceAnnotator, Stemmer {
     static {
         AnnotationType.registerAnnotator(PorterStemmer.class, AnnotationType.STEM);
     }
-    
+
+    /**
+     * The maximum number of tokens held by the shared cache.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 100000;
+
+    private static final CachingStemmer SHARED_CACHE = new CachingStemmer(new UncachedPorterStemmer(), DEFAULT_CACHE_SIZE);
+
+    private final Stemmer stemmer;
+
+    /**
+     * Constructs a stemmer using the shared cache.
+     */
+    public PorterStemmer() {
+        this.stemmer = SHARED_CACHE;
+    }
+
+    /**
+     * Constructs a stemmer with its own cache.
+     * @param cacheSize the maximum number of tokens to cache or 0 for no caching
+     */
+    public PorterStemmer(long cacheSize) {
+        this.stemmer = cacheSize > 0? new CachingStemmer(new UncachedPorterStemmer(), cacheSize) : new UncachedPorterStemmer();
+    }
+
+    /**
+     * Returns the cache used by this stemmer.
+     * @return the cache or null if this stemmer does not cache
+     */
+    public CachingStemmer getCache() {
+        return stemmer instanceof CachingStemmer? (CachingStemmer) stemmer : null;
+    }
+
+    /**
+     * Returns the cache shared by instances of this class constructed without a cache size.
+     * @return the shared cache
+     */
+    public static CachingStemmer getSharedCache() {
+        return SHARED_CACHE;
+    }
+
+    @Override
+    public String stem(String token) {
+        return stemmer.stem(token);
+    }
+
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        opennlp.tools.stemmer.PorterStemmer stemmer = new opennlp.tools.stemmer.PorterStemmer();
         List<String> tokens = sentence.getTokens();
-        List<String> stems = new ArrayList<>(tokens.size()); 
-        for (String token: tokens)
-            stems.add(stemmer.stem(token).toLowerCase());  // Sorry, in my opinion, stems should be downcased
-        sentence.setAnnotations(AnnotationType.STEM, new UnitAnnotations<>(stems));
+        int[] stems = new int[tokens.size()];
+        for (int i = 0; i < stems.length; i++)
+            stems[i] = Vocabulary.getGlobal().intern(stemmer.stem(tokens.get(i)));
+        sentence.setAnnotations(AnnotationType.STEM, new IdAnnotations(stems, Vocabulary.getGlobal()));
+    }
+
+    // The underlying OpenNLP stemmer.  It isn't thread-safe, so keep one per thread.
+    private static class UncachedPorterStemmer implements Stemmer {
+        private final ThreadLocal<opennlp.tools.stemmer.PorterStemmer> stemmer =
+                ThreadLocal.withInitial(opennlp.tools.stemmer.PorterStemmer::new);
+
+        @Override
+        public String stem(String token) {
+            return stemmer.get().stem(token).toLowerCase();  // Sorry, in my opinion, stems should be downcased
+        }
     }
 }
@@ -9,16 +9,24 @@ import lombok.AllArgsConstructor;
 import lombok.Delegate;
 import opennlp.tools.util.Span;
 import org.bierner.matchbook.analyzer.Annotation;
-import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.InternedAnnotations;
+import org.bierner.matchbook.analyzer.Vocabulary;
 
 /**
- * An adapter from OpenNLP's Span array to Annotations.
+ * An adapter from OpenNLP's Span array to Annotations.  Span types are interned in the global {@link Vocabulary}.
  * 
  * @author gann
  */
-@AllArgsConstructor
-public class SpanAnnotations implements Annotations<String> {
-    private Span[] span;
+public class SpanAnnotations implements InternedAnnotations<String> {
+    private final Span[] span;
+    private final int[]  types;
+
+    public SpanAnnotations(Span[] span) {
+        this.span  = span;
+        this.types = new int[span.length];
+        for (int i = 0; i < span.length; i++)
+            types[i] = span[i].getType() == null? Vocabulary.UNKNOWN : getVocabulary().intern(span[i].getType());
+    }
 
     @AllArgsConstructor
     private class SpanAnnotation implements Annotation<String> {
@@ -37,6 +45,31 @@ public class SpanAnnotations implements Annotations<String> {
         return new SpanAnnotation(span[i]);
     }
 
+    @Override
+    public int getStart(int i) {
+        return span[i].getStart();
+    }
+
+    @Override
+    public int getEnd(int i) {
+        return span[i].getEnd();
+    }
+
+    @Override
+    public String getId(int i) {
+        return span[i].getType();
+    }
+
+    @Override
+    public Vocabulary getVocabulary() {
+        return Vocabulary.getGlobal();
+    }
+
+    @Override
+    public int getLocalIdCode(int i) {
+        return types[i];
+    }
+
     @Override
     public Iterator<Annotation<String>> iterator() {
         return new Iterator<Annotation<String>>() {
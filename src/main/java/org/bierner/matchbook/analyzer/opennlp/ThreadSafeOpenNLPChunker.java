@@ -29,10 +29,15 @@ public class ThreadSafeOpenNLPChunker implements SentenceAnnotator {
         AnnotationType.registerAnnotator(ThreadSafeOpenNLPChunker.class, AnnotationType.CHUNK);
     }
     
+    /**
+     * Describes the chunker model so that it can be {@link OpenNLPModels#preload preloaded}.
+     */
+    public static final OpenNLPModels.ModelSpec<ChunkerModel> MODEL = new OpenNLPModels.ModelSpec<>(ThreadSafeOpenNLPChunker.class, "-chunker.bin", ChunkerModel::new);
+
     private ChunkerModel model;
 
     public ThreadSafeOpenNLPChunker(Locale locale) throws IOException {
-        model = new ChunkerModel(OpenNLPModels.getModel(ThreadSafeOpenNLPChunker.class, locale, "-chunker.bin"));
+        model = OpenNLPModels.getModel(MODEL, locale);
     }
     
     Span[] chunk(List<String> tokens, List<String> pos) {
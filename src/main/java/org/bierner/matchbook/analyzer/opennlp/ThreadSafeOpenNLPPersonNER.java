@@ -19,10 +19,15 @@ public class ThreadSafeOpenNLPPersonNER implements SentenceAnnotator {
         AnnotationType.registerAnnotator(ThreadSafeOpenNLPPersonNER.class, AnnotationType.ENTITY);
     }
 
+    /**
+     * Describes the person name finder model so that it can be {@link OpenNLPModels#preload preloaded}.
+     */
+    public static final OpenNLPModels.ModelSpec<TokenNameFinderModel> MODEL = new OpenNLPModels.ModelSpec<>(ThreadSafeOpenNLPPersonNER.class, "-ner-person.bin", TokenNameFinderModel::new);
+
     private TokenNameFinderModel model;
 
     public ThreadSafeOpenNLPPersonNER(Locale locale) throws IOException {
-        model = new TokenNameFinderModel(OpenNLPModels.getModel(ThreadSafeOpenNLPChunker.class, locale, "-ner-person.bin"));
+        model = OpenNLPModels.getModel(MODEL, locale);
     }
 
     Span[] findNames(List<String> tokens) {
@@ -13,9 +13,9 @@ import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
 import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.IdAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
 import org.bierner.matchbook.analyzer.util.SentenceUtilities;
-import org.bierner.matchbook.analyzer.UnitAnnotations;
 
 /**
  * A thread-safe adapter of the OpenNLP part of speech tagger.  This creates a new POSTaggerME
@@ -29,10 +29,15 @@ public class ThreadSafeOpenNLPPosTagger implements SentenceAnnotator {
         AnnotationType.registerAnnotator(ThreadSafeOpenNLPPosTagger.class, AnnotationType.POS);
     }
     
+    /**
+     * Describes the part of speech model so that it can be {@link OpenNLPModels#preload preloaded}.
+     */
+    public static final OpenNLPModels.ModelSpec<POSModel> MODEL = new OpenNLPModels.ModelSpec<>(ThreadSafeOpenNLPPosTagger.class, "-pos-maxent.bin", POSModel::new);
+
     private POSModel model;
 
     public ThreadSafeOpenNLPPosTagger(Locale locale) throws IOException {
-        model = new POSModel(OpenNLPModels.getModel(ThreadSafeOpenNLPPosTagger.class, locale, "-pos-maxent.bin"));
+        model = OpenNLPModels.getModel(MODEL, locale);
     }
     
     List<String> tag(List<String> tokens) {
@@ -41,6 +46,6 @@ public class ThreadSafeOpenNLPPosTagger implements SentenceAnnotator {
     
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        sentence.setAnnotations(AnnotationType.POS, new UnitAnnotations<>(tag(sentence.getTokens())));
+        sentence.setAnnotations(AnnotationType.POS, new IdAnnotations(tag(sentence.getTokens())));
     }
 }
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Locale;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.util.Span;
 import org.bierner.matchbook.analyzer.SentenceDetector;
 
 /**
@@ -19,15 +20,31 @@ import org.bierner.matchbook.analyzer.SentenceDetector;
  * @author gann
  */
 public class ThreadSafeOpenNLPSentenceDetector implements SentenceDetector {
+    /**
+     * Describes the sentence model so that it can be {@link OpenNLPModels#preload preloaded}.
+     */
+    public static final OpenNLPModels.ModelSpec<SentenceModel> MODEL = new OpenNLPModels.ModelSpec<>(ThreadSafeOpenNLPSentenceDetector.class, "-sent.bin", SentenceModel::new);
+
     private SentenceModel model;
 
     public ThreadSafeOpenNLPSentenceDetector(Locale locale) throws IOException {
-        model = new SentenceModel(OpenNLPModels.getModel(ThreadSafeOpenNLPSentenceDetector.class, locale, "-sent.bin"));
+        model = OpenNLPModels.getModel(MODEL, locale);
     }
 
     @Override
     public List<String> getSentences(String text) {
         return Lists.newArrayList(new SentenceDetectorME(model).sentDetect(text));
     }
+
+    @Override
+    public int[] getSentenceSpans(CharSequence text) {
+        Span[] spans = new SentenceDetectorME(model).sentPosDetect(text.toString());
+        int[] result = new int[spans.length * 2];
+        for (int i = 0; i < spans.length; i++) {
+            result[i * 2]     = spans[i].getStart();
+            result[i * 2 + 1] = spans[i].getEnd();
+        }
+        return result;
+    }
     
 }
@@ -12,9 +12,9 @@ import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 import org.bierner.matchbook.analyzer.AnnotatableSentence;
 import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.IdAnnotations;
 import org.bierner.matchbook.analyzer.SentenceAnnotator;
 import org.bierner.matchbook.analyzer.Tokenizer;
-import org.bierner.matchbook.analyzer.UnitAnnotations;
 
 /**
  * A thread-safe adapter of the OpenNLP Tokenizer.  This creates a new TokenizerME
@@ -27,10 +27,15 @@ public class ThreadSafeOpenNLPTokenizer implements SentenceAnnotator, Tokenizer
         AnnotationType.registerAnnotator(ThreadSafeOpenNLPTokenizer.class, AnnotationType.TOKEN);
     }
     
+    /**
+     * Describes the tokenizer model so that it can be {@link OpenNLPModels#preload preloaded}.
+     */
+    public static final OpenNLPModels.ModelSpec<TokenizerModel> MODEL = new OpenNLPModels.ModelSpec<>(ThreadSafeOpenNLPTokenizer.class, "-token.bin", TokenizerModel::new);
+
     private TokenizerModel model;
     
     public ThreadSafeOpenNLPTokenizer(Locale locale) throws IOException {
-        model = new TokenizerModel(OpenNLPModels.getModel(ThreadSafeOpenNLPSentenceDetector.class, locale, "-token.bin"));
+        model = OpenNLPModels.getModel(MODEL, locale);
     }
     
     @Override
@@ -41,6 +46,6 @@ public class ThreadSafeOpenNLPTokenizer implements SentenceAnnotator, Tokenizer
     
     @Override
     public void annotate(AnnotatableSentence sentence) {
-        sentence.setAnnotations(AnnotationType.TOKEN, new UnitAnnotations<>(tokenize(sentence.getText())));
+        sentence.setAnnotations(AnnotationType.TOKEN, new IdAnnotations(tokenize(sentence.getText())));
     }
 }
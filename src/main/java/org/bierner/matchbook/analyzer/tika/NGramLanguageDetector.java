@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.tika;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import org.bierner.matchbook.analyzer.LanguageDetector;
+
+/**
+ * A fast language detector using the same character trigram profiles as Tika's LanguageIdentifier.  The profiles are
+ * loaded once into primitive arrays, only the first {@link #getSampleSize() sampleSize} characters of a text are
+ * examined and the results for recently seen texts are cached.  Detection can be skipped entirely by passing a hint
+ * to {@link #getLanguage(java.lang.String, java.util.Locale)}.
+ * <p/>
+ * Like Tika, the detected language is the one whose profile is closest to the text's trigram frequencies in Euclidean
+ * distance.  The Tika jar must be on the classpath to provide the profiles.
+ *
+ * @author gann
+ */
+public class NGramLanguageDetector implements LanguageDetector {
+    private static final String PROFILE_PATH     = "org/apache/tika/language/";
+    private static final int    DEFAULT_SAMPLE   = 1000;
+    private static final int    DEFAULT_CACHE    = 1024;
+
+    private static volatile Profiles defaultProfiles;
+
+    private final Profiles               profiles;
+    private final int                    sampleSize;
+    private final Cache<String, Locale>  cache;
+
+    /**
+     * Constructs a detector for all the languages Tika has profiles for, examining the first 1000 characters of a text.
+     */
+    public NGramLanguageDetector() {
+        this(getDefaultProfiles(), DEFAULT_SAMPLE, DEFAULT_CACHE);
+    }
+
+    /**
+     * Constructs a detector for all the languages Tika has profiles for.
+     * @param sampleSize the number of characters at the start of a text to examine
+     * @param cacheSize the number of recent texts whose language is cached, or 0 for no caching
+     */
+    public NGramLanguageDetector(int sampleSize, int cacheSize) {
+        this(getDefaultProfiles(), sampleSize, cacheSize);
+    }
+
+    /**
+     * Constructs a detector for the given languages.
+     * @param languages language codes (eg "en") of the Tika profiles to use
+     * @param sampleSize the number of characters at the start of a text to examine
+     * @param cacheSize the number of recent texts whose language is cached, or 0 for no caching
+     */
+    public NGramLanguageDetector(Collection<String> languages, int sampleSize, int cacheSize) {
+        this(new Profiles(languages), sampleSize, cacheSize);
+    }
+
+    private NGramLanguageDetector(Profiles profiles, int sampleSize, int cacheSize) {
+        if (sampleSize < 3)
+            throw new IllegalArgumentException("Sample size must be at least 3");
+        this.profiles   = profiles;
+        this.sampleSize = sampleSize;
+        this.cache      = cacheSize > 0? CacheBuilder.newBuilder().maximumSize(cacheSize).<String, Locale>build() : null;
+    }
+
+    private static Profiles getDefaultProfiles() {
+        Profiles p = defaultProfiles;
+        if (p == null) {
+            synchronized (NGramLanguageDetector.class) {
+                p = defaultProfiles;
+                if (p == null)
+                    defaultProfiles = p = new Profiles(Profiles.availableLanguages());
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Returns the number of characters at the start of a text that are examined.
+     * @return the sample size
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // LanguageDetector implementation
+    ///////////////////////////////////////////////////////////////////////////
+    @Override
+    public Locale getLanguage(String text) {
+        String sample = text.length() > sampleSize? text.substring(0, sampleSize) : text;
+        if (cache == null)
+            return profiles.detect(sample);
+
+        Locale locale = cache.getIfPresent(sample);
+        if (locale == null) {
+            locale = profiles.detect(sample);
+            cache.put(sample, locale);
+        }
+        return locale;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Profiles
+    ///////////////////////////////////////////////////////////////////////////
+    // The trigram frequencies of a set of languages.  Each trigram has a dense id and the frequency of trigram i in
+    // language l is at frequencies[i * locales.length + l].
+    private static class Profiles {
+        private final Locale[]        locales;
+        private final TLongIntHashMap ids = new TLongIntHashMap(16384, 0.5f, -1L, -1);
+        private final float[]         frequencies;
+        private final float[]         norms;      // The sum of the squared frequencies of each language
+
+        Profiles(Collection<String> languages) {
+            locales = new Locale[languages.size()];
+            List<TLongIntHashMap> counts = new ArrayList<>();
+            List<Long> totals = new ArrayList<>();
+
+            int l = 0;
+            for (String language : languages) {
+                locales[l++] = Locale.forLanguageTag(language);
+                TLongIntHashMap count = new TLongIntHashMap();
+                long total = 0;
+                try (BufferedReader reader = open(language + ".ngp")) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        if (line.startsWith("#") || line.length() < 5 || line.charAt(3) != ' ')
+                            continue;
+                        long trigram = trigram(line.charAt(0), line.charAt(1), line.charAt(2));
+                        int n = Integer.parseInt(line.substring(4).trim());
+                        count.put(trigram, n);
+                        total += n;
+                        if (!ids.containsKey(trigram))
+                            ids.put(trigram, ids.size());
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to load language profile for " + language, e);
+                }
+                counts.add(count);
+                totals.add(total);
+            }
+
+            frequencies = new float[ids.size() * locales.length];
+            norms = new float[locales.length];
+            for (l = 0; l < locales.length; l++) {
+                final int lang = l;
+                final double total = totals.get(l);
+                counts.get(l).forEachEntry((trigram, n) -> {
+                    float f = (float) (n / total);
+                    frequencies[ids.get(trigram) * locales.length + lang] = f;
+                    norms[lang] += f * f;
+                    return true;
+                });
+            }
+        }
+
+        private static BufferedReader open(String resource) throws IOException {
+            InputStream in = NGramLanguageDetector.class.getClassLoader().getResourceAsStream(PROFILE_PATH + resource);
+            if (in == null)
+                throw new IOException("Missing resource " + PROFILE_PATH + resource + ".  Is Tika on the classpath?");
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        static List<String> availableLanguages() {
+            Properties properties = new Properties();
+            try (BufferedReader reader = open("tika.language.properties")) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to load language profiles", e);
+            }
+            return Lists.newArrayList(Splitter.on(',').trimResults().omitEmptyStrings().split(properties.getProperty("languages", "")));
+        }
+
+        private static long trigram(char a, char b, char c) {
+            return ((long) a << 32) | ((long) b << 16) | c;
+        }
+
+        // Finds the language minimizing sum((textFreq - langFreq)^2).  Expanding the square and dropping the
+        // text-only term, which is the same for every language, leaves norm(lang) - 2 * sum(textFreq * langFreq)
+        // where the sum is only over the trigrams in the text.
+        Locale detect(CharSequence text) {
+            TIntIntHashMap counts = new TIntIntHashMap();
+            int total = 0;
+
+            // Like Tika, letters are downcased and runs of anything else become a single '_'
+            char a = '_', b = '_';
+            for (int i = 0, length = text.length(); i <= length; i++) {
+                char c = i < length? text.charAt(i) : '_';
+                c = Character.isLetter(c)? Character.toLowerCase(c) : '_';
+                if (c == '_' && b == '_')
+                    continue;
+                if (a != '_' || b != '_') {
+                    int id = ids.get(trigram(a, b, c));
+                    if (id >= 0)
+                        counts.adjustOrPutValue(id, 1, 1);
+                    total++;
+                }
+                a = b;
+                b = c;
+            }
+
+            if (counts.isEmpty())
+                return locales[0];
+
+            double[] scores = new double[locales.length];
+            final double t = total;
+            counts.forEachEntry((id, n) -> {
+                double f = n / t;
+                int base = id * locales.length;
+                for (int l = 0; l < scores.length; l++)
+                    scores[l] += f * frequencies[base + l];
+                return true;
+            });
+
+            int best = 0;
+            double bestScore = Double.MAX_VALUE;
+            for (int l = 0; l < locales.length; l++) {
+                double score = norms[l] - 2 * scores[l];
+                if (score < bestScore) {
+                    bestScore = score;
+                    best = l;
+                }
+            }
+            return locales[best];
+        }
+    }
+}
@@ -9,11 +9,11 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Locale;
 import lombok.experimental.ExtensionMethod;
-import org.bierner.matchbook.analyzer.Annotation;
-import org.bierner.matchbook.analyzer.Annotation.UnitAnnotation;
 import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Annotations;
 import org.bierner.matchbook.analyzer.Sentence;
 import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.UnitAnnotations;
 import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
 import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
 import org.bierner.matchbook.analyzer.opennlp.ThreadSafeOpenNLPChunker;
@@ -60,15 +60,16 @@ public class BasicSentenceAnnotationPrinter implements SentencePrinter {
         // Calculate how much spacing we need to add between tokens to accommodate the other annotations
         for (AnnotationType<?> type : types) {
             maxTypeLen = Math.max(maxTypeLen, type.getName().length());
-            for (Annotation<?> annotation : sentence.getAnnotations(type)) {
-                int width = width(spacing, annotation.getStart(), annotation.getEnd());
-                int size  = annotation.getId().length() + 1;
+            Annotations<?> annotations = sentence.getAnnotations(type);
+            for (int i = 0; i < annotations.size(); i++) {
+                int width = width(spacing, annotations.getStart(i), annotations.getEnd(i));
+                int size  = annotations.getId(i).length() + 1;
 
-                if (! (annotation instanceof UnitAnnotation))
+                if (! (annotations instanceof UnitAnnotations))
                     size += 1; // use two brackets instead of one space
 
                 if (size > width)
-                    spacing[annotation.getEnd() - 1] += size - width;
+                    spacing[annotations.getEnd(i) - 1] += size - width;
             }
         }
 
@@ -80,25 +81,30 @@ public class BasicSentenceAnnotationPrinter implements SentencePrinter {
 
         // Print out annotations
         for (AnnotationType<?> type : types) {
-            if (sentence.getAnnotations(type).size() > 0) {
+            Annotations<?> annotations = sentence.getAnnotations(type);
+            if (annotations.size() > 0) {
                 out.print(Strings.padEnd(type.getName() + ":", maxTypeLen + 2, ' '));
                 int pos = 0;
-                for (Annotation<?> annotation : sentence.getAnnotations(type)) {
-                    if (annotation.getStart() > pos)
-                        out.print(spaces(width(spacing, pos, annotation.getStart())));
+                for (int i = 0; i < annotations.size(); i++) {
+                    int start = annotations.getStart(i);
+                    int end   = annotations.getEnd(i);
+                    String id = annotations.getId(i);
 
-                    int width = width(spacing, annotation.getStart(), annotation.getEnd());
-                    if (annotation instanceof UnitAnnotation)
-                        out.print(Strings.padEnd(annotation.getId(), width, ' '));
+                    if (start > pos)
+                        out.print(spaces(width(spacing, pos, start)));
+
+                    int width = width(spacing, start, end);
+                    if (annotations instanceof UnitAnnotations)
+                        out.print(Strings.padEnd(id, width, ' '));
                     else {
-                        int idLen   = annotation.getId().length();
+                        int idLen   = id.length();
                         int padding = (width - 2) - idLen;
-                        String str = Strings.padStart(annotation.getId(), idLen + padding/2, '-');
+                        String str = Strings.padStart(id, idLen + padding/2, '-');
                         str = Strings.padEnd(str, width - 2, '-');
                         out.print("[" + str + "]");
                     }
 
-                    pos = annotation.getEnd();
+                    pos = end;
                 }
 
                 out.println();
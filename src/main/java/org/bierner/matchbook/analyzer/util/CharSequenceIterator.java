@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.analyzer.util;
+
+import java.text.CharacterIterator;
+import lombok.NonNull;
+
+/**
+ * A {@link CharacterIterator} over any {@link CharSequence}.  This allows Java's BreakIterator to be used on buffers
+ * (eg a CharBuffer) without first copying them into a String.
+ *
+ * @author gann
+ */
+public class CharSequenceIterator implements CharacterIterator {
+    private final CharSequence text;
+    private int pos = 0;
+
+    public CharSequenceIterator(@NonNull CharSequence text) {
+        this.text = text;
+    }
+
+    @Override
+    public char first() {
+        pos = 0;
+        return current();
+    }
+
+    @Override
+    public char last() {
+        pos = text.length() == 0? 0 : text.length() - 1;
+        return current();
+    }
+
+    @Override
+    public char current() {
+        return pos < text.length()? text.charAt(pos) : DONE;
+    }
+
+    @Override
+    public char next() {
+        if (pos < text.length())
+            pos++;
+        return current();
+    }
+
+    @Override
+    public char previous() {
+        if (pos == 0)
+            return DONE;
+        pos--;
+        return current();
+    }
+
+    @Override
+    public char setIndex(int position) {
+        if (position < 0 || position > text.length())
+            throw new IllegalArgumentException("Invalid index: " + position);
+        pos = position;
+        return current();
+    }
+
+    @Override public int getBeginIndex() { return 0; }
+    @Override public int getEndIndex()   { return text.length(); }
+    @Override public int getIndex()      { return pos; }
+
+    @Override
+    public Object clone() {
+        CharSequenceIterator clone = new CharSequenceIterator(text);
+        clone.pos = pos;
+        return clone;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import org.bierner.matchbook.analyzer.Annotation;
 import org.bierner.matchbook.analyzer.AnnotationType;
 import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.OffsetSentence;
 import org.bierner.matchbook.analyzer.Sentence;
 import org.bierner.matchbook.analyzer.UnitAnnotations;
 import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher.Match;
@@ -72,7 +73,16 @@ public class SentenceUtilities {
      * @return a List of value of type T
      */
     public static <T> List<T> getAnnotationValues(Sentence sentence, AnnotationType<T> type) {
-        Annotations<T> annotations = sentence.getAnnotations(type);
+        return getValues(sentence.getAnnotations(type));
+    }
+
+    /**
+     * Gets the values of the given annotations
+     * @param <T> The value type of the annotation
+     * @param annotations
+     * @return a List of value of type T
+     */
+    public static <T> List<T> getValues(Annotations<T> annotations) {
         if (annotations instanceof UnitAnnotations)
             return ((UnitAnnotations<T>) annotations).getValueList();
         else {
@@ -84,14 +94,40 @@ public class SentenceUtilities {
     }
 
     /**
-     * Returns a portion of a sentence based on token positions
+     * Finds the character offsets of the given tokens in the text they were taken from.  Tokens are expected to appear
+     * in the text in order, possibly separated by other characters such as whitespace.
+     * @param text the original text
+     * @param tokens the tokens of the text
+     * @return the start and end offsets of each token, interleaved, or null if some token does not appear verbatim in the text
+     */
+    public static int[] alignTokens(String text, List<String> tokens) {
+        int[] offsets = new int[tokens.size() * 2];
+        int pos = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            int start = text.indexOf(token, pos);
+            if (start < 0)
+                return null;
+            pos = start + token.length();
+            offsets[i * 2]     = start;
+            offsets[i * 2 + 1] = pos;
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns a portion of a sentence based on token positions.  If the sentence knows the offsets of its tokens, the result
+     * is a slice of the original text.  Otherwise it is rebuilt from the tokens.
      * @param sentence
      * @param start
      * @param end
      * @return A string representing the sub sentence
      */
     public static String subSentence(Sentence sentence, int start, int end) {
-        if (sentence.hasAnnotation(AnnotationType.SPACE)) {
+        if (sentence instanceof OffsetSentence && ((OffsetSentence) sentence).hasTokenOffsets()) {
+            OffsetSentence os = (OffsetSentence) sentence;
+            return start >= end? "" : sentence.getText().substring(os.getTokenStart(start), os.getTokenEnd(end - 1));
+        } else if (sentence.hasAnnotation(AnnotationType.SPACE)) {
             StringBuilder sb = new StringBuilder();
             List<Boolean> spaces = getAnnotationValues(sentence, AnnotationType.SPACE);
             List<String> tokens = getAnnotationValues(sentence, AnnotationType.TOKEN);
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.corpus;
+
+import gnu.trove.list.array.TIntArrayList;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.Getter;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.ByteBufferSentence;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.SentenceCodec;
+
+/**
+ * An append-only store of analyzed sentences on local disk.  Sentences are written in the {@link SentenceCodec} format
+ * and read back as {@link ByteBufferSentence}s that are views of memory-mapped files, so a corpus can be far larger than
+ * the heap and rematched without being reanalyzed.
+ * <p/>
+ * The store is a directory of segments.  Each segment is a data file of sentence records and an offset table holding the
+ * end of each record, so any sentence may be read directly by its id.  Sentence ids are assigned in the order that
+ * sentences are {@link #add(org.bierner.matchbook.analyzer.Sentence) added}, starting at 0.  Added sentences become
+ * visible to readers when they are {@link #commit() committed}.  Since the offset table is only written once the data
+ * it refers to is on disk, a crash loses at most the uncommitted sentences.  When a segment reaches its maximum size, it
+ * is committed and a new one is started.  Opening an existing store appends to a new segment.
+ * <p/>
+ * Reads are lock free and may happen concurrently with writes.  Writes are serialized.
+ *
+ * @author gann
+ */
+public class CorpusStore implements Closeable, Iterable<Sentence> {
+    /**
+     * The default maximum size of a segment's data file, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private static final String DATA_SUFFIX    = ".sentences";
+    private static final String OFFSETS_SUFFIX = ".ends";
+
+    @Getter private final Path          directory;
+    @Getter private final SentenceCodec codec;
+    @Getter private final Analyzer      analyzer;
+    private final int                   maxSegmentSize;
+
+    // The committed segments, replaced as a whole on each commit
+    private volatile Segment[] segments;
+
+    // The segment being written
+    private int                 writeNumber;
+    private FileChannel         dataChannel;
+    private FileChannel         offsetsChannel;
+    private OutputStream        data;
+    private int                 dataSize;
+    private final TIntArrayList pending = new TIntArrayList();
+    private boolean             closed  = false;
+
+    private CorpusStore(Path directory, SentenceCodec codec, Analyzer analyzer, int maxSegmentSize) throws IOException {
+        this.directory      = directory;
+        this.codec          = codec;
+        this.analyzer       = analyzer;
+        this.maxSegmentSize = maxSegmentSize;
+
+        Files.createDirectories(directory);
+        List<Segment> existing = new ArrayList<>();
+        long base = 0;
+        for (int number : segmentNumbers(directory)) {
+            Segment segment = map(number, base);
+            existing.add(segment);
+            base += segment.size();
+        }
+        segments = existing.toArray(new Segment[existing.size()]);
+        writeNumber = existing.isEmpty()? 0 : existing.get(existing.size() - 1).number + 1;
+    }
+
+    /**
+     * Opens a store, creating it if necessary.
+     * @param directory the directory holding the store's segments
+     * @param codec the codec used to write sentences and read them back
+     * @param analyzer the analyzer used for annotation layers that were not stored
+     * @return an open store
+     * @throws IOException if an existing store cannot be read
+     */
+    public static CorpusStore open(@NonNull Path directory, @NonNull SentenceCodec codec, @NonNull Analyzer analyzer) throws IOException {
+        return open(directory, codec, analyzer, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a store, creating it if necessary.
+     * @param directory the directory holding the store's segments
+     * @param codec the codec used to write sentences and read them back
+     * @param analyzer the analyzer used for annotation layers that were not stored
+     * @param maxSegmentSize the size in bytes after which a new segment is started
+     * @return an open store
+     * @throws IOException if an existing store cannot be read
+     */
+    public static CorpusStore open(@NonNull Path directory, @NonNull SentenceCodec codec, @NonNull Analyzer analyzer, int maxSegmentSize) throws IOException {
+        if (maxSegmentSize <= 0)
+            throw new IllegalArgumentException("Segment size must be positive");
+        return new CorpusStore(directory, codec, analyzer, maxSegmentSize);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Writing
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Appends a sentence to the store, encoding it with the store's codec.  The sentence is not visible to readers
+     * until the next {@link #commit()}.
+     * @param sentence the sentence to add
+     * @return the id of the sentence
+     * @throws IOException if the sentence cannot be written
+     */
+    public synchronized long add(Sentence sentence) throws IOException {
+        if (closed)
+            throw new IllegalStateException("Store is closed");
+
+        byte[] record = codec.encode(sentence);
+        if (data != null && (long) dataSize + record.length > maxSegmentSize)
+            commit(true);
+        if (data == null)
+            startSegment();
+        if ((long) dataSize + record.length > Integer.MAX_VALUE)
+            throw new IOException("Sentence too large to store: " + record.length + " bytes");
+
+        data.write(record);
+        dataSize += record.length;
+        pending.add(dataSize);
+        return committedSize() + pending.size() - 1;
+    }
+
+    /**
+     * Makes all added sentences visible to readers, forcing them to disk first.
+     * @throws IOException if the sentences cannot be written
+     */
+    public synchronized void commit() throws IOException {
+        commit(false);
+    }
+
+    private void commit(boolean seal) throws IOException {
+        if (data == null)
+            return;
+
+        data.flush();
+        dataChannel.force(false);
+
+        ByteBuffer ends = ByteBuffer.allocate(pending.size() * 4);
+        ends.asIntBuffer().put(pending.toArray());
+        while (ends.hasRemaining())
+            offsetsChannel.write(ends);
+        offsetsChannel.force(false);
+        pending.clear();
+
+        // Replace the writing segment's old mapping, if it had one, with one that covers the new sentences
+        Segment[] current = segments;
+        boolean replace = current.length > 0 && current[current.length - 1].number == writeNumber;
+        long base = replace? current[current.length - 1].baseId : committedSize();
+        Segment[] updated = Arrays.copyOf(current, replace? current.length : current.length + 1);
+        updated[updated.length - 1] = map(writeNumber, base);
+        segments = updated;
+
+        if (seal) {
+            closeSegment();
+            writeNumber++;
+        }
+    }
+
+    private void startSegment() throws IOException {
+        dataChannel    = FileChannel.open(dataPath(writeNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        offsetsChannel = FileChannel.open(offsetsPath(writeNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        data           = new BufferedOutputStream(Channels.newOutputStream(dataChannel), 1 << 16);
+        dataSize       = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        data.close();
+        offsetsChannel.close();
+        data = null;
+        dataChannel = offsetsChannel = null;
+    }
+
+    /**
+     * Commits any added sentences and closes the store for writing.  Sentences read from the store remain readable.
+     * @throws IOException if the sentences cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        commit(false);
+        if (data != null)
+            closeSegment();
+        closed = true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the number of committed sentences.
+     * @return the number of sentences visible to readers
+     */
+    public long size() {
+        return committedSize();
+    }
+
+    private long committedSize() {
+        Segment[] s = segments;
+        return s.length == 0? 0 : s[s.length - 1].baseId + s[s.length - 1].size();
+    }
+
+    /**
+     * Returns the committed segments, in order.  Segments are immutable snapshots, so they can be read in parallel.
+     * @return the segments
+     */
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(Arrays.asList(segments));
+    }
+
+    /**
+     * Returns a committed sentence.
+     * @param id the sentence id
+     * @return a view of the stored sentence
+     * @throws IndexOutOfBoundsException if there is no committed sentence with the given id
+     */
+    public ByteBufferSentence get(long id) {
+        Segment[] s = segments;
+        int lo = 0, hi = s.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (id < s[mid].baseId)
+                hi = mid - 1;
+            else if (id >= s[mid].baseId + s[mid].size())
+                lo = mid + 1;
+            else
+                return s[mid].get((int) (id - s[mid].baseId));
+        }
+        throw new IndexOutOfBoundsException("No sentence " + id);
+    }
+
+    /**
+     * Returns the committed sentences in order.
+     * @return a sequential stream of sentences
+     */
+    public Stream<Sentence> sentences() {
+        return Arrays.stream(segments).flatMap(Segment::sentences);
+    }
+
+    @Override
+    public Iterator<Sentence> iterator() {
+        return sentences().iterator();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Segments
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * A snapshot of a range of consecutive sentences in the store backed by a pair of memory-mapped files.
+     */
+    public class Segment {
+        private final int        number;
+        @Getter private final long baseId;
+        private final ByteBuffer data;
+        private final IntBuffer  ends;
+
+        private Segment(int number, long baseId, ByteBuffer data, IntBuffer ends) {
+            this.number = number;
+            this.baseId = baseId;
+            this.data   = data;
+            this.ends   = ends;
+        }
+
+        /**
+         * Returns the number of sentences in the segment.
+         * @return the number of sentences
+         */
+        public int size() {
+            return ends.limit();
+        }
+
+        /**
+         * Returns a sentence in this segment.
+         * @param i the position of the sentence in this segment, which is its id minus the {@link #getBaseId() base id}
+         * @return a view of the stored sentence
+         */
+        public ByteBufferSentence get(int i) {
+            ByteBuffer record = data.duplicate();
+            record.limit(ends.get(i)).position(i == 0? 0 : ends.get(i - 1));
+            return codec.decode(record, analyzer);
+        }
+
+        /**
+         * Returns the sentences in this segment in order.
+         * @return a sequential stream of sentences
+         */
+        public Stream<Sentence> sentences() {
+            return IntStream.range(0, size()).mapToObj(this::get);
+        }
+    }
+
+    private Segment map(int number, long baseId) throws IOException {
+        IntBuffer ends;
+        try (FileChannel channel = FileChannel.open(offsetsPath(number), StandardOpenOption.READ)) {
+            long count = channel.size() / 4;
+            ends = channel.map(FileChannel.MapMode.READ_ONLY, 0, count * 4).asIntBuffer();
+        }
+
+        // Any data after the last committed sentence was never committed and is ignored
+        int size = ends.limit() == 0? 0 : ends.get(ends.limit() - 1);
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(dataPath(number), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return new Segment(number, baseId, data, ends);
+    }
+
+    private Path dataPath(int number) {
+        return directory.resolve(String.format("%08d%s", number, DATA_SUFFIX));
+    }
+
+    private Path offsetsPath(int number) {
+        return directory.resolve(String.format("%08d%s", number, OFFSETS_SUFFIX));
+    }
+
+    private static List<Integer> segmentNumbers(Path directory) throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + OFFSETS_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Integer.parseInt(name.substring(0, name.length() - OFFSETS_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected file in corpus store: " + file, e);
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
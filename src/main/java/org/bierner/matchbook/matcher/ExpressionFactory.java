@@ -4,6 +4,7 @@
 package org.bierner.matchbook.matcher;
 
 import com.google.common.base.Function;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +14,7 @@ import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.Annotation;
 import org.bierner.matchbook.parser.ExpressionListener;
 import org.bierner.matchbook.parser.MatchbookLexer;
 import org.bierner.matchbook.parser.MatchbookParser;
@@ -56,6 +58,33 @@ public abstract class ExpressionFactory<T> {
     public abstract T annotation(String type, String value);
     public abstract T regexp(String regexp);
 
+    /**
+     * Returns an expression matching tokens within an edit distance of a token.  By default, only exact matching is
+     * supported, as a token annotation, and factories that can match approximately override this.
+     * @param token the token
+     * @param distance the maximum number of edits
+     * @return an expression of type T
+     * @throws UnsupportedOperationException if the distance isn't 0 and the factory doesn't support approximate matching
+     */
+    public T fuzzy(String token, int distance) {
+        if (distance != 0)
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support approximate matching");
+        return annotation(Annotation.TOKEN, token);
+    }
+
+    /**
+     * Returns an expression matching mentions of a concept or of any of its descendants.  By default, this is the
+     * concept or an ancestor annotation with the concept's id.
+     * @param concept the concept id
+     * @return an expression of type T
+     */
+    public T concept(String concept) {
+        List<T> children = new ArrayList<>();
+        children.add(annotation(Annotation.CONCEPT, concept));
+        children.add(annotation(Annotation.ANCESTOR_CONCEPT, concept));
+        return or(children);
+    }
+
     // Compound Expressions
     public abstract T or      (List<T> children);
     public abstract T is      (List<T> children);
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A deterministic automaton accepting the strings within an edit distance of a word, where an edit is inserting,
+ * deleting or substituting a character or transposing two adjacent ones.  Each state stands for a row of the usual
+ * dynamic programming table, with distances beyond the maximum all counted as one more than it, and the automaton is
+ * built completely up front.  Characters that aren't in the word all behave the same, so the transitions are a dense
+ * table over the word's distinct characters plus one class for every other character.
+ * <p/>
+ * Checking a string is then a table lookup per character, and since a state is known to be dead as soon as no prefix
+ * of the word is within the distance, walking the automaton down a trie of strings skips whole subtrees.  An automaton
+ * is immutable and thread-safe.
+ *
+ * @author gann
+ */
+public final class LevenshteinAutomaton {
+    /**
+     * The greatest supported distance.  The number of states grows quickly with the distance, and beyond this nearly
+     * every short string matches anyway.
+     */
+    public static final int MAX_DISTANCE = 2;
+
+    /**
+     * The state reached once no string with the prefix read so far can be accepted.
+     */
+    public static final int DEAD = -1;
+
+    @Getter private final String word;
+    @Getter private final int    distance;
+    private final char[]         alphabet;       // The distinct characters of the word, sorted
+    private final int[]          classes;        // The class of each character of the word
+    private final int[]          transitions;    // State x Character class -> State
+    private final boolean[]      accepting;
+
+    /**
+     * Builds an automaton.
+     * @param word the word to match
+     * @param distance the maximum number of edits, from 0 to {@link #MAX_DISTANCE}
+     */
+    public LevenshteinAutomaton(@NonNull String word, int distance) {
+        if (distance < 0 || distance > MAX_DISTANCE)
+            throw new IllegalArgumentException("Edit distance must be from 0 to " + MAX_DISTANCE + ": " + distance);
+        this.word     = word;
+        this.distance = distance;
+
+        char[] chars = word.toCharArray();
+        Arrays.sort(chars);
+        int k = 0;
+        for (int i = 0; i < chars.length; i++)
+            if (k == 0 || chars[i] != chars[k - 1])
+                chars[k++] = chars[i];
+        this.alphabet = Arrays.copyOf(chars, k);
+        this.classes  = new int[word.length()];
+        for (int i = 0; i < classes.length; i++)
+            classes[i] = Arrays.binarySearch(alphabet, word.charAt(i));
+
+        // Breadth first over the reachable states, numbering them as they are found
+        int n = alphabet.length + 1;
+        Map<State, Integer> ids = new HashMap<>();
+        List<State> states = new ArrayList<>();
+        int[] t = new int[n * 16];
+        State start = initial();
+        ids.put(start, 0);
+        states.add(start);
+        for (int s = 0; s < states.size(); s++) {
+            if (t.length < (s + 1) * n)
+                t = Arrays.copyOf(t, t.length * 2);
+            for (int c = 0; c < n; c++) {
+                State next = states.get(s).step(c);
+                if (next == null)
+                    t[s * n + c] = DEAD;
+                else {
+                    Integer id = ids.get(next);
+                    if (id == null) {
+                        ids.put(next, id = states.size());
+                        states.add(next);
+                    }
+                    t[s * n + c] = id;
+                }
+            }
+        }
+
+        this.transitions = Arrays.copyOf(t, states.size() * n);
+        this.accepting   = new boolean[states.size()];
+        for (int s = 0; s < states.size(); s++)
+            accepting[s] = states.get(s).isAccepting();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Running
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the state before any characters are read.
+     */
+    public int start() {
+        return 0;
+    }
+
+    /**
+     * Reads a character.
+     * @param state the current state, which must not be {@link #DEAD}
+     * @param c the character
+     * @return the next state, or {@link #DEAD}
+     */
+    public int step(int state, char c) {
+        int i = Arrays.binarySearch(alphabet, c);
+        return transitions[state * (alphabet.length + 1) + (i < 0? alphabet.length : i)];
+    }
+
+    /**
+     * Returns true if the characters read to reach a state are within the distance of the word.
+     * @param state a state, which must not be {@link #DEAD}
+     */
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * Returns true if a string is within the distance of the word.
+     * @param s the string
+     * @return true if it matches
+     */
+    public boolean matches(CharSequence s) {
+        int state = start();
+        for (int i = 0, n = s.length(); i < n && state != DEAD; i++)
+            state = step(state, s.charAt(i));
+        return state != DEAD && accepting[state];
+    }
+
+    @Override
+    public String toString() {
+        return "~\"" + word + "\"~" + distance;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Construction
+    ///////////////////////////////////////////////////////////////////////////
+    // The distances from the input read so far to each prefix of the word, and the distances each prefix would have if
+    // the next character completes a transposition.  Both are capped at one more than the maximum distance.
+    @Value
+    private class State {
+        private int[] row;
+        private int[] transposed;
+
+        boolean isAccepting() {
+            return row[row.length - 1] <= distance;
+        }
+
+        // The state after reading a character of a class, or null if it is dead
+        State step(int c) {
+            int m = word.length(), cap = distance + 1, best = cap;
+            int[] next = new int[m + 1], t = new int[m + 1];
+            next[0] = Math.min(row[0] + 1, cap);
+            Arrays.fill(t, cap);
+            for (int i = 1; i <= m; i++) {
+                boolean same = classes[i - 1] == c;
+                int d = Math.min(row[i - 1] + (same? 0 : 1), Math.min(row[i] + 1, next[i - 1] + 1));
+                if (i >= 2 && classes[i - 2] == c)
+                    d = Math.min(d, transposed[i]);
+                next[i] = Math.min(d, cap);
+                best = Math.min(best, next[i]);
+                if (i >= 2 && same)
+                    t[i] = Math.min(row[i - 2] + 1, cap);
+            }
+            best = Math.min(best, next[0]);
+            return best > distance? null : new State(next, t);
+        }
+    }
+
+    private State initial() {
+        int m = word.length();
+        int[] row = new int[m + 1], t = new int[m + 1];
+        for (int i = 0; i <= m; i++)
+            row[i] = Math.min(i, distance + 1);
+        Arrays.fill(t, distance + 1);
+        return new State(row, t);
+    }
+}
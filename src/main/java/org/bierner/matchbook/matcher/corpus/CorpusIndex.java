@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import org.bierner.matchbook.analyzer.Annotation;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.Vocabulary;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+
+/**
+ * A positional inverted index over a corpus of analyzed sentences.  For each indexed annotation type, the index maps
+ * each annotation value (as a {@link Vocabulary#getGlobal() global} vocabulary id) to a posting list of the sentences in
+ * which it occurs and its start and end positions in each.  Sentences are numbered in the order they are added,
+ * starting at 0, which matches the ids of a {@link org.bierner.matchbook.corpus.CorpusStore} that they are read from.
+ * <p/>
+ * An index is immutable once built and may be searched by any number of threads with a {@link CorpusMatcher}.
+ *
+ * @author gann
+ */
+public class CorpusIndex {
+    private final Map<String, TIntObjectHashMap<PostingList>> postings;   // Annotation Type Name x Annotation Id -> Postings
+    private final int[]                                       tokenCounts;
+    private volatile TokenTrie                                tokenTrie;     // Built the first time it is needed
+
+    private CorpusIndex(Map<String, TIntObjectHashMap<PostingList>> postings, int[] tokenCounts) {
+        this.postings    = postings;
+        this.tokenCounts = tokenCounts;
+    }
+
+    /**
+     * Returns a builder for an index of the given annotation types.
+     * @param types the annotation types to index
+     * @return a builder
+     */
+    public static Builder builder(AnnotationType<?>... types) {
+        return new Builder(Arrays.asList(types));
+    }
+
+    /**
+     * Returns a builder for an index of the given annotation types.
+     * @param types the annotation types to index
+     * @return a builder
+     */
+    public static Builder builder(Collection<AnnotationType<?>> types) {
+        return new Builder(types);
+    }
+
+    /**
+     * Returns the number of sentences in the index.
+     * @return the number of sentences
+     */
+    public int size() {
+        return tokenCounts.length;
+    }
+
+    /**
+     * Returns the number of tokens in the given sentence.
+     * @param sentence a sentence id
+     * @return the number of tokens
+     */
+    public int getTokenCount(int sentence) {
+        return tokenCounts[sentence];
+    }
+
+    /**
+     * Returns true if the given annotation type was indexed.
+     * @param type an annotation type name
+     * @return true if the type was indexed
+     */
+    public boolean isIndexed(String type) {
+        return postings.containsKey(type);
+    }
+
+    /**
+     * Returns the number of sentences containing the given annotation.
+     * @param type an annotation type name
+     * @param value an annotation id
+     * @return the sentence frequency of the annotation
+     */
+    public int getSentenceFrequency(String type, String value) {
+        PostingList list = get(type, Vocabulary.getGlobal().lookup(value));
+        return list == null? 0 : list.size();
+    }
+
+    PostingList get(String type, int id) {
+        TIntObjectHashMap<PostingList> lists = postings.get(type);
+        return lists == null? null : lists.get(id);
+    }
+
+    TIntObjectHashMap<PostingList> get(String type) {
+        return postings.get(type);
+    }
+
+    // A trie of the indexed tokens, or null if tokens aren't indexed.  Threads racing to build it build equal tries.
+    TokenTrie getTokenTrie() {
+        TokenTrie trie = tokenTrie;
+        if (trie == null) {
+            TIntObjectHashMap<PostingList> tokens = postings.get(Annotation.TOKEN);
+            if (tokens == null)
+                return null;
+            tokenTrie = trie = TokenTrie.build(tokens.keys());
+        }
+        return trie;
+    }
+
+    /**
+     * Concatenates indexes into one, renumbering the sentences of each to follow those of the indexes before it.
+     * @param indexes the indexes to merge, in order
+     * @return the merged index
+     */
+    static CorpusIndex merge(List<CorpusIndex> indexes) {
+        Map<String, TIntObjectHashMap<PostingList.Builder>> builders = new HashMap<>();
+        TIntArrayList tokenCounts = new TIntArrayList();
+        for (CorpusIndex index : indexes) {
+            int base = tokenCounts.size();
+            for (Map.Entry<String, TIntObjectHashMap<PostingList>> entry : index.postings.entrySet()) {
+                TIntObjectHashMap<PostingList.Builder> lists = builders.computeIfAbsent(entry.getKey(), k -> new TIntObjectHashMap<>());
+                entry.getValue().forEachEntry((code, list) -> {
+                    PostingList.Builder builder = lists.get(code);
+                    if (builder == null)
+                        lists.put(code, builder = new PostingList.Builder());
+                    builder.addAll(list, base);
+                    return true;
+                });
+            }
+            tokenCounts.addAll(index.tokenCounts);
+        }
+        return new CorpusIndex(build(builders), tokenCounts.toArray());
+    }
+
+    private static Map<String, TIntObjectHashMap<PostingList>> build(Map<String, TIntObjectHashMap<PostingList.Builder>> builders) {
+        Map<String, TIntObjectHashMap<PostingList>> built = new HashMap<>();
+        for (Map.Entry<String, TIntObjectHashMap<PostingList.Builder>> entry : builders.entrySet()) {
+            TIntObjectHashMap<PostingList> lists = new TIntObjectHashMap<>(entry.getValue().size());
+            entry.getValue().forEachEntry((code, list) -> {
+                lists.put(code, list.build());
+                return true;
+            });
+            built.put(entry.getKey(), lists);
+        }
+        return Collections.unmodifiableMap(built);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Building
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Accumulates sentences into an index.  A builder is not thread-safe.
+     */
+    public static class Builder {
+        private final List<AnnotationType<?>>                              types;
+        private final Map<String, TIntObjectHashMap<PostingList.Builder>> postings    = new HashMap<>();
+        private final TIntArrayList                                        tokenCounts = new TIntArrayList();
+
+        private Builder(@NonNull Collection<AnnotationType<?>> types) {
+            this.types = new ArrayList<>(types);
+            for (AnnotationType<?> type : types)
+                postings.put(type.getName(), new TIntObjectHashMap<>());
+        }
+
+        /**
+         * Adds a sentence to the index, computing any of the indexed annotation types that it hasn't already.
+         * @param sentence the sentence to add
+         * @return the id of the sentence in the index
+         */
+        public int add(Sentence sentence) {
+            int id = tokenCounts.size();
+            Vocabulary vocabulary = Vocabulary.getGlobal();
+
+            for (AnnotationType<?> type : types) {
+                if (!sentence.hasAnnotation(type))
+                    continue;
+                Annotations<?> annotations = sentence.getAnnotations(type);
+                if (annotations == null)
+                    continue;
+
+                TIntObjectHashMap<PostingList.Builder> lists = postings.get(type.getName());
+                for (int i = 0, size = annotations.size(); i < size; i++) {
+                    int code = annotations.getIdCode(i);
+                    if (code == Vocabulary.UNKNOWN && annotations.getId(i) != null)
+                        code = vocabulary.intern(annotations.getId(i));
+
+                    PostingList.Builder list = lists.get(code);
+                    if (list == null)
+                        lists.put(code, list = new PostingList.Builder());
+                    list.add(id, annotations.getStart(i), annotations.getEnd(i));
+                }
+            }
+
+            tokenCounts.add(SentenceUtilities.tokenCount(sentence));
+            return id;
+        }
+
+        /**
+         * Adds sentences to the index in order.
+         * @param sentences the sentences to add
+         * @return this builder
+         */
+        public Builder addAll(Iterable<? extends Sentence> sentences) {
+            for (Sentence sentence : sentences)
+                add(sentence);
+            return this;
+        }
+
+        /**
+         * Builds the index.  The builder should not be used afterward.
+         * @return the index
+         */
+        public CorpusIndex build() {
+            return new CorpusIndex(CorpusIndex.build(postings), tokenCounts.toArray());
+        }
+
+        /**
+         * Returns the number of sentences added so far.
+         * @return the number of sentences
+         */
+        public int size() {
+            return tokenCounts.size();
+        }
+    }
+}
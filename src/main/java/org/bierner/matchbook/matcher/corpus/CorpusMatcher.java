@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import org.bierner.matchbook.analyzer.Annotation;
+import org.bierner.matchbook.analyzer.Vocabulary;
+import org.bierner.matchbook.analyzer.ontology.Ancestors;
+import org.bierner.matchbook.analyzer.ontology.Ontology;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.matcher.LevenshteinAutomaton;
+import org.bierner.matchbook.matcher.realtime.expr.AnnotationExpression;
+import org.bierner.matchbook.matcher.realtime.expr.CaptureExpression;
+import org.bierner.matchbook.matcher.realtime.expr.CompoundExpression;
+import org.bierner.matchbook.matcher.realtime.expr.ConceptExpression;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+import org.bierner.matchbook.matcher.realtime.expr.ExpressionVisitor;
+import org.bierner.matchbook.matcher.realtime.expr.FuzzyExpression;
+import org.bierner.matchbook.matcher.realtime.expr.RegexExpression;
+import org.bierner.matchbook.matcher.realtime.expr.RepeatExpression;
+import org.bierner.matchbook.matcher.realtime.expr.WithExpression;
+
+/**
+ * Evaluates matchbook expressions over a whole {@link CorpusIndex} at once.  Where the realtime matchers index each
+ * sentence as it is matched, this matcher joins the index's posting lists, so only sentences containing the rarest
+ * parts of an expression are ever examined.  Expressions are the same ones used by the realtime matchers, typically
+ * parsed with {@link org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory}, and the matches within each
+ * sentence are the same as the realtime matchers would find.  Capture groups are not reported.
+ * <p/>
+ * Concept expressions like <code>&lt;dog&gt;</code> match the indexed CONCEPT annotations of the concept and, if the
+ * matcher is given the ontology, of all its descendants.  Without the ontology, descendants are found through indexed
+ * ANCESTOR_CONCEPT annotations.  Fuzzy tokens like <code>~"recieve"~1</code> are found by walking a
+ * {@link LevenshteinAutomaton} down a trie of the index's tokens, which is built the first time one is matched.
+ * <p/>
+ * A matcher is thread-safe.
+ *
+ * @author gann
+ */
+public class CorpusMatcher {
+    @Getter private final CorpusIndex index;
+    private final Ontology            ontology;
+
+    public CorpusMatcher(@NonNull CorpusIndex index) {
+        this(index, null);
+    }
+
+    /**
+     * Creates a matcher that evaluates concept expressions with an ontology.
+     * @param index the index to search
+     * @param ontology the ontology of the indexed concepts, or null to use indexed ancestor annotations
+     */
+    public CorpusMatcher(@NonNull CorpusIndex index, Ontology ontology) {
+        this.index    = index;
+        this.ontology = ontology;
+    }
+
+    /**
+     * A match in a sentence of the corpus.
+     */
+    @Value
+    public static class CorpusMatch {
+        int sentence;
+        int start;
+        int end;
+    }
+
+    /**
+     * Receives matches in order of sentence, then start, then end position.
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * Accepts a match.
+         * @param sentence the sentence id
+         * @param start the start position, inclusive
+         * @param end the end position, exclusive
+         * @return true to continue matching or false to stop
+         */
+        boolean accept(int sentence, int start, int end);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Matching
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Passes every match of the expression to the handler, in order, until the handler asks to stop.
+     * @param expression the expression to match
+     * @param handler the receiver of the matches
+     * @throws IllegalArgumentException if the expression refers to an annotation type that isn't indexed
+     */
+    public void match(Expression expression, MatchHandler handler) {
+        Cursor cursor = cursor(expression);
+        for (int s = cursor.advance(0); s != Cursor.NO_MORE; s = cursor.advance(s + 1)) {
+            Positions p = cursor.positions();
+            for (int i = 0; i < p.size; i++)
+                if (!handler.accept(s, p.getStart(i), p.getEnd(i)))
+                    return;
+        }
+    }
+
+    /**
+     * Returns all the matches of the expression.
+     * @param expression the expression to match
+     * @return the matches in order
+     */
+    public List<CorpusMatch> match(Expression expression) {
+        return match(expression, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the first matches of the expression.
+     * @param expression the expression to match
+     * @param limit the maximum number of matches to return
+     * @return the matches in order
+     */
+    public List<CorpusMatch> match(Expression expression, int limit) {
+        List<CorpusMatch> matches = new ArrayList<>();
+        if (limit > 0)
+            match(expression, (s, start, end) -> {
+                matches.add(new CorpusMatch(s, start, end));
+                return matches.size() < limit;
+            });
+        return matches;
+    }
+
+    /**
+     * Returns the number of matches of the expression.
+     * @param expression the expression to match
+     * @return the number of matches
+     */
+    public long count(Expression expression) {
+        Cursor cursor = cursor(expression);
+        long count = 0;
+        for (int s = cursor.advance(0); s != Cursor.NO_MORE; s = cursor.advance(s + 1))
+            count += cursor.positions().size;
+        return count;
+    }
+
+    /**
+     * Returns the ids of the sentences in which the expression matches.
+     * @param expression the expression to match
+     * @return sentence ids in increasing order
+     */
+    public int[] matchingSentences(Expression expression) {
+        Cursor cursor = cursor(expression);
+        int[] sentences = new int[16];
+        int n = 0;
+        for (int s = cursor.advance(0); s != Cursor.NO_MORE; s = cursor.advance(s + 1)) {
+            if (n == sentences.length)
+                sentences = Arrays.copyOf(sentences, n * 2);
+            sentences[n++] = s;
+        }
+        return Arrays.copyOf(sentences, n);
+    }
+
+    // Builds a cursor for the expression bottom up
+    Cursor cursor(Expression expression) {
+        CursorBuilder builder = new CursorBuilder();
+        expression.accept(builder);
+        return builder.cursors.get(expression);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Cursor construction
+    ///////////////////////////////////////////////////////////////////////////
+    // Like the realtime matcher's vector visitor, results for subexpressions are saved by identity as the expression
+    // is traversed.
+    private class CursorBuilder implements ExpressionVisitor {
+        private final Map<Expression, Cursor> cursors = new IdentityHashMap<>();
+
+        @Override
+        public void visit(AnnotationExpression expr) {
+            if (!index.isIndexed(expr.getType()))
+                throw new IllegalArgumentException("Annotation type " + expr.getType() + " is not indexed");
+
+            if (expr.getValue() == null) {
+                cursors.put(expr, all(index.get(expr.getType())));
+            } else {
+                PostingList list = index.get(expr.getType(), expr.getValueCode());
+                cursors.put(expr, list == null? Cursors.EMPTY : list.cursor());
+            }
+        }
+
+        @Override
+        public void visit(RegexExpression expr) {
+            TIntObjectHashMap<PostingList> tokens = index.get(Annotation.TOKEN);
+            if (tokens == null)
+                throw new IllegalArgumentException("Regular expressions require tokens to be indexed");
+
+            Vocabulary vocabulary = Vocabulary.getGlobal();
+            Matcher m = Pattern.compile(expr.getRegex()).matcher("");
+            List<Cursor> matching = new ArrayList<>();
+            tokens.forEachEntry((code, list) -> {
+                if (code != Vocabulary.UNKNOWN && m.reset(vocabulary.get(code)).matches())
+                    matching.add(list.cursor());
+                return true;
+            });
+            cursors.put(expr, Cursors.or(matching));
+        }
+
+        @Override
+        public void visit(FuzzyExpression expr) {
+            TIntObjectHashMap<PostingList> tokens = index.get(Annotation.TOKEN);
+            if (tokens == null)
+                throw new IllegalArgumentException("Fuzzy tokens require tokens to be indexed");
+
+            LevenshteinAutomaton automaton = new LevenshteinAutomaton(expr.getToken(), expr.getDistance());
+            List<Cursor> matching = new ArrayList<>();
+            index.getTokenTrie().find(automaton, code -> matching.add(tokens.get(code).cursor()));
+            cursors.put(expr, Cursors.or(matching));
+        }
+
+        @Override
+        public void visit(ConceptExpression expr) {
+            TIntObjectHashMap<PostingList> mentions = index.get(Annotation.CONCEPT);
+            if (mentions == null || (ontology == null && !index.isIndexed(Annotation.ANCESTOR_CONCEPT)))
+                throw new IllegalArgumentException("Concept expressions require concepts and either an ontology or ancestor concepts to be indexed");
+
+            Vocabulary vocabulary = Vocabulary.getGlobal();
+            Ancestors ancestors = ontology == null? null : ontology.getAncestors();
+            Concept target = ontology == null? null : ontology.getEntity(Concept.class, expr.getConcept());
+            List<Cursor> matching = new ArrayList<>();
+            mentions.forEachEntry((code, list) -> {
+                if (code == Vocabulary.UNKNOWN)
+                    return true;
+                String id = vocabulary.get(code);
+                if (id.equals(expr.getConcept()))
+                    matching.add(list.cursor());
+                else if (target != null) {
+                    Concept concept = ontology.getEntity(Concept.class, id);
+                    if (concept != null && ancestors.isa(concept, target))
+                        matching.add(list.cursor());
+                }
+                return true;
+            });
+            if (ontology == null) {
+                PostingList list = index.get(Annotation.ANCESTOR_CONCEPT, vocabulary.lookup(expr.getConcept()));
+                if (list != null)
+                    matching.add(list.cursor());
+            }
+            cursors.put(expr, Cursors.or(matching));
+        }
+
+        @Override
+        public void visit(CaptureExpression expr) {
+            cursors.put(expr, cursors.get(expr.getExpression()));
+        }
+
+        @Override
+        public void visit(CompoundExpression expr) {
+            List<Cursor> subs = new ArrayList<>(expr.getSubExpressions().size());
+            for (Expression e : expr.getSubExpressions())
+                subs.add(cursors.get(e));
+
+            switch (expr.getType()) {
+                case IS:       cursors.put(expr, Cursors.is(subs)); break;
+                case ISNT:     cursors.put(expr, Cursors.isnt(subs.get(0), subs.get(1))); break;
+                case OR:       cursors.put(expr, Cursors.or(subs)); break;
+                case SEQUENCE: cursors.put(expr, Cursors.sequence(subs)); break;
+            }
+        }
+
+        @Override
+        public void visit(RepeatExpression expr) {
+            cursors.put(expr, Cursors.repeat(cursors.get(expr.getExpression()), expr.getFrom(), expr.getTo(),
+                                             index.size(), index::getTokenCount));
+        }
+
+        @Override
+        public void visit(WithExpression expr) {
+            cursors.put(expr, Cursors.with(cursors.get(expr.getAnnotation()), cursors.get(expr.getWithExpression())));
+        }
+
+        // All the annotations of a type, regardless of value
+        private Cursor all(TIntObjectHashMap<PostingList> lists) {
+            List<Cursor> all = new ArrayList<>(lists.size());
+            lists.forEachValue(list -> all.add(list.cursor()));
+            return Cursors.or(all);
+        }
+    }
+}
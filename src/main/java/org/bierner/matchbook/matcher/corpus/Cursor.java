@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+/**
+ * Iterates in order over the sentences in which an expression matches, along with the matches in each.  Cursors for
+ * compound expressions are built from cursors for their subexpressions and only ever move forward, so sentences that
+ * can't match may be skipped without being examined.
+ *
+ * @author gann
+ */
+interface Cursor {
+    /**
+     * The sentence returned once a cursor is exhausted.
+     */
+    int NO_MORE = Integer.MAX_VALUE;
+
+    /**
+     * Returns the current sentence, -1 if the cursor hasn't been advanced or {@link #NO_MORE} if it is exhausted.
+     */
+    int sentence();
+
+    /**
+     * Moves to the first sentence at or after the target with at least one match.  A target at or before the current
+     * sentence leaves the cursor where it is.
+     * @return the new current sentence or {@link #NO_MORE}
+     */
+    int advance(int target);
+
+    /**
+     * Returns the matches in the current sentence, of which there is at least one.
+     */
+    Positions positions();
+
+    /**
+     * Returns an estimate of the number of sentences this cursor will visit.  This is used to order the subexpressions
+     * of a conjunction so that the rarest drives the others.
+     */
+    long cost();
+}
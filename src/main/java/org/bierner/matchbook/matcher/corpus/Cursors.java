@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Cursors implementing the matchbook operations over whole posting lists.  Conjunctions (IS, SEQUENCE and WITH)
+ * leapfrog their subexpressions to sentences that all of them match, driven by the rarest, and then combine the
+ * matches within each sentence using {@link Positions}.  Disjunctions merge their subexpressions in sentence order.
+ *
+ * @author gann
+ */
+final class Cursors {
+    private Cursors() { }
+
+    static final Cursor EMPTY = new Cursor() {
+        @Override public int       sentence()           { return NO_MORE; }
+        @Override public int       advance(int target)  { return NO_MORE; }
+        @Override public Positions positions()          { return Positions.EMPTY; }
+        @Override public long      cost()               { return 0; }
+    };
+
+    ///////////////////////////////////////////////////////////////////////////
+    // OR
+    ///////////////////////////////////////////////////////////////////////////
+    static Cursor or(List<Cursor> cursors) {
+        List<Cursor> nonEmpty = new ArrayList<>(cursors);
+        nonEmpty.removeIf(c -> c == EMPTY);
+        if (nonEmpty.isEmpty())
+            return EMPTY;
+        return nonEmpty.size() == 1? nonEmpty.get(0) : new Or(nonEmpty.toArray(new Cursor[nonEmpty.size()]));
+    }
+
+    private static class Or implements Cursor {
+        private final Cursor[] cursors;
+        private int            sentence = -1;
+
+        Or(Cursor[] cursors) {
+            this.cursors = cursors;
+        }
+
+        @Override public int sentence() { return sentence; }
+
+        @Override
+        public long cost() {
+            long cost = 0;
+            for (Cursor c : cursors)
+                cost += c.cost();
+            return cost;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (target <= sentence)
+                return sentence;
+            int min = NO_MORE;
+            for (Cursor c : cursors)
+                min = Math.min(min, c.sentence() >= target? c.sentence() : c.advance(target));
+            return sentence = min;
+        }
+
+        @Override
+        public Positions positions() {
+            List<Positions> positions = new ArrayList<>(cursors.length);
+            for (Cursor c : cursors)
+                if (c.sentence() == sentence)
+                    positions.add(c.positions());
+            return Positions.or(positions);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // IS, SEQUENCE and WITH
+    ///////////////////////////////////////////////////////////////////////////
+    static Cursor is(List<Cursor> cursors) {
+        return conjunction(cursors, positions -> {
+            Positions result = positions[0];
+            for (int i = 1; i < positions.length && result.size > 0; i++)
+                result = Positions.is(result, positions[i]);
+            return result;
+        });
+    }
+
+    static Cursor sequence(List<Cursor> cursors) {
+        return conjunction(cursors, positions -> {
+            Positions result = positions[0];
+            for (int i = 1; i < positions.length && result.size > 0; i++)
+                result = Positions.sequence(result, positions[i]);
+            return result;
+        });
+    }
+
+    static Cursor with(Cursor cursor, Cursor with) {
+        return conjunction(Arrays.asList(cursor, with), positions -> Positions.with(positions[0], positions[1]));
+    }
+
+    private interface Combiner {
+        Positions combine(Positions[] positions);
+    }
+
+    private static Cursor conjunction(List<Cursor> cursors, Combiner combiner) {
+        if (cursors.contains(EMPTY))
+            return EMPTY;
+        return cursors.size() == 1? cursors.get(0) : new Conjunction(cursors.toArray(new Cursor[cursors.size()]), combiner);
+    }
+
+    private static class Conjunction implements Cursor {
+        private final Cursor[]    cursors;     // In the order of the subexpressions
+        private final Cursor[]    byCost;      // Cheapest first
+        private final Combiner    combiner;
+        private final Positions[] current;
+        private int               sentence = -1;
+        private Positions         positions;
+
+        Conjunction(Cursor[] cursors, Combiner combiner) {
+            this.cursors  = cursors;
+            this.combiner = combiner;
+            this.current  = new Positions[cursors.length];
+            this.byCost   = cursors.clone();
+            Arrays.sort(byCost, Comparator.comparingLong(Cursor::cost));
+        }
+
+        @Override public int       sentence()  { return sentence; }
+        @Override public Positions positions() { return positions; }
+        @Override public long      cost()      { return byCost[0].cost(); }
+
+        @Override
+        public int advance(int target) {
+            if (target <= sentence)
+                return sentence;
+
+            while (true) {
+                // Leapfrog until every cursor is on the same sentence
+                int candidate = byCost[0].advance(target);
+                for (int i = 1; i < byCost.length && candidate != NO_MORE; ) {
+                    int s = byCost[i].advance(candidate);
+                    if (s == candidate)
+                        i++;
+                    else {
+                        candidate = byCost[0].advance(s);
+                        i = 1;
+                    }
+                }
+                if (candidate == NO_MORE)
+                    return sentence = NO_MORE;
+
+                for (int i = 0; i < cursors.length; i++)
+                    current[i] = cursors[i].positions();
+                Positions p = combiner.combine(current);
+                if (p.size > 0) {
+                    positions = p;
+                    return sentence = candidate;
+                }
+                target = candidate + 1;
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ISNT
+    ///////////////////////////////////////////////////////////////////////////
+    static Cursor isnt(Cursor a, Cursor b) {
+        if (a == EMPTY || b == EMPTY)
+            return a;
+        return new Isnt(a, b);
+    }
+
+    private static class Isnt implements Cursor {
+        private final Cursor a;
+        private final Cursor b;
+        private int          sentence = -1;
+        private Positions    positions;
+
+        Isnt(Cursor a, Cursor b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override public int       sentence()  { return sentence; }
+        @Override public Positions positions() { return positions; }
+        @Override public long      cost()      { return a.cost(); }
+
+        @Override
+        public int advance(int target) {
+            if (target <= sentence)
+                return sentence;
+            while (true) {
+                int s = a.advance(target);
+                if (s == NO_MORE)
+                    return sentence = NO_MORE;
+                Positions p = b.advance(s) == s? Positions.isnt(a.positions(), b.positions()) : a.positions();
+                if (p.size > 0) {
+                    positions = p;
+                    return sentence = s;
+                }
+                target = s + 1;
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // REPEAT
+    ///////////////////////////////////////////////////////////////////////////
+    static Cursor repeat(Cursor cursor, int min, int max, int sentenceCount, IntUnaryOperator tokenCounts) {
+        if (min == 0)
+            return new OptionalRepeat(cursor, max, sentenceCount, tokenCounts);
+        if (cursor == EMPTY)
+            return EMPTY;
+        if (min == 1 && max == 1)
+            return cursor;
+        return new Repeat(cursor, min, max, tokenCounts);
+    }
+
+    // A repeat that must match at least once, so it only matches where its subexpression does
+    private static class Repeat implements Cursor {
+        private final Cursor           cursor;
+        private final int              min;
+        private final int              max;
+        private final IntUnaryOperator tokenCounts;
+        private int                    sentence = -1;
+        private Positions              positions;
+
+        Repeat(Cursor cursor, int min, int max, IntUnaryOperator tokenCounts) {
+            this.cursor      = cursor;
+            this.min         = min;
+            this.max         = max;
+            this.tokenCounts = tokenCounts;
+        }
+
+        @Override public int       sentence()  { return sentence; }
+        @Override public Positions positions() { return positions; }
+        @Override public long      cost()      { return cursor.cost(); }
+
+        @Override
+        public int advance(int target) {
+            if (target <= sentence)
+                return sentence;
+            while (true) {
+                int s = cursor.advance(target);
+                if (s == NO_MORE)
+                    return sentence = NO_MORE;
+                Positions p = Positions.repeat(cursor.positions(), min, max, tokenCounts.applyAsInt(s));
+                if (p.size > 0) {
+                    positions = p;
+                    return sentence = s;
+                }
+                target = s + 1;
+            }
+        }
+    }
+
+    // A repeat that may match zero times, and so matches an empty span at every position of every sentence
+    private static class OptionalRepeat implements Cursor {
+        private final Cursor           cursor;
+        private final int              max;
+        private final int              sentenceCount;
+        private final IntUnaryOperator tokenCounts;
+        private int                    sentence = -1;
+
+        OptionalRepeat(Cursor cursor, int max, int sentenceCount, IntUnaryOperator tokenCounts) {
+            this.cursor        = cursor;
+            this.max           = max;
+            this.sentenceCount = sentenceCount;
+            this.tokenCounts   = tokenCounts;
+        }
+
+        @Override public int  sentence() { return sentence; }
+        @Override public long cost()     { return sentenceCount; }
+
+        @Override
+        public int advance(int target) {
+            if (target <= sentence)
+                return sentence;
+            return sentence = target < sentenceCount? target : NO_MORE;
+        }
+
+        @Override
+        public Positions positions() {
+            int tokens = tokenCounts.applyAsInt(sentence);
+            if (cursor.sentence() < sentence)
+                cursor.advance(sentence);
+            if (cursor.sentence() != sentence)
+                return Positions.empties(tokens);
+            return Positions.repeat(cursor.positions(), 0, max, tokens);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.NonNull;
+import org.bierner.matchbook.matcher.corpus.CorpusMatcher.CorpusMatch;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+
+/**
+ * Evaluates matchbook expressions over a {@link SegmentedCorpusIndex}, matching each segment as a separate task in a
+ * fork/join pool.  Results are merged in segment order, so they are the same as matching a single index of all the
+ * sentences, with sentence ids relative to the whole index.  Queries that need only the first matches, or only a
+ * bounded count, stop the remaining segment tasks as soon as the answer is known.
+ * <p/>
+ * Each query searches the segments that are searchable when it starts.  A matcher is thread-safe.
+ *
+ * @author gann
+ */
+public class ParallelCorpusMatcher {
+    @Getter private final SegmentedCorpusIndex index;
+    private final ForkJoinPool                 pool;
+
+    /**
+     * Creates a matcher that runs in the common fork/join pool.
+     * @param index the index to search
+     */
+    public ParallelCorpusMatcher(SegmentedCorpusIndex index) {
+        this(index, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a matcher.
+     * @param index the index to search
+     * @param pool the pool in which to match segments
+     */
+    public ParallelCorpusMatcher(@NonNull SegmentedCorpusIndex index, @NonNull ForkJoinPool pool) {
+        this.index = index;
+        this.pool  = pool;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Matching
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns all the matches of the expression.
+     * @param expression the expression to match
+     * @return the matches in order
+     * @throws IllegalArgumentException if the expression refers to an annotation type that isn't indexed
+     */
+    public List<CorpusMatch> match(Expression expression) {
+        return match(expression, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the first matches of the expression.  Once the earlier segments hold enough matches, the later ones
+     * are abandoned.
+     * @param expression the expression to match
+     * @param limit the maximum number of matches to return
+     * @return the matches in order
+     */
+    public List<CorpusMatch> match(Expression expression, int limit) {
+        List<CorpusMatch> matches = new ArrayList<>();
+        if (limit <= 0)
+            return matches;
+
+        List<SegmentedCorpusIndex.Segment> segments = index.getSegments();
+        SegmentMatch[] tasks = new SegmentMatch[segments.size()];
+        for (int i = 0; i < tasks.length; i++)
+            tasks[i] = new SegmentMatch(segments.get(i), expression, limit);
+        for (SegmentMatch task : tasks)
+            pool.execute(task);
+
+        try {
+            for (SegmentMatch task : tasks) {
+                for (CorpusMatch match : task.join()) {
+                    matches.add(match);
+                    if (matches.size() == limit)
+                        return matches;
+                }
+            }
+            return matches;
+        } finally {
+            for (SegmentMatch task : tasks)
+                task.stop();
+        }
+    }
+
+    /**
+     * Returns the number of matches of the expression.  No matches are materialized.
+     * @param expression the expression to match
+     * @return the number of matches
+     */
+    public long count(Expression expression) {
+        return count(expression, Long.MAX_VALUE);
+    }
+
+    /**
+     * Counts the matches of the expression up to a limit, stopping all the segment tasks once it is reached.  This
+     * answers questions like whether a rule matches at least some number of times without matching the whole corpus.
+     * @param expression the expression to match
+     * @param limit the maximum count
+     * @return the number of matches, or the limit if there are at least that many
+     */
+    public long count(Expression expression, long limit) {
+        AtomicLong count = new AtomicLong();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (SegmentedCorpusIndex.Segment segment : index.getSegments())
+            tasks.add(pool.submit(() -> {
+                CorpusMatcher matcher = new CorpusMatcher(segment.getIndex());
+                Cursor cursor = matcher.cursor(expression);
+                for (int s = cursor.advance(0); s != Cursor.NO_MORE && count.get() < limit; s = cursor.advance(s + 1))
+                    count.addAndGet(cursor.positions().size);
+            }));
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+        return Math.min(count.get(), limit);
+    }
+
+    // Matches one segment, stopping at the limit or when asked to
+    private static class SegmentMatch extends ForkJoinTask<List<CorpusMatch>> {
+        private static final long serialVersionUID = 1L;
+
+        private final SegmentedCorpusIndex.Segment segment;
+        private final Expression                   expression;
+        private final int                          limit;
+        private volatile boolean                   stopped = false;
+        private List<CorpusMatch>                  result;
+
+        SegmentMatch(SegmentedCorpusIndex.Segment segment, Expression expression, int limit) {
+            this.segment    = segment;
+            this.expression = expression;
+            this.limit      = limit;
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        @Override
+        public List<CorpusMatch> getRawResult() {
+            return result;
+        }
+
+        @Override
+        protected void setRawResult(List<CorpusMatch> value) {
+            result = value;
+        }
+
+        @Override
+        protected boolean exec() {
+            List<CorpusMatch> matches = new ArrayList<>();
+            int base = segment.getBaseId();
+            if (!stopped)
+                new CorpusMatcher(segment.getIndex()).match(expression, (s, start, end) -> {
+                    matches.add(new CorpusMatch(base + s, start, end));
+                    return matches.size() < limit && !stopped;
+                });
+            result = matches;
+            return true;
+        }
+    }
+}
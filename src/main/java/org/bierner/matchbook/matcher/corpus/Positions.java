@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The matches of an expression within a single sentence, stored as start and end positions packed into longs in the
+ * same way as the realtime matcher's packed vectors.  Entries are sorted and distinct, so they are ordered by start
+ * then end position.  The static methods implement the matchbook operations on a single sentence, mirroring
+ * {@link org.bierner.matchbook.matcher.realtime.indexing.PackedVectorFactory}.
+ *
+ * @author gann
+ */
+final class Positions {
+    static final Positions EMPTY = new Positions(new long[0], 0);
+
+    final long[] entries;
+    final int    size;
+
+    Positions(long[] entries, int size) {
+        this.entries = entries;
+        this.size    = size;
+    }
+
+    static long pack(int start, int end) {
+        return (long) start << 32 | end;
+    }
+
+    static int start(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    static int end(long packed) {
+        return (int) packed;
+    }
+
+    int getStart(int i) {
+        return start(entries[i]);
+    }
+
+    int getEnd(int i) {
+        return end(entries[i]);
+    }
+
+    // Sorts and removes duplicates from the first size entries, taking ownership of the array
+    static Positions of(long[] entries, int size) {
+        if (size == 0)
+            return EMPTY;
+        Arrays.sort(entries, 0, size);
+        int n = 1;
+        for (int i = 1; i < size; i++)
+            if (entries[i] != entries[n - 1])
+                entries[n++] = entries[i];
+        return new Positions(entries, n);
+    }
+
+    // The index of the first entry >= value
+    private int lowerBound(long value) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid] < value)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Operations
+    ///////////////////////////////////////////////////////////////////////////
+    static Positions or(List<Positions> positions) {
+        if (positions.size() == 1)
+            return positions.get(0);
+        int total = 0;
+        for (Positions p : positions)
+            total += p.size;
+        long[] result = new long[total];
+        int n = 0;
+        for (Positions p : positions) {
+            System.arraycopy(p.entries, 0, result, n, p.size);
+            n += p.size;
+        }
+        return of(result, n);
+    }
+
+    static Positions is(Positions a, Positions b) {
+        long[] result = new long[Math.min(a.size, b.size)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            if (a.entries[i] < b.entries[j])
+                i++;
+            else if (a.entries[i] > b.entries[j])
+                j++;
+            else {
+                result[n++] = a.entries[i++];
+                j++;
+            }
+        }
+        return n == 0? EMPTY : new Positions(result, n);
+    }
+
+    static Positions isnt(Positions a, Positions b) {
+        long[] result = new long[a.size];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.size; i++) {
+            while (j < b.size && b.entries[j] < a.entries[i])
+                j++;
+            if (j == b.size || b.entries[j] != a.entries[i])
+                result[n++] = a.entries[i];
+        }
+        return n == 0? EMPTY : new Positions(result, n);
+    }
+
+    // Entries of a followed immediately by entries of b
+    static Positions sequence(Positions a, Positions b) {
+        long[] result = new long[Math.max(a.size, b.size)];
+        int n = 0;
+        for (int i = 0; i < a.size; i++) {
+            int start = a.getStart(i), end = a.getEnd(i);
+            for (int j = b.lowerBound(pack(end, 0)); j < b.size && b.getStart(j) == end; j++) {
+                if (n == result.length)
+                    result = Arrays.copyOf(result, n * 2);
+                result[n++] = pack(start, b.getEnd(j));
+            }
+        }
+        return of(result, n);
+    }
+
+    // Entries of v containing at least one entry of with
+    static Positions with(Positions v, Positions with) {
+        long[] result = new long[v.size];
+        int n = 0;
+        for (int i = 0; i < v.size; i++) {
+            int start = v.getStart(i), end = v.getEnd(i);
+            for (int j = with.lowerBound(pack(start, 0)); j < with.size && with.getStart(j) < end; j++)
+                if (with.getEnd(j) <= end) {
+                    result[n++] = v.entries[i];
+                    break;
+                }
+        }
+        return n == 0? EMPTY : new Positions(result, n);
+    }
+
+    // The empty matches at every position of a sentence
+    static Positions empties(int tokenCount) {
+        long[] result = new long[tokenCount + 1];
+        for (int i = 0; i <= tokenCount; i++)
+            result[i] = pack(i, i);
+        return new Positions(result, result.length);
+    }
+
+    static Positions repeat(Positions v, int min, int max, int tokenCount) {
+        Positions result;
+        if (min == 0)
+            result = empties(tokenCount);
+        else {
+            result = v;
+            for (int i = 1; i < min && result.size > 0; i++)
+                result = sequence(result, v);
+        }
+        if (result.size == 0)
+            return EMPTY;
+
+        List<Positions> all = new ArrayList<>();
+        all.add(result);
+        for (int i = min + 1; i <= max; i++) {
+            result = sequence(result, v);
+            if (result.size == 0)
+                break;
+            all.add(result);
+        }
+        return or(all);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The sentences in which an annotation occurs along with its positions in each, compressed into blocks of
+ * {@link #BLOCK_SIZE} sentences.  A skip table holds the last sentence and byte offset of each block, so a cursor
+ * can leap over whole blocks to a target sentence without decoding them.
+ * <p/>
+ * Each block begins with a header giving, for every sentence, the gap from the previous sentence id, the number of
+ * positions and the number of bytes they occupy, all as variable-byte integers.  The positions follow, each encoded as
+ * the gap from the previous start in the sentence and the length of the span.  So finding a sentence decodes only the
+ * header of one block, and positions are only decoded for sentences that an expression actually examines.
+ *
+ * @author gann
+ */
+final class PostingList {
+    /**
+     * The number of sentences in a block.
+     */
+    static final int BLOCK_SIZE = 128;
+
+    private final int    size;
+    private final int    positionCount;
+    private final int[]  blockLast;      // The last sentence of each block
+    private final int[]  blockOffset;    // The offset of each block in data
+    private final byte[] data;
+
+    private PostingList(int size, int positionCount, int[] blockLast, int[] blockOffset, byte[] data) {
+        this.size          = size;
+        this.positionCount = positionCount;
+        this.blockLast     = blockLast;
+        this.blockOffset   = blockOffset;
+        this.data          = data;
+    }
+
+    /**
+     * Returns the number of sentences in the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of positions in the list.
+     */
+    int positionCount() {
+        return positionCount;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the list.
+     */
+    long byteCount() {
+        return data.length + 8L * blockLast.length;
+    }
+
+    Cursor cursor() {
+        return new PostingCursor();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading
+    ///////////////////////////////////////////////////////////////////////////
+    // Finds a block using the skip table, then decodes just that block's header
+    private class PostingCursor implements Cursor {
+        private final int[] sentences = new int[BLOCK_SIZE];
+        private final int[] counts    = new int[BLOCK_SIZE];
+        private final int[] offsets   = new int[BLOCK_SIZE];   // The offset of each sentence's positions in data
+        private int         block     = -1;
+        private int         blockSize;
+        private int         index;
+        private int         sentence  = -1;
+        private int         pos;
+
+        @Override public int  sentence() { return sentence; }
+        @Override public long cost()     { return size; }
+
+        @Override
+        public int advance(int target) {
+            if (target <= sentence)
+                return sentence;
+
+            if (block < 0 || blockLast[block] < target) {
+                int b = findBlock(target);
+                if (b == blockLast.length) {
+                    index = blockSize;
+                    return sentence = NO_MORE;
+                }
+                decodeBlock(b);
+            }
+
+            // The target is within the current block
+            while (sentences[index] < target)
+                index++;
+            return sentence = sentences[index];
+        }
+
+        // Gallops then binary searches the skip table for the first block after the current one that may contain the target
+        private int findBlock(int target) {
+            int lo = block + 1, step = 1, hi = lo;
+            while (hi < blockLast.length && blockLast[hi] < target) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            hi = Math.min(hi, blockLast.length);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (blockLast[mid] < target)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        private void decodeBlock(int b) {
+            block = b;
+            index = 0;
+            pos = blockOffset[b];
+            int end = b + 1 < blockOffset.length? blockOffset[b + 1] : data.length;
+            int s = b == 0? -1 : blockLast[b - 1];
+            int bytes = 0;
+
+            blockSize = 0;
+            while (s != blockLast[b]) {
+                s += varint();
+                sentences[blockSize] = s;
+                counts[blockSize] = varint();
+                offsets[blockSize] = bytes;
+                bytes += varint();
+                blockSize++;
+            }
+
+            int header = end - bytes;
+            for (int i = 0; i < blockSize; i++)
+                offsets[i] += header;
+        }
+
+        @Override
+        public Positions positions() {
+            int count = counts[index];
+            long[] entries = new long[count];
+            pos = offsets[index];
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                start += varint();
+                entries[i] = Positions.pack(start, start + varint());
+            }
+            return new Positions(entries, count);
+        }
+
+        private int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Building
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Accumulates postings.  Sentences must be added in increasing order, but positions within a sentence may be
+     * added in any order.
+     */
+    static class Builder {
+        private final TIntArrayList         blockLast   = new TIntArrayList();
+        private final TIntArrayList         blockOffset = new TIntArrayList();
+        private final ByteArrayOutputStream data        = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream header      = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream positions   = new ByteArrayOutputStream();
+        private final TLongArrayList        current     = new TLongArrayList();
+        private int                         sentence    = -1;
+        private int                         previous    = -1;   // The previous sentence written
+        private int                         blockSize;
+        private int                         size;
+        private int                         positionCount;
+
+        void add(int sentence, int start, int end) {
+            if (sentence != this.sentence) {
+                if (sentence < this.sentence)
+                    throw new IllegalArgumentException("Sentences must be added in order");
+                finishSentence();
+                this.sentence = sentence;
+            }
+            current.add(Positions.pack(start, end));
+        }
+
+        // Adds all the postings of a list, offsetting its sentence ids
+        void addAll(PostingList list, int base) {
+            Cursor cursor = list.cursor();
+            for (int s = cursor.advance(0); s != Cursor.NO_MORE; s = cursor.advance(s + 1)) {
+                Positions p = cursor.positions();
+                for (int i = 0; i < p.size; i++)
+                    add(base + s, p.getStart(i), p.getEnd(i));
+            }
+        }
+
+        // Sorts and removes duplicate positions of the current sentence and encodes them into the current block
+        private void finishSentence() {
+            if (current.isEmpty())
+                return;
+            Positions p = Positions.of(current.toArray(), current.size());
+            current.resetQuick();
+
+            int before = positions.size(), start = 0;
+            for (int i = 0; i < p.size; i++) {
+                writeVarint(positions, p.getStart(i) - start);
+                writeVarint(positions, p.getEnd(i) - p.getStart(i));
+                start = p.getStart(i);
+            }
+            writeVarint(header, sentence - previous);
+            writeVarint(header, p.size);
+            writeVarint(header, positions.size() - before);
+
+            previous = sentence;
+            positionCount += p.size;
+            size++;
+            if (++blockSize == BLOCK_SIZE)
+                finishBlock();
+        }
+
+        private void finishBlock() {
+            if (blockSize == 0)
+                return;
+            blockLast.add(previous);
+            blockOffset.add(data.size());
+            data.write(header.toByteArray(), 0, header.size());
+            data.write(positions.toByteArray(), 0, positions.size());
+            header.reset();
+            positions.reset();
+            blockSize = 0;
+        }
+
+        PostingList build() {
+            finishSentence();
+            finishBlock();
+            return new PostingList(size, positionCount, blockLast.toArray(), blockOffset.toArray(), data.toByteArray());
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
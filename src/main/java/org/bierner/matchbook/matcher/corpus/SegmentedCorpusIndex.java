@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Sentence;
+
+/**
+ * A corpus index that grows continuously as a sequence of independent segments, each a {@link CorpusIndex} over a
+ * contiguous range of sentence ids.  Added sentences are buffered until there are
+ * {@link SegmentedCorpusIndexBuilder#segmentSize(int) segmentSize} of them, and the segment is then built on a
+ * background thread.  Like Lucene's merges, whenever {@link SegmentedCorpusIndexBuilder#mergeFactor(int) mergeFactor}
+ * segments of the same size tier accumulate, they are merged into one in the background, so the number of segments
+ * grows only logarithmically with the size of the corpus.
+ * <p/>
+ * Sentences become searchable once their segment is built, or immediately after a {@link #flush()}.  Searches see a
+ * consistent snapshot of the segments, so they may run concurrently with additions and merges.  A
+ * {@link ParallelCorpusMatcher} searches the segments in parallel.
+ * <p/>
+ * Additions are serialized.  Sentence ids are assigned in the order sentences are added, starting at 0, so they match
+ * the ids of a {@link org.bierner.matchbook.corpus.CorpusStore} that the sentences are read from.
+ *
+ * @author gann
+ */
+public class SegmentedCorpusIndex implements AutoCloseable {
+    private final List<AnnotationType<?>> types;
+    private final int                     segmentSize;
+    private final int                     mergeFactor;
+    private final ExecutorService         background;
+
+    // The searchable segments in order, replaced as a whole when segments are built or merged
+    private volatile Segment[] segments = new Segment[0];
+
+    // Sentences not yet handed to the background
+    private CorpusIndex.Builder current;
+    private int                 nextId;
+    private Future<?>           lastTask;
+
+    private SegmentedCorpusIndex(SegmentedCorpusIndexBuilder builder) {
+        this.types       = new ArrayList<>(builder.types);
+        this.segmentSize = builder.segmentSize;
+        this.mergeFactor = builder.mergeFactor;
+        this.background  = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "matchbook-segment-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.current     = CorpusIndex.builder(types);
+    }
+
+    /**
+     * Creates a new builder.
+     * @return a builder
+     */
+    public static SegmentedCorpusIndexBuilder builder() {
+        return new SegmentedCorpusIndexBuilder();
+    }
+
+    /**
+     * A segment of the index.
+     */
+    public static class Segment {
+        @Getter private final int         baseId;
+        @Getter private final CorpusIndex index;
+        private final int                 tier;
+
+        private Segment(int baseId, CorpusIndex index, int tier) {
+            this.baseId = baseId;
+            this.index  = index;
+            this.tier   = tier;
+        }
+
+        /**
+         * Returns the number of sentences in the segment.
+         * @return the number of sentences
+         */
+        public int size() {
+            return index.size();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the searchable segments in order of their sentence ids.
+     * @return an unmodifiable snapshot of the segments
+     */
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(Arrays.asList(segments));
+    }
+
+    /**
+     * Returns the number of searchable sentences.
+     * @return the number of sentences
+     */
+    public int size() {
+        Segment[] s = segments;
+        return s.length == 0? 0 : s[s.length - 1].baseId + s[s.length - 1].size();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Writing
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Adds a sentence to the index.  It becomes searchable once its segment is built.
+     * @param sentence the sentence to add
+     * @return the id of the sentence
+     */
+    public synchronized int add(Sentence sentence) {
+        if (background.isShutdown())
+            throw new IllegalStateException("The index is closed");
+        current.add(sentence);
+        int id = nextId++;
+        if (current.size() == segmentSize)
+            handOff();
+        return id;
+    }
+
+    /**
+     * Adds sentences to the index in order.
+     * @param sentences the sentences to add
+     * @return this index
+     */
+    public SegmentedCorpusIndex addAll(Iterable<? extends Sentence> sentences) {
+        for (Sentence sentence : sentences)
+            add(sentence);
+        return this;
+    }
+
+    /**
+     * Builds a segment of any buffered sentences and waits until all the sentences added so far are searchable.
+     */
+    public void flush() {
+        Future<?> task;
+        synchronized (this) {
+            if (current.size() > 0)
+                handOff();
+            task = lastTask;
+        }
+        await(task);
+    }
+
+    /**
+     * Flushes the index and stops its background thread.  The index remains searchable.
+     */
+    @Override
+    public void close() {
+        flush();
+        background.shutdown();
+        try {
+            background.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Builds the buffered sentences as a segment on the background thread.  As the background thread runs tasks in
+    // order, segments are published in order of their ids.
+    private void handOff() {
+        CorpusIndex.Builder builder = current;
+        int baseId = nextId - builder.size();
+        current = CorpusIndex.builder(types);
+        lastTask = background.submit(() -> {
+            publish(new Segment(baseId, builder.build(), 0));
+            mergeSegments();
+        });
+    }
+
+    private void publish(Segment segment) {
+        Segment[] s = Arrays.copyOf(segments, segments.length + 1);
+        s[s.length - 1] = segment;
+        segments = s;
+    }
+
+    // Merges trailing runs of mergeFactor segments of the same tier into one segment of the next tier
+    private void mergeSegments() {
+        while (true) {
+            Segment[] s = segments;
+            int n = s.length;
+            if (n < mergeFactor)
+                return;
+            int tier = s[n - 1].tier;
+            for (int i = n - mergeFactor; i < n; i++)
+                if (s[i].tier != tier)
+                    return;
+
+            List<CorpusIndex> indexes = new ArrayList<>(mergeFactor);
+            for (int i = n - mergeFactor; i < n; i++)
+                indexes.add(s[i].index);
+            Segment merged = new Segment(s[n - mergeFactor].baseId, CorpusIndex.merge(indexes), tier + 1);
+
+            Segment[] replaced = Arrays.copyOf(s, n - mergeFactor + 1);
+            replaced[replaced.length - 1] = merged;
+            segments = replaced;
+        }
+    }
+
+    private static void await(Future<?> task) {
+        if (task == null)
+            return;
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build a segment", e.getCause());
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Builder
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * A builder for segmented indexes.  At least one annotation type is required.
+     */
+    @Accessors(fluent = true, chain = true)
+    public static class SegmentedCorpusIndexBuilder {
+        private final List<AnnotationType<?>> types = new ArrayList<>();
+
+        @Setter private int segmentSize = 100000;
+        @Setter private int mergeFactor = 10;
+
+        private SegmentedCorpusIndexBuilder() { }
+
+        /**
+         * Adds annotation types to index.
+         * @param types the types to index
+         * @return this builder
+         */
+        public SegmentedCorpusIndexBuilder types(@NonNull AnnotationType<?> ... types) {
+            this.types.addAll(Arrays.asList(types));
+            return this;
+        }
+
+        public SegmentedCorpusIndex build() {
+            if (types.isEmpty())
+                throw new IllegalStateException("At least one annotation type is required");
+            if (segmentSize < 1 || mergeFactor < 2)
+                throw new IllegalArgumentException("The segment size must be positive and the merge factor at least 2");
+            return new SegmentedCorpusIndex(this);
+        }
+    }
+}
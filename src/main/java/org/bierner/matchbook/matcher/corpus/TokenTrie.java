@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.corpus;
+
+import gnu.trove.list.array.TCharArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import org.bierner.matchbook.analyzer.Vocabulary;
+import org.bierner.matchbook.matcher.LevenshteinAutomaton;
+
+/**
+ * A character trie of the distinct tokens of an index, so that approximate token matching walks a
+ * {@link LevenshteinAutomaton} down the trie once rather than running it over every token.  Tokens sharing a prefix
+ * share the automaton's work on it, and a subtree is skipped as soon as the automaton's state is dead.
+ * <p/>
+ * Nodes are stored in arrays, linked to their first child and next sibling.  A trie is immutable and thread-safe.
+ *
+ * @author gann
+ */
+final class TokenTrie {
+    private static final int NONE = -1;
+
+    private final char[] labels;        // The character on the edge into each node
+    private final int[]  firstChild;
+    private final int[]  nextSibling;
+    private final int[]  codes;         // The global vocabulary id of the token ending at each node, or NONE
+
+    /**
+     * Builds a trie of tokens.
+     * @param tokens global vocabulary ids of the tokens
+     * @return the trie
+     */
+    static TokenTrie build(int[] tokens) {
+        Vocabulary vocabulary = Vocabulary.getGlobal();
+        String[] strings = new String[tokens.length];
+        int n = 0;
+        for (int code : tokens)
+            if (code != Vocabulary.UNKNOWN)
+                strings[n++] = vocabulary.get(code);
+        strings = Arrays.copyOf(strings, n);
+        Arrays.sort(strings);
+
+        TCharArrayList labels      = new TCharArrayList();
+        TIntArrayList  firstChild  = new TIntArrayList();
+        TIntArrayList  nextSibling = new TIntArrayList();
+        TIntArrayList  lastChild   = new TIntArrayList();
+        TIntArrayList  codes       = new TIntArrayList();
+        labels.add('\0');
+        firstChild.add(NONE);
+        nextSibling.add(NONE);
+        lastChild.add(NONE);
+        codes.add(NONE);
+
+        // In sorted order, each token shares the path of the one before it up to their common prefix
+        int[] path = new int[16];
+        String previous = "";
+        for (String s : strings) {
+            int depth = 0;
+            while (depth < s.length() && depth < previous.length() && s.charAt(depth) == previous.charAt(depth))
+                depth++;
+            for (int i = depth; i < s.length(); i++) {
+                int parent = path[i], node = labels.size();
+                labels.add(s.charAt(i));
+                firstChild.add(NONE);
+                nextSibling.add(NONE);
+                lastChild.add(NONE);
+                codes.add(NONE);
+                if (lastChild.get(parent) == NONE)
+                    firstChild.set(parent, node);
+                else
+                    nextSibling.set(lastChild.get(parent), node);
+                lastChild.set(parent, node);
+                if (i + 1 == path.length)
+                    path = Arrays.copyOf(path, path.length * 2);
+                path[i + 1] = node;
+            }
+            codes.set(path[s.length()], vocabulary.lookup(s));
+            previous = s;
+        }
+        return new TokenTrie(labels.toArray(), firstChild.toArray(), nextSibling.toArray(), codes.toArray());
+    }
+
+    private TokenTrie(char[] labels, int[] firstChild, int[] nextSibling, int[] codes) {
+        this.labels      = labels;
+        this.firstChild  = firstChild;
+        this.nextSibling = nextSibling;
+        this.codes       = codes;
+    }
+
+    /**
+     * Finds the tokens an automaton accepts.
+     * @param automaton the automaton
+     * @param found receives the global vocabulary id of each token accepted, in no particular order
+     */
+    void find(LevenshteinAutomaton automaton, IntConsumer found) {
+        TIntArrayList stack = new TIntArrayList();    // Node, state pairs
+        stack.add(0);
+        stack.add(automaton.start());
+        while (!stack.isEmpty()) {
+            int state = stack.removeAt(stack.size() - 1), node = stack.removeAt(stack.size() - 1);
+            if (codes[node] != NONE && automaton.isAccepting(state))
+                found.accept(codes[node]);
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                int next = automaton.step(state, labels[child]);
+                if (next != LevenshteinAutomaton.DEAD) {
+                    stack.add(child);
+                    stack.add(next);
+                }
+            }
+        }
+    }
+}
@@ -14,10 +14,13 @@ import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
 import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
 import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
 import org.bierner.matchbook.matcher.ExpressionFactory;
+import org.bierner.matchbook.matcher.LevenshteinAutomaton;
 import org.bierner.matchbook.matcher.realtime.expr.AnnotationExpression;
 import org.bierner.matchbook.matcher.realtime.expr.CaptureExpression;
 import org.bierner.matchbook.matcher.realtime.expr.CompoundExpression;
+import org.bierner.matchbook.matcher.realtime.expr.ConceptExpression;
 import org.bierner.matchbook.matcher.realtime.expr.Expression;
+import org.bierner.matchbook.matcher.realtime.expr.FuzzyExpression;
 import org.bierner.matchbook.matcher.realtime.expr.RegexExpression;
 import org.bierner.matchbook.matcher.realtime.expr.RepeatExpression;
 import org.bierner.matchbook.matcher.realtime.expr.WithExpression;
@@ -93,6 +96,18 @@ public class RealtimeExpressionFactory extends ExpressionFactory<Expression> {
         return new RegexExpression(regexp);
     }
 
+    @Override
+    public FuzzyExpression fuzzy(String token, int distance) {
+        if (distance < 0 || distance > LevenshteinAutomaton.MAX_DISTANCE)
+            throw new IllegalArgumentException("Edit distance must be from 0 to " + LevenshteinAutomaton.MAX_DISTANCE + ": " + distance);
+        return new FuzzyExpression(token, distance);
+    }
+
+    @Override
+    public ConceptExpression concept(String concept) {
+        return new ConceptExpression(concept);
+    }
+
     // This is a simple test main to parse using this factory.
     public static void main(String[] args) {
         SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
@@ -4,19 +4,25 @@
 
 package org.bierner.matchbook.matcher.realtime.expr;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.bierner.matchbook.analyzer.Annotation;
+import org.bierner.matchbook.analyzer.Vocabulary;
 
 /**
  * An annotation expression as defined in the matchbook grammar in Matchbook.g.
  * @author gann
  */
-@AllArgsConstructor
 public class AnnotationExpression implements Expression {
 
     @Getter private String type;
     @Getter private String value;
+    @Getter private int    valueCode;  // The value's id in the global vocabulary or Vocabulary.UNKNOWN if there is no value
+
+    public AnnotationExpression(String type, String value) {
+        this.type      = type;
+        this.value     = value;
+        this.valueCode = value == null? Vocabulary.UNKNOWN : Vocabulary.getGlobal().intern(value);
+    }
 
     @Override
     public void accept(ExpressionVisitor visitor) {
@@ -33,6 +39,8 @@ public class AnnotationExpression implements Expression {
                     return "''" + value + "''";
                 case Annotation.TOKEN:
                     return '"' + value + '"';
+                case Annotation.NORM:
+                    return '`' + value + '`';
                 case Annotation.CONCEPT:
                     return '<' + value + '>';
                 case Annotation.CHUNK:
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.realtime.expr;
+
+import lombok.Data;
+
+/**
+ * An expression that matches mentions of a concept or of any concept that is a kind of it, as in <code>&lt;dog&gt;</code>.
+ * It is evaluated from the CONCEPT annotations and the ontology's {@link org.bierner.matchbook.analyzer.ontology.Ancestors},
+ * so sentences need no ANCESTOR_CONCEPT annotations.
+ * @author gann
+ */
+@Data
+public class ConceptExpression implements Expression {
+    private final String concept;
+
+    @Override
+    public String toString() {
+        return "<" + concept + ">";
+    }
+
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
@@ -14,4 +14,6 @@ public interface ExpressionVisitor {
     void visit(RepeatExpression expr);
     void visit(WithExpression expr);
     void visit(RegexExpression expr);
+    void visit(ConceptExpression expr);
+    void visit(FuzzyExpression expr);
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.matcher.realtime.expr;
+
+import lombok.Data;
+
+/**
+ * An expression that matches tokens within an edit distance of a token, as in <code>~"recieve"~1</code>.  The edits
+ * are inserting, deleting or substituting a character or transposing two adjacent ones.
+ * @author gann
+ */
+@Data
+public class FuzzyExpression implements Expression {
+    private final String token;
+    private final int    distance;
+
+    @Override
+    public String toString() {
+        return "~\"" + token + "\"~" + distance;
+    }
+
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
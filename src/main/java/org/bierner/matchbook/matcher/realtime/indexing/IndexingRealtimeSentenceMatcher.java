@@ -5,19 +5,23 @@
 package org.bierner.matchbook.matcher.realtime.indexing;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Table;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.THashSet;
+import gnu.trove.set.hash.TIntHashSet;
 import lombok.*;
 import lombok.experimental.Accessors;
 import lombok.experimental.ExtensionMethod;
-import org.bierner.matchbook.analyzer.Annotation;
 import org.bierner.matchbook.analyzer.AnnotationType;
 import org.bierner.matchbook.analyzer.Annotations;
 import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.Vocabulary;
+import org.bierner.matchbook.analyzer.ontology.Ancestors;
+import org.bierner.matchbook.analyzer.ontology.Ontology;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
 import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.bierner.matchbook.matcher.LevenshteinAutomaton;
 import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
 import org.bierner.matchbook.matcher.realtime.expr.*;
 
@@ -39,12 +43,21 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
     @NonNull private final VectorFactory vectorFactory;  // An implementation of vector operations
 
     // A map containing just those elements that are required to be indexed for matching purposes.
-    // The map is from annotation type to annotation value.
-    private HashMultimap<String, String> idsToMatch = HashMultimap.create();
+    // The map is from annotation type to the global vocabulary ids of the annotation values.
+    private Map<String, TIntSet> idsToMatch = new HashMap<>();
+
+    // Annotation types that are matched regardless of their value
+    private Set<String> typesToMatch = new THashSet<>();
 
     // Regular expressions to match against tokens
     private Set<String> regexpsToMatch;
 
+    // Concepts whose mentions, or mentions of their descendants, are matched from the concept annotations
+    private Set<String> conceptsToMatch;
+
+    // Approximate matchers for fuzzy tokens
+    private Map<FuzzyExpression, FuzzyMatcher> fuzzyToMatch;
+
     ///////////////////////////////////////////////////////////////////////////
     // Construction
     ///////////////////////////////////////////////////////////////////////////
@@ -94,13 +107,26 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
         for (Expression expr : exprs) {
             expr.accept(new ExpressionVisitor() {
                 @Override public void visit(AnnotationExpression expr) {
-                    idsToMatch.put(expr.getType(), expr.getValue());
+                    if (expr.getValue() == null)
+                        typesToMatch.add(expr.getType());
+                    else
+                        idsToMatch.computeIfAbsent(expr.getType(), t -> new TIntHashSet()).add(expr.getValueCode());
                 }
                 @Override public void visit(RegexExpression expr) {
                     if (regexpsToMatch == null)
                         regexpsToMatch = new THashSet<>();
                     regexpsToMatch.add(expr.getRegex());
                 }
+                @Override public void visit(ConceptExpression expr) {
+                    if (conceptsToMatch == null)
+                        conceptsToMatch = new THashSet<>();
+                    conceptsToMatch.add(expr.getConcept());
+                }
+                @Override public void visit(FuzzyExpression expr) {
+                    if (fuzzyToMatch == null)
+                        fuzzyToMatch = new HashMap<>();
+                    fuzzyToMatch.computeIfAbsent(expr, e -> new FuzzyMatcher(new LevenshteinAutomaton(e.getToken(), e.getDistance())));
+                }
                 @Override public void visit(CaptureExpression expr) { }
                 @Override public void visit(CompoundExpression expr) { }
                 @Override public void visit(RepeatExpression expr) { }
@@ -116,7 +142,7 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
     @Override
     public Matches match(Sentence sentence) {
         // Index the sentence
-        Table<String, String, Vector> index = index(sentence);
+        SentenceIndex index = index(sentence);
 
         // Build vectors of results from the expressions
         List<Vector> vectors = new ArrayList<>(exprs.size());
@@ -138,7 +164,7 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
      */
     public List<Matches> matchIndividually(Sentence sentence) {
         // Index the sentence
-        Table<String, String, Vector> index = index(sentence);
+        SentenceIndex index = index(sentence);
 
         // Build vectors of results from the expressions
         List<Matches> matches = new ArrayList<>(exprs.size());
@@ -153,50 +179,165 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
         return matches;
     }
 
+    // The positions of the sentence annotations relevant to the accepting expressions
+    private static class SentenceIndex {
+        private final Map<String, TIntObjectHashMap<Vector>> values   = new HashMap<>();  // Annotation Type Name x Annotation Id -> Vector
+        private final Map<String, Vector>                    types    = new HashMap<>();  // Annotation Type Name -> Vector
+        private final Map<String, Vector>                    regexs   = new HashMap<>();  // Regex -> Vector
+        private final Map<String, Vector>                    concepts = new HashMap<>();  // Concept Id -> Vector
+        private final Map<FuzzyExpression, Vector>           fuzzy    = new HashMap<>();  // Fuzzy Token -> Vector
+
+        Vector get(String type, int id) {
+            TIntObjectHashMap<Vector> vectors = values.get(type);
+            return vectors == null? null : vectors.get(id);
+        }
+    }
+
     // Save the positions of all the sentence annotations that could possibly be relevant to the
-    // accepting expressions.
-    private Table<String, String, Vector> index(Sentence sentence) {
-        Table<String, String, Vector> index = HashBasedTable.create(); // Annotation Type Name x Annotation Id -> Vector
-        for (String typeName : idsToMatch.keySet()) {
-            Set<String> ids = idsToMatch.get(typeName);
-            AnnotationType<?> type = AnnotationType.getType(typeName);
-            Annotations<?> annotations = sentence.getAnnotations(type);
-            if (annotations != null) {
-                for (Annotation<?> annotation : annotations) {
-                    if (ids.contains(annotation.getId())) {
-                        Vector v = index.get(typeName, annotation.getId());
-                        if (v == null)
-                            index.put(typeName, annotation.getId(), v = vectorFactory.newInstance());
-                        v.add(annotation.getStart(), annotation.getEnd());
-                    }
-                    if (ids.contains(null)) {
-                        Vector v = index.get(typeName, "");
-                        if (v == null)
-                            index.put(typeName, "", v = vectorFactory.newInstance());
-                        v.add(annotation.getStart(), annotation.getEnd());
-                    }
+    // accepting expressions.  This uses the primitive accessors on Annotations so that no annotation
+    // objects are created.
+    private SentenceIndex index(Sentence sentence) {
+        SentenceIndex index = new SentenceIndex();
+
+        for (Map.Entry<String, TIntSet> entry : idsToMatch.entrySet()) {
+            String typeName = entry.getKey();
+            TIntSet ids = entry.getValue();
+            Annotations<?> annotations = sentence.getAnnotations(AnnotationType.getType(typeName));
+            if (annotations == null)
+                continue;
+
+            TIntObjectHashMap<Vector> vectors = new TIntObjectHashMap<>();
+            for (int i = 0, size = annotations.size(); i < size; i++) {
+                int id = annotations.getIdCode(i);
+                if (ids.contains(id)) {
+                    Vector v = vectors.get(id);
+                    if (v == null)
+                        vectors.put(id, v = vectorFactory.newInstance());
+                    v.add(annotations.getStart(i), annotations.getEnd(i));
                 }
             }
+            index.values.put(typeName, vectors);
         }
 
-        if (regexpsToMatch != null)
+        for (String typeName : typesToMatch) {
+            Annotations<?> annotations = sentence.getAnnotations(AnnotationType.getType(typeName));
+            if (annotations != null) {
+                Vector v = vectorFactory.newInstance();
+                annotations.forEach((i, start, end) -> v.add(start, end));
+                index.types.put(typeName, v);
+            }
+        }
+
+        if (regexpsToMatch != null) {
+            Annotations<String> tokens = sentence.getAnnotations(AnnotationType.TOKEN);
             for (String regex: regexpsToMatch) {
                 Matcher m = Pattern.compile(regex).matcher("");
-                for (Annotation<?> annotation : sentence.getAnnotations(AnnotationType.TOKEN)) {
-                    m.reset(annotation.getId());
-                    String id = "/" + regex + "/";
+                Vector v = null;
+                for (int i = 0, size = tokens.size(); i < size; i++) {
+                    m.reset(tokens.getId(i));
                     if (m.matches()) {
-                        Vector v = index.get(Annotation.TOKEN, id);
                         if (v == null)
-                            index.put(Annotation.TOKEN, id, v = vectorFactory.newInstance());
-                        v.add(annotation.getStart(), annotation.getEnd());
+                            index.regexs.put(regex, v = vectorFactory.newInstance());
+                        v.add(tokens.getStart(i), tokens.getEnd(i));
                     }
                 }
             }
+        }
+
+        if (fuzzyToMatch != null)
+            indexFuzzy(sentence, index);
+
+        if (conceptsToMatch != null)
+            indexConcepts(sentence, index);
 
         return index;
     }
 
+    // Matches fuzzy tokens against each token, using what each matcher remembers about tokens it has seen before
+    private void indexFuzzy(Sentence sentence, SentenceIndex index) {
+        Annotations<String> tokens = sentence.getAnnotations(AnnotationType.TOKEN);
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = tokens.getIdCode(i);
+
+        for (Map.Entry<FuzzyExpression, FuzzyMatcher> entry : fuzzyToMatch.entrySet()) {
+            FuzzyMatcher matcher = entry.getValue();
+            Vector v = null;
+            for (int i = 0; i < ids.length; i++) {
+                if (matcher.matches(ids[i], tokens, i)) {
+                    if (v == null)
+                        index.fuzzy.put(entry.getKey(), v = vectorFactory.newInstance());
+                    v.add(tokens.getStart(i), tokens.getEnd(i));
+                }
+            }
+        }
+    }
+
+    // An automaton and its answer for each token of the global vocabulary it has seen.  Threads racing to grow the
+    // memo may lose each other's answers, which are simply computed again.
+    private static final class FuzzyMatcher {
+        private static final byte UNSEEN   = 0;
+        private static final byte MATCH    = 1;
+        private static final byte MISMATCH = 2;
+
+        private final LevenshteinAutomaton automaton;
+        private volatile byte[]            memo = new byte[1024];    // Global vocabulary id -> Answer
+
+        FuzzyMatcher(LevenshteinAutomaton automaton) {
+            this.automaton = automaton;
+        }
+
+        boolean matches(int id, Annotations<String> tokens, int i) {
+            if (id == Vocabulary.UNKNOWN)
+                return automaton.matches(tokens.getId(i));
+
+            byte[] m = memo;
+            if (id < m.length && m[id] != UNSEEN)
+                return m[id] == MATCH;
+
+            boolean matches = automaton.matches(tokens.getId(i));
+            if (id >= m.length)
+                memo = m = Arrays.copyOf(m, Math.max(id + 1, m.length * 2));
+            m[id] = matches? MATCH : MISMATCH;
+            return matches;
+        }
+    }
+
+    // Matches concept expressions against each concept mention using the ancestors of the mentioned concept
+    private void indexConcepts(Sentence sentence, SentenceIndex index) {
+        Annotations<Concept> concepts = sentence.getAnnotations(AnnotationType.CONCEPT);
+        if (concepts == null)
+            return;
+
+        Map<String, Concept> targets   = new HashMap<>();
+        Ontology             ontology  = null;
+        Ancestors            ancestors = null;
+        for (int i = 0, size = concepts.size(); i < size; i++) {
+            // A sentence decoded without its ontology has concept ids but no concepts, so only exact mentions match
+            String mention = concepts.getId(i);
+            Concept concept = concepts.get(i).getValue();
+            if (concept != null && concept.getOntology() != ontology) {
+                ontology  = concept.getOntology();
+                ancestors = ontology == null? null : ontology.getAncestors();
+            }
+            for (String id : conceptsToMatch) {
+                boolean matches = id.equals(mention);
+                if (!matches && concept != null && ancestors != null) {
+                    Concept target = targets.get(id);
+                    if (target == null || target.getOntology() != ontology)
+                        targets.put(id, target = ontology.getEntity(Concept.class, id));
+                    matches = target != null && ancestors.isa(concept, target);
+                }
+                if (matches) {
+                    Vector v = index.concepts.get(id);
+                    if (v == null)
+                        index.concepts.put(id, v = vectorFactory.newInstance());
+                    v.add(concepts.getStart(i), concepts.getEnd(i));
+                }
+            }
+        }
+    }
+
     // A class to traverse the accepting expressions and build up a vector of matches along the way.
     @RequiredArgsConstructor
     @ExtensionMethod(SentenceUtilities.class)
@@ -205,7 +346,7 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
         // the results are saved while traversing the accepting expression.
         private IdentityHashMap<Expression, Vector> vectors = new IdentityHashMap<>();
 
-        @NonNull private Table<String, String, Vector> index;    // The index of the sentence to match
+        @NonNull private SentenceIndex                 index;    // The index of the sentence to match
         @NonNull private VectorFactory                 factory;  // Vector operation implementation
         @NonNull private Sentence                      sentence; // The sentence to match
 
@@ -221,7 +362,7 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
 
         @Override
         public void visit(AnnotationExpression expr) {
-            Vector v = index.get(expr.getType(), expr.getValue() == null? "" : expr.getValue());
+            Vector v = expr.getValue() == null? index.types.get(expr.getType()) : index.get(expr.getType(), expr.getValueCode());
             vectors.put(expr, v == null? vectorFactory.emptyInstance() : v);
         }
 
@@ -256,7 +397,19 @@ public class IndexingRealtimeSentenceMatcher implements RealtimeSentenceMatcher
 
         @Override
         public void visit(RegexExpression expr) {
-            Vector v = index.get(Annotation.TOKEN, "/" + expr.getRegex() + "/");
+            Vector v = index.regexs.get(expr.getRegex());
+            vectors.put(expr, v == null? vectorFactory.emptyInstance() : v);
+        }
+
+        @Override
+        public void visit(ConceptExpression expr) {
+            Vector v = index.concepts.get(expr.getConcept());
+            vectors.put(expr, v == null? vectorFactory.emptyInstance() : v);
+        }
+
+        @Override
+        public void visit(FuzzyExpression expr) {
+            Vector v = index.fuzzy.get(expr);
             vectors.put(expr, v == null? vectorFactory.emptyInstance() : v);
         }
     }
@@ -5,7 +5,6 @@
 package org.bierner.matchbook.parser;
 
 import com.google.common.base.Function;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,8 +19,10 @@ import org.antlr.v4.runtime.tree.ParseTreeProperty;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.bierner.matchbook.analyzer.Analyzer;
 import org.bierner.matchbook.analyzer.Annotation;
+import org.bierner.matchbook.analyzer.misc.TokenNormalizer;
 import org.bierner.matchbook.analyzer.util.SentenceUtilities;
 import org.bierner.matchbook.matcher.ExpressionFactory;
+import org.bierner.matchbook.matcher.LevenshteinAutomaton;
 
 /**
  * Given an {@link ExpressionFactory}, this class will traverse a matchbook expression and build up
@@ -64,12 +65,25 @@ public class ExpressionListener<T> implements MatchbookListener {
         exprs.put(ctx, exprFactory.regexp(ctx.getText().substring(1, ctx.getText().length()-1)));
     }
 
+    @Override public void enterFuzzy(MatchbookParser.FuzzyContext ctx) { }
+    @Override public void exitFuzzy(MatchbookParser.FuzzyContext ctx) {
+        // ~"text"~distance, where each token of the text is matched approximately
+        String text = ctx.getText();
+        int close = text.lastIndexOf('"');
+        String digits = text.substring(close + 2);
+        int distance = digits.length() > 9? Integer.MAX_VALUE : Integer.parseInt(digits);
+        if (distance > LevenshteinAutomaton.MAX_DISTANCE)
+            throw new IllegalArgumentException("Edit distance must be from 0 to " + LevenshteinAutomaton.MAX_DISTANCE + ": " + text);
+        List<T> tokens = new ArrayList<>();
+        for (String token : analyzer.getSentence(text.substring(2, close)).getTokens())
+            tokens.add(exprFactory.fuzzy(token, distance));
+        exprs.put(ctx, tokens.size() == 1? tokens.get(0) : exprFactory.sequence(tokens));
+    }
+
     @Override public void enterConcept(MatchbookParser.ConceptContext ctx) { }
     @Override public void exitConcept(MatchbookParser.ConceptContext ctx) {
         String concept = ctx.getText().substring(1, ctx.getText().length()-1);
-        exprs.put(ctx, exprFactory.or(new ImmutableList.Builder<T>().
-                add(exprFactory.annotation(Annotation.CONCEPT, concept)).
-                add(exprFactory.annotation(Annotation.ANCESTOR_CONCEPT, concept)).build()));
+        exprs.put(ctx, exprFactory.concept(concept));
     }
 
     @Override public void enterExactConcept(MatchbookParser.ExactConceptContext ctx) { }
@@ -115,6 +129,15 @@ public class ExpressionListener<T> implements MatchbookListener {
         exprs.put(ctx, stringSequence(analyzer.getSentence(text).getTokens(), Annotation.TOKEN));
     }
 
+    @Override public void enterNormTokens(MatchbookParser.NormTokensContext ctx) { }
+    @Override public void exitNormTokens(MatchbookParser.NormTokensContext ctx) {
+        String text = ctx.getText().substring(1, ctx.getText().length() - 1);
+        List<String> norms = new ArrayList<>();
+        for (String token : analyzer.getSentence(text).getTokens())
+            norms.add(TokenNormalizer.normalize(token));
+        exprs.put(ctx, stringSequence(norms, Annotation.NORM));
+    }
+
     @Override public void enterStems(MatchbookParser.StemsContext ctx) { }
     @Override @SuppressWarnings("unchecked")
     public void exitStems(MatchbookParser.StemsContext ctx) {
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+
+package org.bierner.matchbook.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher.Matches;
+
+/**
+ * Runs documents through sentence detection, annotation and matching on a set of worker pools, returning the results
+ * for each document in the order the documents were given.
+ * <p/>
+ * Each {@link Stage} has its own pool whose size can be configured.  Sentence detection is done per document, while
+ * annotation and matching are done per sentence so that a long document is spread across the workers.  At most
+ * {@link DocumentPipelineBuilder#queueSize(int) queueSize} documents are in flight at once: when the caller falls behind
+ * in consuming results, reading of new documents stops until it catches up.  Memory use is therefore bounded by the
+ * queue size rather than by the number of documents.
+ * <p/>
+ * Annotations are computed lazily by matching, so the annotation stage only does work if types to precompute are
+ * requested with {@link DocumentPipelineBuilder#annotate(AnnotationType...)}.  This can be useful to spread expensive
+ * annotators across a separate pool.
+ * <p/>
+ * For example,
+ * <pre>
+ * try (DocumentPipeline&lt;String&gt; pipeline = DocumentPipeline.&lt;String&gt;builder(s -&gt; s).
+ *         analyzer(analyzer).matcher(matcher).matchThreads(8).build()) {
+ *     pipeline.process(documents).forEach(result -&gt; ...);
+ * }
+ * </pre>
+ *
+ * @param <D> the type of document
+ * @author gann
+ */
+public class DocumentPipeline<D> implements AutoCloseable {
+    /**
+     * The stages of the pipeline.
+     */
+    public enum Stage { SPLIT, ANNOTATE, MATCH }
+
+    private static final long WAIT_MILLIS = 100;     // How often blocked threads check for cancellation
+
+    private final Analyzer                analyzer;
+    private final RealtimeSentenceMatcher matcher;
+    private final Function<D, String>     text;
+    private final AnnotationType<?>[]     annotationTypes;
+    private final int                     queueSize;
+
+    private final Map<Stage, ExecutorService> executors = new EnumMap<>(Stage.class);
+    private final Map<Stage, StageCounter>    counters  = new EnumMap<>(Stage.class);
+    private final Set<ResultIterator>         live      = ConcurrentHashMap.newKeySet();
+    private volatile boolean                  closed;
+
+    private DocumentPipeline(DocumentPipelineBuilder<D> builder) {
+        this.analyzer        = builder.analyzer;
+        this.matcher         = builder.matcher;
+        this.text            = builder.text;
+        this.annotationTypes = builder.annotationTypes;
+        this.queueSize       = builder.queueSize;
+
+        for (Stage stage : Stage.values())
+            counters.put(stage, new StageCounter());
+        executors.put(Stage.SPLIT,    Executors.newFixedThreadPool(builder.splitThreads,    threadFactory(Stage.SPLIT)));
+        executors.put(Stage.MATCH,    Executors.newFixedThreadPool(builder.matchThreads,    threadFactory(Stage.MATCH)));
+        if (annotationTypes.length > 0)
+            executors.put(Stage.ANNOTATE, Executors.newFixedThreadPool(builder.annotateThreads, threadFactory(Stage.ANNOTATE)));
+    }
+
+    private static ThreadFactory threadFactory(Stage stage) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "matchbook-" + stage.name().toLowerCase() + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Results
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * The matches found in one document.
+     * @param <D> the type of document
+     */
+    @Value
+    public static class DocumentResult<D> {
+        D                    document;
+        long                 index;       // The position of the document in the input
+        List<SentenceResult> sentences;
+    }
+
+    /**
+     * The matches found in one sentence.
+     */
+    @Value
+    public static class SentenceResult {
+        Sentence sentence;
+        Matches  matches;
+    }
+
+    /**
+     * Throughput counters for one stage.
+     */
+    public static class StageCounter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        /**
+         * Returns the number of items (documents for {@link Stage#SPLIT}, sentences otherwise) processed by the stage.
+         * @return an item count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the total time spent by the stage's workers, summed over all workers.
+         * @return a time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        /**
+         * Returns the number of items processed per second of worker time.
+         * @return a throughput
+         */
+        public double getThroughput() {
+            long n = nanos.sum();
+            return n == 0? 0 : count.sum() * 1e9 / n;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d items, %.1f items/s", getCount(), getThroughput());
+        }
+
+        private <T> T time(Supplier<T> work) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                nanos.add(System.nanoTime() - start);
+                count.increment();
+            }
+        }
+    }
+
+    /**
+     * Returns the throughput counters of a stage.
+     * @param stage
+     * @return the counters
+     */
+    public StageCounter getCounter(Stage stage) {
+        return counters.get(stage);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Processing
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Processes documents, returning their results in order.  Documents are read from the iterator on a separate
+     * thread as room becomes available in the pipeline, so the iterator need not be thread-safe but should not be
+     * used by the caller until the returned stream is exhausted or closed.  Closing the stream, or the pipeline, stops
+     * the reading of documents.
+     *
+     * @param documents the documents to process
+     * @return a stream of results in the order of the documents
+     */
+    public Stream<DocumentResult<D>> process(@NonNull Iterator<? extends D> documents) {
+        if (closed)
+            throw new IllegalStateException("The pipeline is closed");
+        ResultIterator results = new ResultIterator(documents);
+        live.add(results);
+        if (closed)
+            results.cancel();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false).
+                onClose(results::cancel);
+    }
+
+    /**
+     * Processes documents, returning their results in order.
+     * @param documents the documents to process
+     * @return a stream of results in the order of the documents
+     * @see #process(java.util.Iterator)
+     */
+    public Stream<DocumentResult<D>> process(@NonNull Iterable<? extends D> documents) {
+        return process(documents.iterator());
+    }
+
+    private CompletableFuture<DocumentResult<D>> submit(D document, long index) {
+        return CompletableFuture.
+                supplyAsync(() -> counters.get(Stage.SPLIT).time(() -> analyzer.getSentences(text.apply(document))), executors.get(Stage.SPLIT)).
+                thenCompose(sentences -> {
+                    List<CompletableFuture<SentenceResult>> futures = new ArrayList<>(sentences.size());
+                    for (Sentence sentence : sentences)
+                        futures.add(submit(sentence));
+                    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v -> {
+                        List<SentenceResult> results = new ArrayList<>(futures.size());
+                        for (CompletableFuture<SentenceResult> future : futures)
+                            results.add(future.join());
+                        return new DocumentResult<>(document, index, results);
+                    });
+                });
+    }
+
+    private CompletableFuture<SentenceResult> submit(Sentence sentence) {
+        CompletableFuture<Sentence> annotated = annotationTypes.length == 0? CompletableFuture.completedFuture(sentence) :
+                CompletableFuture.supplyAsync(() -> counters.get(Stage.ANNOTATE).time(() -> {
+                    for (AnnotationType<?> type : annotationTypes)
+                        sentence.getAnnotations(type);
+                    return sentence;
+                }), executors.get(Stage.ANNOTATE));
+
+        return annotated.thenApplyAsync(s -> counters.get(Stage.MATCH).time(() -> new SentenceResult(s, matcher.match(s))),
+                executors.get(Stage.MATCH));
+    }
+
+    // Feeds documents into the pipeline on its own thread and hands out their results in order.  The bounded queue of
+    // pending results provides the backpressure.  Both threads wait on the queue with a timeout so that they notice
+    // cancellation, after which every result not yet handed out fails with a CancellationException.
+    private class ResultIterator implements Iterator<DocumentResult<D>> {
+        private final BlockingQueue<CompletableFuture<DocumentResult<D>>> pending = new ArrayBlockingQueue<>(queueSize);
+        private final CompletableFuture<DocumentResult<D>>                end     = CompletableFuture.completedFuture(null);
+        private final Thread                                              feeder;
+        private volatile CompletableFuture<DocumentResult<D>>             next;
+        private volatile boolean                                          cancelled;
+
+        ResultIterator(Iterator<? extends D> documents) {
+            feeder = new Thread(() -> {
+                long index = 0;
+                try {
+                    while (!cancelled && documents.hasNext())
+                        offer(submit(documents.next(), index++));
+                    offer(end);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    CompletableFuture<DocumentResult<D>> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    try {
+                        offer(failed);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "matchbook-feeder");
+            feeder.setDaemon(true);
+            feeder.start();
+        }
+
+        private void offer(CompletableFuture<DocumentResult<D>> future) throws InterruptedException {
+            while (!pending.offer(future, WAIT_MILLIS, TimeUnit.MILLISECONDS))
+                if (cancelled) {
+                    fail(future);
+                    return;
+                }
+            if (cancelled)
+                fail(future);
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    if (cancelled)
+                        throw new CancellationException("The pipeline was closed");
+                    next = pending.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for results", e);
+            }
+            if (cancelled)
+                fail(next);
+            if (next == end)
+                live.remove(this);
+            return next != end;
+        }
+
+        @Override
+        public DocumentResult<D> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            // The result stays in next while waiting for it so that cancelling fails it
+            try {
+                return next.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException? (RuntimeException) e.getCause() : e;
+            } finally {
+                next = null;
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            live.remove(this);
+            feeder.interrupt();
+            CompletableFuture<DocumentResult<D>> future = next;
+            if (future != null)
+                fail(future);
+            while ((future = pending.poll()) != null)
+                fail(future);
+        }
+
+        private void fail(CompletableFuture<DocumentResult<D>> future) {
+            future.completeExceptionally(new CancellationException("The pipeline was closed"));
+        }
+    }
+
+    /**
+     * Stops the workers.  Documents still in the pipeline are abandoned: iterating over a stream returned by
+     * {@link #process(java.util.Iterator) process} throws a {@link CancellationException} for any result not already
+     * handed out, and no more documents are read.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ResultIterator results : live)
+            results.cancel();
+        for (ExecutorService executor : executors.values())
+            executor.shutdownNow();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Construction
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Gets a new builder for a pipeline.
+     * @param <D> the type of document
+     * @param text a function to obtain the text of a document
+     * @return a builder
+     */
+    public static <D> DocumentPipelineBuilder<D> builder(@NonNull Function<D, String> text) {
+        return new DocumentPipelineBuilder<>(text);
+    }
+
+    /**
+     * A builder for pipelines.  The analyzer and matcher are required.  Each stage defaults to one thread per
+     * available processor.
+     * @param <D> the type of document
+     */
+    @Accessors(fluent = true, chain = true)
+    public static class DocumentPipelineBuilder<D> {
+        private final Function<D, String> text;
+        private AnnotationType<?>[]       annotationTypes = new AnnotationType<?>[0];
+
+        @Setter @NonNull private Analyzer                analyzer;
+        @Setter @NonNull private RealtimeSentenceMatcher matcher;
+        @Setter private int splitThreads    = Runtime.getRuntime().availableProcessors();
+        @Setter private int annotateThreads = Runtime.getRuntime().availableProcessors();
+        @Setter private int matchThreads    = Runtime.getRuntime().availableProcessors();
+        @Setter private int queueSize       = 4 * Runtime.getRuntime().availableProcessors();
+
+        private DocumentPipelineBuilder(Function<D, String> text) {
+            this.text = text;
+        }
+
+        /**
+         * Requests annotation types to compute in the annotation stage before matching.
+         * @param types the types to compute
+         * @return this builder
+         */
+        public DocumentPipelineBuilder<D> annotate(AnnotationType<?> ... types) {
+            annotationTypes = Arrays.copyOf(types, types.length);
+            return this;
+        }
+
+        public DocumentPipeline<D> build() {
+            if (analyzer == null || matcher == null)
+                throw new IllegalStateException("An analyzer and a matcher are required");
+            if (splitThreads < 1 || annotateThreads < 1 || matchThreads < 1 || queueSize < 1)
+                throw new IllegalArgumentException("Thread counts and queue size must be positive");
+            return new DocumentPipeline<>(this);
+        }
+    }
+}
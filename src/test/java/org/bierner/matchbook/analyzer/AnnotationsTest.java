@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.misc.BoundaryAnnotator;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class AnnotationsTest {
+
+    @Test
+    public void testPrimitiveAccessors() {
+        Annotations<String> tokens = new UnitAnnotations<>(Arrays.asList("a", "b"));
+        assertEquals(1, tokens.getStart(1));
+        assertEquals(2, tokens.getEnd(1));
+        assertEquals("b", tokens.getId(1));
+        assertEquals(Vocabulary.getGlobal().intern("b"), tokens.getIdCode(1));
+
+        Annotations<String> spans = new IdSpanAnnotations("NP", 2, 5);
+        assertEquals(2, spans.getStart(0));
+        assertEquals(5, spans.getEnd(0));
+        assertEquals("NP", spans.getId(0));
+        assertEquals(Vocabulary.getGlobal().lookup("NP"), spans.getIdCode(0));
+        assertEquals("NP", spans.get(0).getValue());
+    }
+
+    @Test
+    public void testLocalVocabulary() {
+        Vocabulary local = new Vocabulary();
+        local.intern("unseen-elsewhere");
+        IdAnnotations tokens = new IdAnnotations(Arrays.asList("unseen-elsewhere", "dog"), local);
+        assertEquals(local.lookup("dog"), tokens.getLocalIdCode(1));
+        assertEquals(Vocabulary.getGlobal().intern("dog"), tokens.getIdCode(1));
+        assertEquals("dog", tokens.getId(1));
+        assertEquals(Vocabulary.UNKNOWN, tokens.getIdCode(0));
+    }
+
+    @Test
+    public void testForEach() {
+        Analyzer analyzer = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                annotator(new BoundaryAnnotator()).
+                build();
+
+        List<Integer> spans = new ArrayList<>();
+        analyzer.getSentence("the dog barks").getAnnotations(AnnotationType.BOUNDARY).forEach((i, start, end) -> {
+            spans.add(start);
+            spans.add(end);
+        });
+        assertEquals(Arrays.asList(0, 0, 3, 3), spans);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(SentenceUtilities.class)
+public class CachingStemmerTest {
+
+    @Test
+    public void testCache() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingStemmer stemmer = new CachingStemmer(token -> { calls.incrementAndGet(); return token.substring(0, 3); }, 10);
+        assertEquals("dog", stemmer.stem("dogs"));
+        assertEquals("dog", stemmer.stem("dogs"));
+        assertSame(stemmer.stem("dogs"), stemmer.stem("dogged"));
+        assertEquals(2, calls.get());
+        assertEquals(2, stemmer.stats().missCount());
+        assertEquals(2, stemmer.stats().hitCount());
+    }
+
+    @Test
+    public void testPorterStemmer() {
+        PorterStemmer porter = new PorterStemmer(100);
+        Analyzer analyzer = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                annotator(porter).
+                build();
+
+        assertEquals(Arrays.asList("the", "dog", "bark"), analyzer.getSentence("The dogs barked").getStems());
+        assertEquals(Arrays.asList("dog", "bark", "loudli"), analyzer.getSentence("dogs barking loudly").getStems());
+        assertEquals(1, porter.getCache().stats().hitCount());
+        assertNull(new PorterStemmer(0).getCache());
+    }
+}
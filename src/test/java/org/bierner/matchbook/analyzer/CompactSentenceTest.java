@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.misc.SpaceAnnotator;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(SentenceUtilities.class)
+public class CompactSentenceTest {
+    private static final SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new SpaceAnnotator()).
+            annotator(new PorterStemmer()).
+            build();
+
+    @Test
+    public void testOffsets() {
+        CompactSentence sentence = (CompactSentence) analyzer.getSentence("My  dogs, barking.", CompactSentence::new);
+        assertEquals(Arrays.asList("My", "dogs", ",", "barking", "."), sentence.getTokens());
+        assertTrue(sentence.hasTokenOffsets());
+        assertEquals(4, sentence.getTokenStart(1));
+        assertEquals(8, sentence.getTokenEnd(1));
+        assertEquals("dogs", sentence.getTokenText(1).toString());
+        assertEquals("dogs, barking", sentence.subSentence(1, 4));
+        assertEquals("", sentence.subSentence(2, 2));
+    }
+
+    @Test
+    public void testIdLayers() {
+        CompactSentence s1 = (CompactSentence) analyzer.getSentence("dogs bark", CompactSentence::new);
+        CompactSentence s2 = (CompactSentence) analyzer.getSentence("the dogs", CompactSentence::new);
+        assertTrue(s1.getAnnotations(AnnotationType.STEM) instanceof IdAnnotations);
+        assertEquals(Arrays.asList("dog", "bark"), s1.getStems());
+
+        // Identical tokens share one instance
+        assertSame(s1.getTokens().get(0), s2.getTokens().get(1));
+        assertEquals(((IdAnnotations) s1.getAnnotations(AnnotationType.TOKEN)).getIdCode(0),
+                     ((IdAnnotations) s2.getAnnotations(AnnotationType.TOKEN)).getIdCode(1));
+    }
+
+    @Test
+    public void testSpaces() {
+        List<Boolean> spaces = analyzer.getSentence("My  dogs, barking.", CompactSentence::new).getAnnotationValues(AnnotationType.SPACE);
+        assertEquals(Arrays.asList(false, true, false, true, false), spaces);
+    }
+
+    @Test
+    public void testDroppedCharacters() {
+        // Tokenizes on hyphens as well as whitespace, dropping the hyphens
+        SimpleAnalyzer hyphenless = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(AnnotationType.TOKEN, sentence -> sentence.setAnnotations(AnnotationType.TOKEN, new UnitAnnotations<>(Arrays.asList(sentence.getText().split("[\\s-]+"))))).
+                annotator(new SpaceAnnotator()).
+                build();
+        List<Boolean> spaces = hyphenless.getSentence("well-known dogs - barking").getAnnotationValues(AnnotationType.SPACE);
+        assertEquals(Arrays.asList(false, false, true, true), spaces);
+    }
+}
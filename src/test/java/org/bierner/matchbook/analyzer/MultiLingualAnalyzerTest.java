@@ -7,6 +7,7 @@ import com.google.common.collect.Lists;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.AllArgsConstructor;
 import lombok.experimental.ExtensionMethod;
 import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
@@ -102,4 +103,32 @@ public class MultiLingualAnalyzerTest {
         Sentence sentence = newAnalyzer().getSentence("de: A b c");
         assertEquals(DEFAULT, sentence.getAnnotationValues(MULTI_TYPE).get(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLocalizeCached() {
+        MultiLingualAnalyzer analyzer = newAnalyzer();
+        assertSame(analyzer.localize(Locale.ENGLISH), analyzer.localize(Locale.ENGLISH));
+        assertSame(analyzer.localize(Locale.ENGLISH), analyzer.getSentence("en: A b c").getAnalyzer());
+    }
+
+    @Test
+    public void testPreload() {
+        AtomicInteger created = new AtomicInteger();
+        MultiLingualAnalyzer analyzer = MultiLingualAnalyzer.builder().
+                languageDetector(new TestLanguageDetector()).
+                sentenceDetector(BreakIteratorSentenceDetector.class).
+                annotator(Collections.singleton(MULTI_TYPE), Locale.ENGLISH, locale -> {
+                    created.incrementAndGet();
+                    return new GenericTestAnnotator(ENGLISH);
+                }).
+                annotator(Collections.singleton(MULTI_TYPE), Locale.FRENCH, locale -> {
+                    created.incrementAndGet();
+                    return new GenericTestAnnotator("FRENCH");
+                }).
+                preload().
+                build();
+        assertEquals(2, created.get());
+        assertEquals(ENGLISH, analyzer.getSentence("en: A b c").getAnnotationValues(MULTI_TYPE).get(0));
+        assertEquals(2, created.get());
+    }
+}
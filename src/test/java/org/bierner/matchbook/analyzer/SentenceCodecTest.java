@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.misc.BoundaryAnnotator;
+import org.bierner.matchbook.analyzer.misc.SpaceAnnotator;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(SentenceUtilities.class)
+public class SentenceCodecTest {
+    private static final AtomicInteger stems = new AtomicInteger();
+
+    private static final SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new SpaceAnnotator()).
+            annotator(AnnotationType.STEM, sentence -> {
+                stems.incrementAndGet();
+                new PorterStemmer().annotate(sentence);
+            }).
+            annotator(new BoundaryAnnotator()).
+            build();
+
+    private static final SentenceCodec codec = new SentenceCodec(AnnotationType.TOKEN, AnnotationType.STEM,
+                                                                 AnnotationType.SPACE, AnnotationType.BOUNDARY);
+
+    @Test
+    public void testRoundTrip() {
+        Sentence original = analyzer.getSentence("My  dogs, barking.");
+        byte[] bytes = codec.encode(original);
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 10);
+        buffer.position(5);
+        buffer.put(bytes).flip().position(5);
+        ByteBufferSentence sentence = codec.decode(buffer, analyzer);
+
+        assertEquals(bytes.length, sentence.getEncodedLength());
+        assertEquals(original.getText(), sentence.getText());
+        assertEquals(Locale.ENGLISH, sentence.getLocale());
+        assertEquals(original.getTokens(), sentence.getTokens());
+        assertEquals(Arrays.asList("my", "dog", ",", "bark", "."), sentence.getStems());
+        assertEquals(original.getAnnotationValues(AnnotationType.SPACE), sentence.getAnnotationValues(AnnotationType.SPACE));
+        assertTrue(sentence.getAnnotations(AnnotationType.TOKEN) instanceof IdAnnotations);
+
+        Annotations<String> boundaries = sentence.getAnnotations(AnnotationType.BOUNDARY);
+        Annotations<String> expected = original.getAnnotations(AnnotationType.BOUNDARY);
+        assertEquals(expected.size(), boundaries.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getId(i), boundaries.getId(i));
+            assertEquals(expected.getStart(i), boundaries.getStart(i));
+            assertEquals(expected.getEnd(i), boundaries.getEnd(i));
+            assertEquals(Vocabulary.getGlobal().lookup(expected.getId(i)), boundaries.getIdCode(i));
+        }
+    }
+
+    @Test
+    public void testStoredLayersAreNotRecomputed() {
+        byte[] bytes = codec.encode(analyzer.getSentence("The dogs barked."));
+        int before = stems.get();
+        ByteBufferSentence sentence = codec.decode(ByteBuffer.wrap(bytes), analyzer);
+        assertTrue(sentence.isStored(AnnotationType.STEM));
+        assertEquals(Arrays.asList("the", "dog", "bark", "."), sentence.getStems());
+        assertEquals(before, stems.get());
+    }
+
+    @Test
+    public void testMissingLayersUseAnalyzer() {
+        SentenceCodec tokensOnly = new SentenceCodec(AnnotationType.TOKEN);
+        ByteBufferSentence sentence = tokensOnly.decode(ByteBuffer.wrap(tokensOnly.encode(analyzer.getSentence("The dogs barked."))), analyzer);
+        assertFalse(sentence.isStored(AnnotationType.STEM));
+        assertTrue(sentence.hasAnnotation(AnnotationType.STEM));
+        assertEquals(Arrays.asList("the", "dog", "bark", "."), sentence.getStems());
+    }
+
+    @Test
+    public void testSpansAndNullIds() {
+        AnnotationType<String> type = AnnotationType.ENTITY;
+        Sentence original = new SimpleSentence("a b c d", Locale.FRENCH, analyzer) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Annotations<T> getAnnotations(AnnotationType<T> t) {
+                if (t != type)
+                    return super.getAnnotations(t);
+                return (Annotations<T>) new RangeAnnotations<>(Arrays.asList(
+                        new Annotation.SimpleAnnotation<>("x", "x", 2, 4),
+                        new Annotation.SimpleAnnotation<>(null, null, 1, 2),
+                        new Annotation.SimpleAnnotation<>("x", "x", 3, 3)));
+            }
+
+            @Override
+            public <T> boolean hasAnnotation(AnnotationType<T> t) {
+                return t == type || super.hasAnnotation(t);
+            }
+        };
+
+        SentenceCodec entities = new SentenceCodec(type);
+        Annotations<String> decoded = entities.decode(ByteBuffer.wrap(entities.encode(original)), analyzer).getAnnotations(type);
+        assertEquals(3, decoded.size());
+        assertEquals("x", decoded.getId(0));
+        assertNull(decoded.getId(1));
+        assertEquals(1, decoded.getStart(1));
+        assertEquals(2, decoded.getEnd(1));
+        assertEquals(3, decoded.getStart(2));
+        assertEquals(3, decoded.getEnd(2));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class SimpleSentenceTest {
+    public static final AnnotationType<Integer> COUNT_TYPE = new AnnotationType<>("COUNT", Integer.class);
+    static {
+        AnnotationType.registerAnnotator(CountingAnnotator.class, COUNT_TYPE);
+    }
+
+    public static class CountingAnnotator implements SentenceAnnotator {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void annotate(AnnotatableSentence sentence) {
+            int call = calls.incrementAndGet();
+            try {
+                Thread.sleep(20); // give other threads a chance to pile up on the pending annotation
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sentence.setAnnotations(COUNT_TYPE, new UnitAnnotations<>(Lists.newArrayList(call)));
+        }
+    }
+
+    @Test
+    public void testComputedOnce() throws Exception {
+        CountingAnnotator annotator = new CountingAnnotator();
+        SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(annotator).
+                build();
+
+        final Sentence sentence = analyzer.getSentence("A b c.");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Annotations<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++)
+                results.add(executor.submit((Callable<Annotations<Integer>>) () -> sentence.getAnnotations(COUNT_TYPE)));
+
+            Annotations<Integer> first = results.get(0).get();
+            for (Future<Annotations<Integer>> result : results)
+                assertSame(first, result.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, annotator.calls.get());
+        assertEquals(1, sentence.getAnnotations(COUNT_TYPE).get(0).getValue().intValue());
+    }
+
+    @Test
+    public void testTypeCreatedAfterSentence() {
+        SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new CountingAnnotator()).
+                build();
+
+        Sentence sentence = analyzer.getSentence("A b c.");
+        AnnotationType<String> late = new AnnotationType<>("LATE", String.class);
+        try {
+            sentence.getAnnotations(late);
+            fail("Expected an unsupported type");
+        } catch (UnsupportedOperationException e) {
+            // the failure is not cached, and the sentence still works for other types
+        }
+        assertEquals(1, sentence.getAnnotations(COUNT_TYPE).size());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class StreamingSentencesTest {
+    private static final SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            build();
+
+    private static String document() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 3 * StreamingSentences.WINDOW_SIZE; i++)
+            text.append("Sentence number ").append(i).append(" is about the caf\u00e9. ");
+        return text.toString();
+    }
+
+    private static List<String> texts(Stream<Sentence> sentences) {
+        return sentences.map(Sentence::getText).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testReader() {
+        String text = document();
+        assertEquals(texts(analyzer.getSentences(text).stream()), texts(analyzer.sentences(new StringReader(text))));
+    }
+
+    // An analyzer that only provides getSentences(String), changing the text of some sentences
+    private static Analyzer delegating(Predicate<String> normalize) {
+        return new Analyzer() {
+            @Override public Sentence getSentence(String text)        { return analyzer.getSentence(text); }
+            @Override public List<Sentence> getSentences(String text) {
+                return analyzer.getSentences(text).stream().
+                        map(s -> normalize.test(s.getText())? analyzer.getSentence(s.getText().toUpperCase(Locale.ROOT)) : s).
+                        collect(Collectors.toList());
+            }
+            @Override public <T> void applyAnnotations(AnnotatableSentence sentence, AnnotationType<T> type) { analyzer.applyAnnotations(sentence, type); }
+            @Override public <T> boolean provides(AnnotatableSentence sentence, AnnotationType<T> type)      { return analyzer.provides(sentence, type); }
+        };
+    }
+
+    @Test
+    public void testDefaultSegmenter() {
+        Analyzer delegating = delegating(s -> false);
+        String text = document();
+        assertEquals(texts(analyzer.getSentences(text).stream()), texts(delegating.sentences(new StringReader(text))));
+    }
+
+    @Test
+    public void testChangedText() {
+        // Sentences that can't be found in the window are carried over with the rest of its tail
+        Analyzer delegating = delegating(s -> s.matches(".*[13579] is.*"));
+        String text = document();
+        assertEquals(texts(delegating.getSentences(text).stream()), texts(delegating.sentences(new StringReader(text))));
+
+        // When no sentence can be found, windows are broken at their ends but no text is lost
+        Analyzer normalizing = delegating(s -> true);
+        List<String> sentences = texts(normalizing.sentences(new StringReader(text)));
+        assertTrue(sentences.size() > normalizing.getSentences(text).size());
+        assertEquals(text.toUpperCase(Locale.ROOT).replace(" ", ""), String.join("", sentences).replace(" ", ""));
+    }
+
+    @Test
+    public void testPath() throws IOException {
+        String text = document();
+        Path path = Files.createTempFile("matchbook", ".txt");
+        try {
+            Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+            try (Stream<Sentence> sentences = analyzer.sentences(path)) {
+                assertEquals(texts(analyzer.getSentences(text).stream()), texts(sentences));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testLongSentence() {
+        String text = Strings.repeat("word ", StreamingSentences.WINDOW_SIZE) + ". Done.";
+        List<String> sentences = texts(analyzer.sentences(new StringReader(text)));
+        assertEquals(text, String.join("", sentences));
+        assertEquals("Done.", sentences.get(sentences.size() - 1));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class VocabularyTest {
+
+    @Test
+    public void testIntern() {
+        Vocabulary vocabulary = new Vocabulary();
+        assertEquals(Vocabulary.UNKNOWN, vocabulary.lookup("dog"));
+        int dog = vocabulary.intern("dog");
+        assertEquals(dog, vocabulary.intern(new String("dog")));
+        assertEquals(dog, vocabulary.lookup("dog"));
+        assertEquals("dog", vocabulary.get(dog));
+        assertSame(vocabulary.get(dog), vocabulary.canonical(new String("dog")));
+        assertEquals(1, vocabulary.size());
+    }
+
+    @Test
+    public void testConcurrentIntern() throws Exception {
+        Vocabulary vocabulary = new Vocabulary();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+            results.add(executor.submit(() -> {
+                int[] ids = new int[5000];
+                for (int i = 0; i < ids.length; i++)
+                    ids[i] = vocabulary.intern("w" + i);
+                return ids;
+            }));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        int[] first = results.get(0).get();
+        for (Future<int[]> result : results)
+            assertArrayEquals(first, result.get());
+        assertEquals(5000, vocabulary.size());
+        for (int i = 0; i < first.length; i++)
+            assertEquals("w" + i, vocabulary.get(first[i]));
+    }
+
+    @Test
+    public void testGlobalTokens() {
+        Analyzer analyzer = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                build();
+
+        Annotations<String> tokens = analyzer.getSentence("the dog barks").getAnnotations(AnnotationType.TOKEN);
+        assertTrue(tokens instanceof InternedAnnotations);
+        InternedAnnotations<String> interned = (InternedAnnotations<String>) tokens;
+        assertSame(Vocabulary.getGlobal(), interned.getVocabulary());
+        assertEquals(Vocabulary.getGlobal().lookup("dog"), interned.getIdCode(1));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.misc;
+
+import java.util.Locale;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeMatcherFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class TokenNormalizerTest {
+    private static final Analyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new TokenNormalizer()).
+            build();
+
+    @Test
+    public void testNormalize() {
+        String lower = "cafe";
+        assertSame(lower, TokenNormalizer.normalize(lower));
+        assertEquals("cafe", TokenNormalizer.normalize("CaFE"));
+        assertEquals("cafe", TokenNormalizer.normalize("Caf\u00e9"));
+        assertEquals("cafe", TokenNormalizer.normalize("CAFE\u0301"));
+        assertEquals("strasse", TokenNormalizer.normalize("Stra\u00dfe"));
+        assertEquals("fin", TokenNormalizer.normalize("\ufb01n"));
+        assertEquals("istanbul", TokenNormalizer.normalize("\u0130stanbul"));
+        assertEquals("123-abc", TokenNormalizer.normalize("123-ABC"));
+    }
+
+    @Test
+    public void testMatch() {
+        assertEquals(SentenceUtilities.getAnnotationValues(analyzer.getSentence("My CAF\u00c9 au lait"), AnnotationType.NORM).toString(),
+                     "[my, cafe, au, lait]");
+
+        Expression expr = new RealtimeExpressionFactory(analyzer).parse("`Caf\u00e9 au`");
+        assertEquals("(`cafe` `au`)", expr.toString());
+        RealtimeSentenceMatcher matcher = RealtimeMatcherFactory.newIndexingMatcher(expr);
+        assertEquals(1, matcher.match(analyzer.getSentence("My CAF\u00c9 AU lait")).size());
+        assertEquals(1, matcher.match(analyzer.getSentence("my cafe au lait")).size());
+        assertEquals(0, matcher.match(analyzer.getSentence("my cafe lait")).size());
+    }
+}
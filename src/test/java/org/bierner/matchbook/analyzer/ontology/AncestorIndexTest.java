@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(OntologyUtilities.class)
+public class AncestorIndexTest {
+    private static SimpleOntology.SimpleOntologyBuilder taxonomy() {
+        SimpleOntology.SimpleOntologyBuilder builder = SimpleOntology.builder();
+        for (int i = 1; i < 200; i++)                           // a deep chain c0 <- c1 <- ... <- c199
+            builder.add("c" + (i - 1), "c" + i, Relation.HYPO);
+        return builder.
+                add("animal", "pet", Relation.HYPO).            // a diamond
+                add("animal", "mammal", Relation.HYPO).
+                add("pet", "dog", Relation.HYPO).
+                add("mammal", "dog", Relation.HYPO).
+                add("x", "y", Relation.HYPO).                   // a cycle
+                add("y", "x", Relation.HYPO);
+    }
+
+    private static Set<String> ids(Ancestors ancestors, Ontology o, String concept) {
+        Set<String> ids = new HashSet<>();
+        for (Concept c : ancestors.getAncestors(o.getEntity(Concept.class, concept)))
+            assertTrue(ids.add(c.getId()));
+        return ids;
+    }
+
+    private static Set<String> set(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void testIndexAndMemoAgree() {
+        SimpleOntology o = taxonomy().build();
+        AncestorIndex index = AncestorIndex.build(o);
+        AncestorMemo memo = new AncestorMemo(o);
+        assertSame(AncestorIndex.class, o.getAncestors().getClass());
+
+        for (Ancestors ancestors : new Ancestors[] {index, memo}) {
+            assertEquals(set("pet", "mammal", "animal"), ids(ancestors, o, "dog"));
+            assertEquals(set("animal"), ids(ancestors, o, "pet"));
+            assertEquals(set(), ids(ancestors, o, "animal"));
+            assertEquals(199, ids(ancestors, o, "c199").size());
+            assertEquals(100, ids(ancestors, o, "c100").size());
+            assertEquals(set("x", "y"), ids(ancestors, o, "x"));
+
+            assertTrue(ancestors.isa(o.getConcept("c150"), o.getConcept("c3")));
+            assertFalse(ancestors.isa(o.getConcept("c3"), o.getConcept("c150")));
+            assertTrue(ancestors.isa(o.getConcept("dog"), o.getConcept("animal")));
+        }
+    }
+
+    @Test
+    public void testIntervals() {
+        SimpleOntology o = taxonomy().build();
+        AncestorIndex index = AncestorIndex.build(o);
+        AncestorMemo memo = new AncestorMemo(o);
+
+        // Every pair agrees with the closure, whether answered by interval (the chain) or by search (the diamond and cycle)
+        for (int i = 0; i < index.size(); i++)
+            for (int j = 0; j < index.size(); j++)
+                assertEquals(memo.getAncestors(index.getConcept(i)).contains(index.getConcept(j)), index.isa(i, j));
+        assertTrue(index.isa(index.getId(o.getConcept("c199")), index.getId(o.getConcept("c0"))));
+        assertFalse(index.isa(index.getId(o.getConcept("dog")), index.getId(o.getConcept("dog"))));
+        assertTrue(index.isa(index.getId(o.getConcept("x")), index.getId(o.getConcept("x"))));
+    }
+
+    @Test
+    public void testMutation() {
+        SimpleOntology.SimpleOntologyBuilder builder = taxonomy();
+        SimpleOntology o = builder.build();
+        assertEquals(set("pet", "mammal", "animal"), ids(o.getAncestors(), o, "dog"));
+
+        builder.add("organism", "animal", Relation.HYPO);
+        assertSame(AncestorMemo.class, o.getAncestors().getClass());
+        assertEquals(set("pet", "mammal", "animal", "organism"), ids(o.getAncestors(), o, "dog"));
+        assertSame(o.getAncestors(), o.getAncestors());
+    }
+}
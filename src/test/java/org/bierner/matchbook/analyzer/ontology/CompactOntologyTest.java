@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Entity;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Lemma;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(OntologyUtilities.class)
+public class CompactOntologyTest {
+    private static CompactOntology load(String name) throws IOException, ClassNotFoundException {
+        return CompactOntology.builder().add(new InputStreamReader(OntologyTest.class.getResourceAsStream(name))).build();
+    }
+
+    private static Set<Entity> set(Entity ... entities) {
+        return new HashSet<>(Arrays.asList(entities));
+    }
+
+    @Test
+    public void testNewRelations() throws IOException, ClassNotFoundException {
+        CompactOntology o = load("car.ont");
+        assertEquals(set(o.getConcept("car")), o.getRelation(o.getConcept("wheel"), Relation.getRelation("PART_OF")));
+        assertEquals(set(o.getConcept("wheel"), o.getConcept("engine")), o.getRelation(o.getConcept("car"), Relation.getRelation("CONTAINS")));
+        assertEquals(set(), o.getRelation(o.getConcept("piston"), Relation.getRelation("CONTAINS")));
+        assertEquals(4, o.size(Concept.class));
+    }
+
+    @Test
+    public void testReverseEdges() throws IOException, ClassNotFoundException {
+        CompactOntology o = load("animal.ont");
+        assertEquals(set(o.getConcept("dog")), o.getSources(o.getLemma("canine"), Relation.SYNS));
+        assertEquals(set(o.getConcept("dog"), o.getConcept("cat")), o.getSources(o.getConcept("animal"), Relation.HYPE));
+        assertEquals(set(), o.getSources(o.getLemma("unicorn"), Relation.SYNS));
+
+        // A duplicated line adds nothing
+        assertEquals(2, o.getRelation(o.getConcept("dog"), Relation.SYNS).size());
+    }
+
+    @Test
+    public void testEntities() throws IOException, ClassNotFoundException {
+        CompactOntology o = load("animal.ont");
+        Concept dog = o.getConcept("dog");
+        assertSame(dog, o.getConcept("dog"));
+        assertSame(dog.getId(), o.getLemma("dog").getId());
+        assertSame(o, dog.getOntology());
+
+        Concept unicorn = o.getConcept("unicorn");
+        assertEquals(unicorn, o.getConcept("unicorn"));
+        assertFalse(o.getEntities(Concept.class).contains(unicorn));
+        assertFalse(o.getEntities(Concept.class).contains(SimpleOntology.builder().add("dog", "dog", Relation.SYNS).build().getConcept("dog")));
+        assertTrue(o.getEntities(Concept.class).contains(dog));
+        assertFalse(o.getEntities(Lemma.class).contains(dog));
+        assertEquals(set(), o.getRelation(unicorn, Relation.HYPE));
+    }
+
+    @Test
+    public void testAnnotators() {
+        Ontologies.setLoader(names -> {
+            try {
+                return load(names[0]);
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalArgumentException(e);
+            }
+        });
+        try {
+            Analyzer analyzer = SimpleAnalyzer.builder().
+                    locale(Locale.ENGLISH).
+                    sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                    annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                    annotator(new PorterStemmer()).
+                    annotator(new SimpleConceptAnnotator("animal.ont")).
+                    annotator(new AncestorAnnotator()).
+                    build();
+
+            Annotations<Concept> ancestors = analyzer.getSentence("My poodle has fleas").getAnnotations(AnnotationType.ANCESTOR_CONCEPT);
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < ancestors.size(); i++)
+                ids.add(ancestors.getId(i));
+            assertEquals(new HashSet<>(Arrays.asList("dog", "animal")), ids);
+        } finally {
+            Ontologies.setLoader(new Ontologies.ResourceLoadStrategy("org/bierner/matchbook/analyzer/ontology"));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Entity;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Lemma;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(OntologyUtilities.class)
+public class OntologyLoaderTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Path resource(String name) throws URISyntaxException {
+        return Paths.get(OntologyTest.class.getResource(name).toURI());
+    }
+
+    private static SimpleOntology simple(String... names) throws IOException, ClassNotFoundException {
+        SimpleOntology.SimpleOntologyBuilder builder = SimpleOntology.builder();
+        for (String name : names)
+            builder.add(new InputStreamReader(OntologyTest.class.getResourceAsStream(name)));
+        return builder.build();
+    }
+
+    private static Set<String> ids(Set<? extends Entity> entities) {
+        Set<String> ids = new HashSet<>();
+        for (Entity e : entities)
+            ids.add(e.getId());
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertSameOntology(Ontology expected, Ontology actual) {
+        assertEquals(ids(expected.getEntities(Concept.class)), ids(actual.getEntities(Concept.class)));
+        assertEquals(ids(expected.getEntities(Lemma.class)), ids(actual.getEntities(Lemma.class)));
+        for (String id : new String[] {"HYPO", "HYPE", "SYNS", "PART_OF", "CONTAINS"}) {
+            Relation<Concept, Entity> relation = Relation.getRelation(id);
+            for (Concept c : expected.getEntities(Concept.class))
+                assertEquals(id + " of " + c.getId(), ids(expected.getRelation(c, relation)),
+                             ids(actual.getRelation(actual.getConcept(c.getId()), relation)));
+        }
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        SimpleOntology expected = simple("animal.ont", "car.ont");
+        for (int chunkSize : new int[] {1, 7, 1 << 20}) {
+            CompactOntology o = new OntologyLoader(new ForkJoinPool(4), chunkSize).load(resource("animal.ont"), resource("car.ont"));
+            assertSameOntology(expected, o);
+        }
+
+        // Blank lines and carriage returns are ignored
+        CompactOntology o = new OntologyLoader().add(CompactOntology.builder(),
+                ByteBuffer.wrap("HYPO\tanimal\tdog \r\n\r\n\nSYNS\tdog\tdog\tcanine".getBytes("UTF-8"))).build();
+        assertEquals(set("dog"), ids(o.getRelation(o.getConcept("animal"), Relation.HYPO)));
+        assertEquals(set("dog", "canine"), ids(o.getRelation(o.getConcept("dog"), Relation.SYNS)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRelation() {
+        new OntologyLoader().add(CompactOntology.builder(), ByteBuffer.wrap("NOT_A_RELATION\ta\tb\n".getBytes()));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        CompactOntology o = new OntologyLoader().load(resource("animal.ont"), resource("car.ont"));
+        Path snapshot = folder.newFile("animal.ont" + CompactOntology.SNAPSHOT_EXTENSION).toPath();
+        o.writeSnapshot(snapshot);
+
+        CompactOntology read = CompactOntology.readSnapshot(snapshot);
+        assertSameOntology(o, read);
+        assertSame(read.getConcept("dog").getId(), read.getLemma("dog").getId());
+        assertTrue(read.getConcept("poodle").isa(read.getConcept("animal")));
+
+        // The same ontology copied into a builder
+        assertSameOntology(o, CompactOntology.builder().add(read).build());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSnapshotVersion() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompactOntology.builder().add("dog", "dog", Relation.SYNS).build().writeSnapshot(out);
+        byte[] bytes = out.toByteArray();
+        bytes[7] = 99;
+        CompactOntology.readSnapshot(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void testPreferSnapshot() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        Files.copy(resource("animal.ont"), directory.resolve("animal.ont"));
+        Files.copy(resource("car.ont"), directory.resolve("car.ont"));
+        Ontologies.LoadStrategy strategy = new Ontologies.FileLoadStrategy(directory);
+        assertSameOntology(simple("animal.ont"), strategy.load("animal.ont"));
+
+        // A snapshot with an extra concept is used instead of the text
+        CompactOntology.builder().add(new InputStreamReader(OntologyTest.class.getResourceAsStream("animal.ont"))).
+                add("animal", "bird", Relation.HYPO).build().
+                writeSnapshot(directory.resolve("animal.ont" + CompactOntology.SNAPSHOT_EXTENSION));
+        Ontology animals = strategy.load("animal.ont");
+        assertTrue(animals.getEntities(Concept.class).contains(animals.getConcept("bird")));
+
+        Ontology both = strategy.load("animal.ont", "car.ont");
+        assertTrue(ids(both.getEntities(Concept.class)).containsAll(set("bird", "poodle", "car", "piston")));
+        assertEquals(set("engine", "wheel"), ids(both.getRelation(both.getConcept("car"), Relation.getRelation("CONTAINS"))));
+    }
+
+    @Test
+    public void testStaleSnapshot() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        Path text = directory.resolve("animal.ont"), snapshot = directory.resolve("animal.ont" + CompactOntology.SNAPSHOT_EXTENSION);
+        Files.copy(resource("animal.ont"), text);
+        Files.copy(resource("car.ont"), directory.resolve("car.ont"));
+        CompactOntology.builder().add(new InputStreamReader(OntologyTest.class.getResourceAsStream("animal.ont"))).
+                add("animal", "bird", Relation.HYPO).build().
+                writeSnapshot(snapshot);
+        Ontologies.LoadStrategy strategy = new Ontologies.FileLoadStrategy(directory);
+        assertTrue(ids(strategy.load("animal.ont").getEntities(Concept.class)).contains("bird"));
+
+        // Once the text is edited, the snapshot is out of date
+        Files.setLastModifiedTime(text, FileTime.fromMillis(Files.getLastModifiedTime(snapshot).toMillis() + 10000));
+        assertFalse(ids(strategy.load("animal.ont").getEntities(Concept.class)).contains("bird"));
+        assertFalse(ids(strategy.load("animal.ont", "car.ont").getEntities(Concept.class)).contains("bird"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissing() throws IOException {
+        new Ontologies.FileLoadStrategy(folder.newFolder().toPath()).load("missing.ont");
+    }
+
+    private static Set<String> set(String... ids) {
+        Set<String> set = new HashSet<>();
+        for (String id : ids)
+            set.add(id);
+        return set;
+    }
+}
@@ -55,6 +55,14 @@ public class OntologyTest {
                      o.getEntities(Lemma.class));
     }
 
+    @Test
+    public void testAncestors() {
+        assertEquals(set(o.getConcept("dog"), o.getConcept("animal")), o.getConcept("poodle").isa());
+        assertEquals(set(), o.getConcept("animal").isa());
+        assertTrue(o.getConcept("boxer").isa(o.getConcept("animal")));
+        assertFalse(o.getConcept("boxer").isa(o.getConcept("cat")));
+    }
+
     private Set<Entity> set(Entity ... entities) {
         Set<Entity> set = new HashSet<>();
         for (Entity e : entities)
@@ -67,7 +75,9 @@ public class OntologyTest {
     public static Collection<Object[]> getParameters() throws IOException, ClassNotFoundException {
         return Arrays.asList(new Object[][] {
             { getOntologyByBuilder() },
-            { getOntologyByText() }            
+            { getOntologyByText() },
+            { getCompactOntologyByBuilder() },
+            { getCompactOntologyByText() }
         });
     }
     
@@ -75,6 +85,25 @@ public class OntologyTest {
         return SimpleOntology.builder().add(new InputStreamReader(OntologyTest.class.getResourceAsStream("animal.ont"))).build();
     }
     
+    private static Ontology getCompactOntologyByText() throws IOException, ClassNotFoundException {
+        return CompactOntology.builder().add(new InputStreamReader(OntologyTest.class.getResourceAsStream("animal.ont"))).build();
+    }
+
+    private static Ontology getCompactOntologyByBuilder() {
+        return CompactOntology.builder().
+                add("animal", "dog", Relation.HYPO).
+                add("animal", "cat", Relation.HYPO).
+                add("poodle", "dog", Relation.HYPE).
+                add("boxer",  "dog", Relation.HYPE).
+                add("dog",    "dog", Relation.SYNS).
+                add("dog",    "canine", Relation.SYNS).
+                add("cat",    "cat", Relation.SYNS).
+                add("cat",    "feline", Relation.SYNS).
+                add("boxer",  "boxer", Relation.SYNS).
+                add("poodle", "poodle", Relation.SYNS).
+                build();
+    }
+
     private static Ontology getOntologyByBuilder() {
         return SimpleOntology.builder().
                 add("animal", "dog", Relation.HYPO).
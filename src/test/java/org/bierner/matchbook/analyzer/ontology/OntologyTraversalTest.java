@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+import org.bierner.matchbook.analyzer.ontology.OntologyTraversal.Order;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ *
+ * @author gann
+ */
+@RunWith(Parameterized.class)
+@AllArgsConstructor
+@ExtensionMethod(OntologyUtilities.class)
+public class OntologyTraversalTest {
+    private static final String[][] HYPO = {
+        {"animal", "dog"}, {"animal", "cat"}, {"dog", "poodle"}, {"dog", "boxer"}, {"cat", "kitten"}, {"pet", "dog"},
+        {"mineral", "rock"}
+    };
+
+    private Ontology o;
+
+    @Test
+    public void testClosure() {
+        OntologyTraversal t = new OntologyTraversal(o);
+        List<Concept> descendants = t.descendants(o.getConcept("animal"));
+        assertEquals(set("dog", "cat", "poodle", "boxer", "kitten"), new HashSet<>(descendants));
+        assertEquals(set("dog", "cat"), new HashSet<>(descendants.subList(0, 2)));
+        assertEquals(set("dog", "cat"), new HashSet<>(t.closure(o.getConcept("animal"), Relation.HYPO, 1)));
+        assertEquals(set("dog", "animal", "pet"), new HashSet<>(t.closure(o.getConcept("poodle"), Relation.HYPE)));
+        assertTrue(t.descendants(o.getConcept("kitten")).isEmpty());
+        assertTrue(t.descendants(o.getConcept("unicorn")).isEmpty());
+
+        assertEquals(descendants, t.descendants(o.getConcept("animal")));
+        assertEquals(1, t.stats().hitCount());
+        t.clear();
+        assertEquals(descendants, t.descendants(o.getConcept("animal")));
+        assertEquals(1, t.stats().hitCount());
+    }
+
+    @Test
+    public void testTraverse() {
+        OntologyTraversal t = new OntologyTraversal(o);
+        for (Order order : Order.values()) {
+            List<String> visited = new ArrayList<>();
+            t.traverse(o.getConcept("animal"), Relation.HYPO, order, Integer.MAX_VALUE, (concept, depth) -> {
+                visited.add(concept.getId() + depth);
+                return !concept.getId().equals("cat");
+            });
+            assertEquals("animal0", visited.get(0));
+            assertEquals(new HashSet<>(Arrays.asList("animal0", "dog1", "cat1", "poodle2", "boxer2")), new HashSet<>(visited));
+            assertEquals(5, visited.size());
+            if (order == Order.DEPTH_FIRST)
+                assertTrue(visited.indexOf("poodle2") == visited.indexOf("dog1") + 1 || visited.indexOf("boxer2") == visited.indexOf("dog1") + 1);
+            else
+                assertTrue(visited.indexOf("poodle2") > visited.indexOf("cat1"));
+        }
+
+        List<String> visited = new ArrayList<>();
+        t.traverse(o.getConcept("animal"), Relation.HYPO, Order.DEPTH_FIRST, 0, (concept, depth) -> visited.add(concept.getId()));
+        assertEquals(Arrays.asList("animal"), visited);
+    }
+
+    @Test
+    public void testDepthLimitedDag() {
+        // e is three edges from a through b but two through the shortcut to d
+        String[][] dag = {{"a", "b"}, {"b", "d"}, {"d", "e"}, {"a", "d"}};
+        SimpleOntology.SimpleOntologyBuilder simple = SimpleOntology.builder();
+        CompactOntology.CompactOntologyBuilder compact = CompactOntology.builder();
+        for (String[] edge : dag) {
+            simple.add(edge[0], edge[1], Relation.HYPO);
+            compact.add(edge[0], edge[1], Relation.HYPO);
+        }
+        for (Ontology dagOntology : new Ontology[] {simple.build(), compact.build()}) {
+            for (Order order : Order.values()) {
+                List<String> visited = new ArrayList<>();
+                new OntologyTraversal(dagOntology).traverse(dagOntology.getConcept("a"), Relation.HYPO, order, 2,
+                        (concept, depth) -> visited.add(concept.getId()));
+                assertEquals(order.toString(), new HashSet<>(Arrays.asList("a", "b", "d", "e")), new HashSet<>(visited));
+                assertEquals(order.toString(), 4, visited.size());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDepth() {
+        new OntologyTraversal(o).closure(o.getConcept("animal"), Relation.HYPO, -1);
+    }
+
+    @Test
+    public void testDistances() {
+        OntologyTraversal t = new OntologyTraversal(o);
+        assertEquals(2, t.distance(o.getConcept("animal"), o.getConcept("kitten"), Relation.HYPO));
+        assertEquals(-1, t.distance(o.getConcept("kitten"), o.getConcept("animal"), Relation.HYPO));
+        assertEquals(2, t.distance(o.getConcept("kitten"), o.getConcept("animal"), Relation.HYPE));
+        assertEquals(0, t.distance(o.getConcept("dog"), o.getConcept("dog"), Relation.HYPE));
+
+        assertEquals(o.getConcept("animal"), t.lowestCommonAncestor(o.getConcept("poodle"), o.getConcept("kitten")));
+        assertEquals(4, t.pathDistance(o.getConcept("poodle"), o.getConcept("kitten")));
+        assertEquals(o.getConcept("dog"), t.lowestCommonAncestor(o.getConcept("poodle"), o.getConcept("boxer")));
+        assertEquals(o.getConcept("dog"), t.lowestCommonAncestor(o.getConcept("poodle"), o.getConcept("dog")));
+        assertEquals(1, t.pathDistance(o.getConcept("dog"), o.getConcept("poodle")));
+        assertNull(t.lowestCommonAncestor(o.getConcept("poodle"), o.getConcept("rock")));
+        assertEquals(-1, t.pathDistance(o.getConcept("poodle"), o.getConcept("rock")));
+    }
+
+    private HashSet<Concept> set(String... ids) {
+        HashSet<Concept> set = new HashSet<>();
+        for (String id : ids)
+            set.add(o.getConcept(id));
+        return set;
+    }
+
+    @Parameters
+    public static Collection<Object[]> getParameters() {
+        SimpleOntology.SimpleOntologyBuilder simple = SimpleOntology.builder();
+        CompactOntology.CompactOntologyBuilder compact = CompactOntology.builder();
+        for (String[] edge : HYPO) {
+            simple.add(edge[0], edge[1], Relation.HYPO);
+            compact.add(edge[0], edge[1], Relation.HYPO);
+        }
+        return Arrays.asList(new Object[][] {
+            { simple.build() },
+            { compact.build() }
+        });
+    }
+}
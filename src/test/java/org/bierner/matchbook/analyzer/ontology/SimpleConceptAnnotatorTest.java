@@ -39,4 +39,78 @@ public class SimpleConceptAnnotatorTest {
         assertEquals(1, a.size());
         assertEquals("dog", a.get(0).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSequencesAndFallback() {
+        Ontology ontology = SimpleOntology.builder().
+                add("dog", "dog", Ontology.Relation.SYNS).
+                add("dog", "canine", Ontology.Relation.SYNS).
+                add("hot_dog", "hot dogs", Ontology.Relation.SYNS).
+                add("new_york", "\"New York\"", Ontology.Relation.SYNS).
+                add("cat", "/kitt.*/", Ontology.Relation.SYNS).
+                build();
+        Analyzer analyzer = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                annotator(new PorterStemmer()).
+                annotator(new SimpleConceptAnnotator(ontology)).
+                build();
+
+        Annotations<Ontology.Concept> a = analyzer.getSentence("A kitten ate hot dogs in New York").getAnnotations(AnnotationType.CONCEPT);
+        assertEquals(4, a.size());
+        assertEquals("cat",      a.getId(0)); assertEquals(1, a.getStart(0)); assertEquals(2, a.getEnd(0));
+        assertEquals("hot_dog",  a.getId(1)); assertEquals(3, a.getStart(1)); assertEquals(5, a.getEnd(1));
+        assertEquals("dog",      a.getId(2)); assertEquals(4, a.getStart(2)); assertEquals(5, a.getEnd(2));
+        assertEquals("new_york", a.getId(3)); assertEquals(6, a.getStart(3)); assertEquals(8, a.getEnd(3));
+        assertSame(ontology.getEntity(Ontology.Concept.class, "dog"), a.get(2).getValue());
+
+        assertEquals(0, analyzer.getSentence("I love new york").getAnnotations(AnnotationType.CONCEPT).size());
+    }
+
+    @Test
+    public void testSelection() {
+        Ontology ontology = SimpleOntology.builder().
+                add("dog", "dog", Ontology.Relation.SYNS).
+                add("hot_dog", "hot dogs", Ontology.Relation.SYNS).
+                add("sausage", "hot dogs", Ontology.Relation.SYNS).
+                add("cat", "/kitt.*/", Ontology.Relation.SYNS).
+                add("kitten", "kitten", Ontology.Relation.SYNS).
+                build();
+        String text = "A kitten ate hot dogs";
+
+        Annotations<Ontology.Concept> a = analyzer(ontology, ConceptSelection.ALL).getSentence(text).getAnnotations(AnnotationType.CONCEPT);
+        assertEquals(5, a.size());
+
+        // The same spans are kept by LONGEST, but not the dog inside the hot dogs
+        a = analyzer(ontology, ConceptSelection.LONGEST).getSentence(text).getAnnotations(AnnotationType.CONCEPT);
+        assertEquals(4, a.size());
+        for (int i = 0; i < a.size(); i++) {
+            assertNotEquals("dog", a.getId(i));
+            assertEquals(i < 2? 1 : 3, a.getStart(i));
+            assertEquals(i < 2? 2 : 5, a.getEnd(i));
+        }
+
+        // One concept per span, regardless of whether it came from the gazetteer or the fallback matcher
+        a = analyzer(ontology, ConceptSelection.topK(1, (x, y) -> x.getId().compareTo(y.getId()))).getSentence(text).getAnnotations(AnnotationType.CONCEPT);
+        assertEquals(3, a.size());
+        assertEquals("cat",     a.getId(0)); assertEquals(1, a.getStart(0)); assertEquals(2, a.getEnd(0));
+        assertEquals("hot_dog", a.getId(1)); assertEquals(3, a.getStart(1)); assertEquals(5, a.getEnd(1));
+        assertEquals("dog",     a.getId(2)); assertEquals(4, a.getStart(2)); assertEquals(5, a.getEnd(2));
+
+        a = analyzer(ontology, ConceptSelection.topK(1, (x, y) -> y.getId().compareTo(x.getId()))).getSentence(text).getAnnotations(AnnotationType.CONCEPT);
+        assertEquals(3, a.size());
+        assertEquals("kitten",  a.getId(0));
+        assertEquals("sausage", a.getId(1));
+    }
+
+    private static Analyzer analyzer(Ontology ontology, ConceptSelection selection) {
+        return SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                annotator(new PorterStemmer()).
+                annotator(new SimpleConceptAnnotator(ontology, selection)).
+                build();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Annotations;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Concept;
+import org.bierner.matchbook.analyzer.ontology.Ontology.Relation;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class VersionedOntologyTest {
+    private static Ontology ontology(String... puppies) {
+        CompactOntology.CompactOntologyBuilder builder = CompactOntology.builder().
+                add("animal", "dog", Relation.HYPO).
+                add("dog", "dog", Relation.SYNS).
+                add("dog", "canine", Relation.SYNS);
+        for (String puppy : puppies)
+            builder.add("dog", "puppy", Relation.HYPO).add("puppy", puppy, Relation.SYNS);
+        return builder.build();
+    }
+
+    private static Analyzer analyzer(VersionedOntology ontology) {
+        return analyzer(new SimpleConceptAnnotator(ontology));
+    }
+
+    private static Analyzer analyzer(SimpleConceptAnnotator annotator) {
+        return SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                annotator(new PorterStemmer()).
+                annotator(annotator).
+                annotator(new AncestorAnnotator()).
+                build();
+    }
+
+    private static List<String> ids(Annotations<Concept> annotations) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < annotations.size(); i++)
+            ids.add(annotations.getId(i));
+        return ids;
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        AtomicReference<Ontology> next = new AtomicReference<>(ontology());
+        VersionedOntology versioned = new VersionedOntology(next::get);
+        Analyzer analyzer = analyzer(versioned);
+        assertEquals(1, versioned.getVersion().getNumber());
+
+        Sentence before = analyzer.getSentence("my canine had a puppy");
+        assertEquals(1, before.getAnnotations(AnnotationType.CONCEPT).size());
+
+        next.set(ontology("puppy", "pup"));
+        VersionedOntology.Version version = versioned.reload().get();
+        assertEquals(2, version.getNumber());
+        assertSame(version, versioned.getVersion());
+        assertSame(next.get(), versioned.getOntology());
+
+        Sentence after = analyzer.getSentence("my canine had a puppy");
+        assertEquals(2, after.getAnnotations(AnnotationType.CONCEPT).size());
+        assertEquals("puppy", after.getAnnotations(AnnotationType.CONCEPT).getId(1));
+        assertSame(next.get(), after.getAnnotations(AnnotationType.CONCEPT).get(1).getValue().getOntology());
+
+        // Ancestors come from the version the concepts were found in
+        List<String> ancestors = ids(after.getAnnotations(AnnotationType.ANCESTOR_CONCEPT));
+        assertTrue(ancestors.contains("dog"));
+        assertTrue(ancestors.contains("animal"));
+
+        // A sentence analyzed earlier keeps the old version's annotations
+        assertEquals(1, before.getAnnotations(AnnotationType.CONCEPT).size());
+    }
+
+    @Test
+    public void testFailedReload() throws InterruptedException {
+        AtomicReference<Ontology> next = new AtomicReference<>(ontology());
+        VersionedOntology versioned = new VersionedOntology(() -> {
+            if (next.get() == null)
+                throw new IllegalStateException("The taxonomy is unavailable");
+            return next.get();
+        });
+        Analyzer analyzer = analyzer(versioned);
+        VersionedOntology.Version first = versioned.getVersion();
+
+        next.set(null);
+        try {
+            versioned.reload().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertSame(first, versioned.getVersion());
+        assertEquals(1, analyzer.getSentence("a canine").getAnnotations(AnnotationType.CONCEPT).size());
+    }
+
+    @Test
+    public void testListenersPreparedBeforeSwap() {
+        VersionedOntology versioned = new VersionedOntology(ontology());
+        List<Long> seen = new ArrayList<>();
+        versioned.addListener(next -> {
+            // Preparing doesn't change the current version
+            seen.add(versioned.getVersion().getNumber());
+            return () -> seen.add(next.getNumber());
+        });
+        versioned.update(ontology("pup"));
+        assertEquals(Arrays.asList(1L, 1L, 1L, 2L), seen);
+    }
+
+    @Test
+    public void testClose() {
+        VersionedOntology versioned = new VersionedOntology(ontology());
+        SimpleConceptAnnotator annotator = new SimpleConceptAnnotator(versioned);
+        analyzer(annotator);
+        Analyzer analyzer = analyzer(annotator);
+
+        versioned.update(ontology("pup"));
+        assertEquals(2, analyzer.getSentence("a canine pup").getAnnotations(AnnotationType.CONCEPT).size());
+
+        // Once closed, the annotator keeps the version it had
+        annotator.close();
+        versioned.update(ontology());
+        assertEquals(2, analyzer.getSentence("a canine pup").getAnnotations(AnnotationType.CONCEPT).size());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.opennlp;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class OpenNLPModelsTest {
+    private static final AtomicInteger reads = new AtomicInteger();
+
+    private static final OpenNLPModels.ModelSpec<String> TEST_MODEL = new OpenNLPModels.ModelSpec<>(OpenNLPModelsTest.class, "-test.bin", in -> {
+        reads.incrementAndGet();
+        StringBuilder model = new StringBuilder();
+        for (int c = in.read(); c >= 0; c = in.read())
+            model.append((char) c);
+        return model.toString();
+    });
+
+    private static void useTestLoader() {
+        reads.set(0);
+        OpenNLPModels.setLoader(name -> name.startsWith("en")? new ByteArrayInputStream(name.getBytes(StandardCharsets.US_ASCII)) : null);
+    }
+
+    @After
+    public void restoreLoader() {
+        OpenNLPModels.setLoader(new OpenNLPModels.ResourceLoadStrategy("opennlp/models"));
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        useTestLoader();
+        String model = OpenNLPModels.getModel(TEST_MODEL, Locale.ENGLISH);
+        assertEquals("en-test.bin", model);
+        assertSame(model, OpenNLPModels.getModel(TEST_MODEL, Locale.US));
+        assertEquals(1, reads.get());
+
+        OpenNLPModels.ModelStats stats = OpenNLPModels.getStats().get(0);
+        assertEquals("en-test.bin", stats.getModelName());
+        assertEquals(11, stats.getBytes());
+        assertTrue(stats.getLoadNanos() > 0);
+    }
+
+    @Test
+    public void testPreload() throws Exception {
+        useTestLoader();
+        OpenNLPModels.preload(Arrays.asList(Locale.ENGLISH, Locale.UK), TEST_MODEL).get();
+        assertEquals(1, reads.get());
+        assertEquals(1, OpenNLPModels.getStats().size());
+        OpenNLPModels.getModel(TEST_MODEL, Locale.ENGLISH);
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        useTestLoader();
+        try {
+            OpenNLPModels.getModel(TEST_MODEL, Locale.FRENCH);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("OpenNLPModelsTest model not available for fr", e.getMessage());
+        }
+        assertTrue(OpenNLPModels.getStats().isEmpty());
+        assertTrue(OpenNLPModels.preload(Collections.singleton(Locale.FRENCH), TEST_MODEL).handle((v, e) -> e != null).get());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        useTestLoader();
+        try {
+            OpenNLPModels.preload(r -> { throw new RejectedExecutionException(); }, Collections.singleton(Locale.ENGLISH), TEST_MODEL).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals("en-test.bin", OpenNLPModels.getModel(TEST_MODEL, Locale.ENGLISH));
+        assertEquals(1, reads.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testError() throws Exception {
+        useTestLoader();
+        AtomicInteger attempts = new AtomicInteger();
+        OpenNLPModels.ModelSpec<String> broken = new OpenNLPModels.ModelSpec<>(OpenNLPModelsTest.class, "-broken.bin", in -> {
+            attempts.incrementAndGet();
+            throw new NoClassDefFoundError("opennlp/tools/Missing");
+        });
+        for (int i = 0; i < 2; i++) {
+            try {
+                OpenNLPModels.getModel(broken, Locale.ENGLISH);
+                fail();
+            } catch (NoClassDefFoundError e) {
+                assertEquals("opennlp/tools/Missing", e.getMessage());
+            }
+        }
+        assertEquals(2, attempts.get());
+        assertTrue(OpenNLPModels.getStats().isEmpty());
+    }
+
+    @Test
+    public void testSentenceDetectors() throws Exception {
+        ThreadSafeOpenNLPSentenceDetector one = new ThreadSafeOpenNLPSentenceDetector(Locale.ENGLISH);
+        ThreadSafeOpenNLPSentenceDetector two = new ThreadSafeOpenNLPSentenceDetector(Locale.ENGLISH);
+        assertSame(OpenNLPModels.getModel(ThreadSafeOpenNLPSentenceDetector.MODEL, Locale.ENGLISH),
+                   OpenNLPModels.getModel(ThreadSafeOpenNLPSentenceDetector.MODEL, Locale.ENGLISH));
+        String text = "The dog barked at the mailman. He ran away.";
+        assertEquals(Arrays.asList("The dog barked at the mailman.", "He ran away."), one.getSentences(text));
+        assertEquals(one.getSentences(text), two.getSentences(text));
+    }
+}
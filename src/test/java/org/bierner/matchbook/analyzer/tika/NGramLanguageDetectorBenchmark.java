@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.tika;
+
+import org.bierner.matchbook.analyzer.LanguageDetector;
+
+/**
+ * Compares the speed of {@link NGramLanguageDetector} with {@link TikaLanguageDetector} on short and long texts.  It
+ * is run by hand rather than by the test suite.
+ *
+ * @author gann
+ */
+public class NGramLanguageDetectorBenchmark {
+    /**
+     * Runs the comparison.
+     * @param args optionally, the number of iterations
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0? Integer.parseInt(args[0]) : 2000;
+        String[] shortTexts = {
+            "The dog barked at the mailman.",
+            "Le chien a aboy\u00e9 contre le facteur.",
+            "Der Hund bellte den Brieftr\u00e4ger an.",
+            "El perro le ladr\u00f3 al cartero."
+        };
+        String[] longTexts = new String[shortTexts.length];
+        for (int i = 0; i < shortTexts.length; i++) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 20000)
+                text.append(shortTexts[i]).append(' ');
+            longTexts[i] = text.toString();
+        }
+
+        LanguageDetector tika = new TikaLanguageDetector();
+        NGramLanguageDetector cached = new NGramLanguageDetector();
+        LanguageDetector ngram = new NGramLanguageDetector(cached.getSampleSize(), 0);  // no cache, to measure detection itself
+        for (String[] texts : new String[][] {shortTexts, longTexts}) {
+            String label = texts == shortTexts? "short" : "long";
+            System.out.printf("%-6s tika:   %8.1f us/text%n", label, time(tika, texts, iterations));
+            System.out.printf("%-6s ngram:  %8.1f us/text%n", label, time(ngram, texts, iterations));
+            System.out.printf("%-6s cached: %8.1f us/text%n", label, time(cached, texts, iterations));
+        }
+    }
+
+    private static double time(LanguageDetector detector, String[] texts, int iterations) {
+        for (int i = 0; i < iterations / 10; i++)                         // warm up
+            detector.getLanguage(texts[i % texts.length]);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            detector.getLanguage(texts[i % texts.length]);
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.analyzer.tika;
+
+import com.google.common.base.Strings;
+import java.util.Arrays;
+import java.util.Locale;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class NGramLanguageDetectorTest {
+    private static final NGramLanguageDetector detector = new NGramLanguageDetector();
+
+    @Test
+    public void testLanguages() {
+        assertEquals("en", detector.getLanguage("The quick brown fox jumped over the lazy dog and ran into the woods.").getLanguage());
+        assertEquals("fr", detector.getLanguage("Le renard brun rapide a saut\u00e9 par-dessus le chien paresseux.").getLanguage());
+        assertEquals("de", detector.getLanguage("Der schnelle braune Fuchs sprang \u00fcber den faulen Hund.").getLanguage());
+        assertEquals("es", detector.getLanguage("El perro de mi hermano es muy grande y come mucho todos los d\u00edas en la casa.").getLanguage());
+    }
+
+    @Test
+    public void testSample() {
+        NGramLanguageDetector small = new NGramLanguageDetector(Arrays.asList("en", "fr"), 60, 0);
+        String text = "The quick brown fox jumped over the lazy dog in the woods. " + Strings.repeat("Le chien est dans la maison. ", 100);
+        assertEquals("en", small.getLanguage(text).getLanguage());
+    }
+
+    @Test
+    public void testHint() {
+        assertEquals(Locale.GERMAN, detector.getLanguage("The quick brown fox", Locale.GERMAN));
+        assertEquals("en", detector.getLanguage("The quick brown fox jumped over the lazy dog", null).getLanguage());
+    }
+
+    @Test
+    public void testAgreesWithTika() {
+        TikaLanguageDetector tika = new TikaLanguageDetector();
+        for (String text : Arrays.asList(
+                "Il \u00e9tait une fois une petite fille qui vivait dans un village pr\u00e8s de la for\u00eat.",
+                "Es war einmal ein kleines M\u00e4dchen, das in einem Dorf am Rande des Waldes lebte.",
+                "Once upon a time there was a little girl who lived in a village near the forest."))
+            assertEquals(tika.getLanguage(text), detector.getLanguage(text));
+    }
+}
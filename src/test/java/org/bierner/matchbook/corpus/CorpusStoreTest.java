@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.corpus;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import lombok.experimental.ExtensionMethod;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.SentenceCodec;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.misc.BoundaryAnnotator;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.analyzer.util.SentenceUtilities;
+import org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeMatcherFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+@ExtensionMethod(SentenceUtilities.class)
+public class CorpusStoreTest {
+    private static final SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new PorterStemmer()).
+            annotator(new BoundaryAnnotator()).
+            build();
+
+    private static final SentenceCodec codec = new SentenceCodec(AnnotationType.TOKEN, AnnotationType.STEM, AnnotationType.BOUNDARY);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String text(int i) {
+        return "Sentence " + i + " is about " + (i % 3 == 0? "dogs" : "cats") + ".";
+    }
+
+    private static void add(CorpusStore store, int from, int to) throws Exception {
+        for (int i = from; i < to; i++)
+            assertEquals(i, store.add(analyzer.getSentence(text(i))));
+    }
+
+    @Test
+    public void testRandomAccessAcrossSegments() throws Exception {
+        try (CorpusStore store = CorpusStore.open(folder.getRoot().toPath(), codec, analyzer, 200)) {
+            add(store, 0, 50);
+            store.commit();
+            assertEquals(50, store.size());
+            assertTrue(store.getSegments().size() > 1);
+
+            for (int i : new int[] {0, 17, 49, 3, 31})
+                assertEquals(text(i), store.get(i).getText());
+            assertEquals(Arrays.asList("sentenc", "17", "is", "about", "cat", "."), store.get(17).getStems());
+
+            List<String> texts = store.sentences().map(Sentence::getText).collect(Collectors.toList());
+            assertEquals(50, texts.size());
+            assertEquals(text(42), texts.get(42));
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (CorpusStore store = CorpusStore.open(directory, codec, analyzer)) {
+            add(store, 0, 10);
+            assertEquals(0, store.size());
+        }
+        try (CorpusStore store = CorpusStore.open(directory, codec, analyzer)) {
+            assertEquals(10, store.size());
+            add(store, 10, 16);
+            store.commit();
+            assertEquals(16, store.size());
+            assertEquals(text(12), store.get(12).getText());
+        }
+        try (CorpusStore store = CorpusStore.open(directory, codec, analyzer)) {
+            assertEquals(16, store.size());
+            assertEquals(2, store.getSegments().size());
+            assertEquals(10, store.getSegments().get(1).getBaseId());
+        }
+    }
+
+    @Test
+    public void testMatchStoredSentences() throws Exception {
+        RealtimeSentenceMatcher matcher = RealtimeMatcherFactory.newIndexingMatcher(
+                new RealtimeExpressionFactory(analyzer).parse("about dog"));
+        try (CorpusStore store = CorpusStore.open(folder.getRoot().toPath(), codec, analyzer)) {
+            add(store, 0, 30);
+            store.commit();
+            long matched = store.sentences().filter(s -> matcher.match(s).size() > 0).count();
+            assertEquals(10, matched);
+            assertEquals(3, matcher.match(store.get(3)).get(0).getStart());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.matcher;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class LevenshteinAutomatonTest {
+    @Test
+    public void testMatches() {
+        LevenshteinAutomaton a = new LevenshteinAutomaton("recieve", 1);
+        assertTrue(a.matches("recieve"));
+        assertTrue(a.matches("receive"));
+        assertTrue(a.matches("recieved"));
+        assertTrue(a.matches("recive"));
+        assertTrue(a.matches("rexieve"));
+        assertFalse(a.matches("deceived"));
+        assertFalse(a.matches(""));
+
+        assertTrue(new LevenshteinAutomaton("", 1).matches("a"));
+        assertFalse(new LevenshteinAutomaton("", 1).matches("ab"));
+        assertTrue(new LevenshteinAutomaton("dog", 0).matches("dog"));
+        assertFalse(new LevenshteinAutomaton("dog", 0).matches("dgo"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDistanceTooLarge() {
+        new LevenshteinAutomaton("dog", LevenshteinAutomaton.MAX_DISTANCE + 1);
+    }
+
+    // The automaton should agree with the dynamic programming distance on random strings over a small alphabet
+    @Test
+    public void testAgainstDistance() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            String word = random(random, 6);
+            for (int distance = 0; distance <= LevenshteinAutomaton.MAX_DISTANCE; distance++) {
+                LevenshteinAutomaton a = new LevenshteinAutomaton(word, distance);
+                for (int i = 0; i < 50; i++) {
+                    String s = random(random, 8);
+                    assertEquals(word + " " + s + " " + distance, distance(word, s) <= distance, a.matches(s));
+                }
+            }
+        }
+    }
+
+    private static String random(Random random, int maxLength) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0, n = random.nextInt(maxLength + 1); i < n; i++)
+            s.append("abc".charAt(random.nextInt(3)));
+        return s.toString();
+    }
+
+    // Edit distance counting adjacent transpositions as one edit
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                d[i][j] = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1)? 0 : 1), Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+            }
+        return d[a.length()][b.length()];
+    }
+}
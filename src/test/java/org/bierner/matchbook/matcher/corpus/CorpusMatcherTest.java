@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.misc.BoundaryAnnotator;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeMatcherFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class CorpusMatcherTest {
+    private static final SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new PorterStemmer()).
+            annotator(new BoundaryAnnotator()).
+            build();
+
+    private static final String[] WORDS = {"a", "b", "c", "dog", "dogs", "barked", "x", "y"};
+
+    private static final List<Sentence> sentences = new ArrayList<>();
+    private static final CorpusMatcher  matcher;
+
+    static {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0, length = 1 + random.nextInt(8); j < length; j++)
+                text.append(j == 0? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            sentences.add(analyzer.getSentence(text.toString()));
+        }
+        matcher = new CorpusMatcher(CorpusIndex.builder(AnnotationType.TOKEN, AnnotationType.STEM, AnnotationType.BOUNDARY).
+                addAll(sentences).build());
+    }
+
+    private static Expression expression(String text) {
+        return new RealtimeExpressionFactory(analyzer).parse(text);
+    }
+
+    // The corpus matcher should find exactly what the realtime matcher finds sentence by sentence
+    private static void check(String text) {
+        Expression expression = expression(text);
+        RealtimeSentenceMatcher realtime = RealtimeMatcherFactory.newIndexingMatcher(expression);
+
+        List<CorpusMatcher.CorpusMatch> expected = new ArrayList<>();
+        for (int s = 0; s < sentences.size(); s++) {
+            RealtimeSentenceMatcher.Matches matches = realtime.match(sentences.get(s));
+            for (int i = 0; i < matches.size(); i++)
+                expected.add(new CorpusMatcher.CorpusMatch(s, matches.get(i).getStart(), matches.get(i).getEnd()));
+        }
+
+        assertEquals(text, expected, matcher.match(expression));
+        assertEquals(text, expected.size(), matcher.count(expression));
+    }
+
+    @Test
+    public void testAtoms() {
+        check("a");
+        check("dog");
+        check("\"dog\"");
+        check("'dog'");
+        check("/d.*/");
+        check("~\"dgo\"~1");
+        check("~\"dgo\"~2");
+        check("~\"bark\"~2");
+        check("~\"dog barked\"~1");
+        assertEquals(matcher.count(expression("\"dog\"")), matcher.count(expression("~\"dgo\"~1")));
+        assertTrue(matcher.count(expression("~\"dgo\"~2")) > matcher.count(expression("\"dog\"")));
+        check("zebra");
+    }
+
+    @Test
+    public void testFuzzyDistance() {
+        for (String text : new String[] {"~\"dog\"~3", "~\"dog\"~99999999999"}) {
+            try {
+                expression(text);
+                fail(text);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("Edit distance"));
+            }
+        }
+    }
+
+    @Test
+    public void testCompounds() {
+        check("a b");
+        check("a b c");
+        check("a OR dog");
+        check("(a OR b) c");
+        check("/[abc]/ ISNT b");
+        check("dog IS \"dogs\"");
+        check("START a");
+        check("b END");
+    }
+
+    @Test
+    public void testRepeats() {
+        check("a[2]");
+        check("a[2:3]");
+        check("a[0:2] b");
+        check("x a? y");
+        check("x a[0:1]");
+        check("(a OR b)[1:4] END");
+    }
+
+    @Test
+    public void testLimitsAndSentences() {
+        Expression expression = expression("dog");
+        List<CorpusMatcher.CorpusMatch> all = matcher.match(expression);
+        assertTrue(all.size() > 5);
+        assertEquals(all.subList(0, 5), matcher.match(expression, 5));
+        assertTrue(matcher.match(expression, 0).isEmpty());
+
+        int[] matching = matcher.matchingSentences(expression);
+        assertEquals(all.stream().mapToInt(CorpusMatcher.CorpusMatch::getSentence).distinct().count(), matching.length);
+        for (int i = 1; i < matching.length; i++)
+            assertTrue(matching[i - 1] < matching[i]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnindexedType() {
+        matcher.match(expression("{NN}"));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.misc.BoundaryAnnotator;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.matcher.corpus.CorpusMatcher.CorpusMatch;
+import org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class ParallelCorpusMatcherTest {
+    private static final SimpleAnalyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new PorterStemmer()).
+            annotator(new BoundaryAnnotator()).
+            build();
+
+    private static final String[] WORDS = {"a", "b", "c", "dog", "dogs", "barked", "x", "y"};
+
+    private static List<Sentence> sentences(int count) {
+        Random random = new Random(11);
+        List<Sentence> sentences = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0, length = 1 + random.nextInt(8); j < length; j++)
+                text.append(j == 0? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            sentences.add(analyzer.getSentence(text.toString()));
+        }
+        return sentences;
+    }
+
+    private static Expression expression(String text) {
+        return new RealtimeExpressionFactory(analyzer).parse(text);
+    }
+
+    @Test
+    public void testSameAsSingleIndex() {
+        List<Sentence> sentences = sentences(500);
+        CorpusMatcher single = new CorpusMatcher(CorpusIndex.builder(AnnotationType.TOKEN, AnnotationType.STEM, AnnotationType.BOUNDARY).
+                addAll(sentences).build());
+
+        try (SegmentedCorpusIndex index = SegmentedCorpusIndex.builder().
+                types(AnnotationType.TOKEN, AnnotationType.STEM, AnnotationType.BOUNDARY).
+                segmentSize(16).mergeFactor(3).build()) {
+            index.addAll(sentences).flush();
+            assertEquals(500, index.size());
+
+            // 31 full segments and one partial one, merged in threes
+            List<SegmentedCorpusIndex.Segment> segments = index.getSegments();
+            assertTrue(segments.size() < 10);
+            int next = 0;
+            for (SegmentedCorpusIndex.Segment segment : segments) {
+                assertEquals(next, segment.getBaseId());
+                next += segment.size();
+            }
+
+            ParallelCorpusMatcher parallel = new ParallelCorpusMatcher(index, new ForkJoinPool(4));
+            for (String text : new String[] {"dog", "a b", "(a OR b)[1:3] END", "x a? y", "/[abc]/ ISNT b"}) {
+                Expression expression = expression(text);
+                List<CorpusMatch> expected = single.match(expression);
+                assertEquals(text, expected, parallel.match(expression));
+                assertEquals(text, expected.size(), parallel.count(expression));
+                assertEquals(text, expected.subList(0, 7), parallel.match(expression, 7));
+                assertEquals(text, 7, parallel.count(expression, 7));
+            }
+        }
+    }
+
+    @Test
+    public void testAddWhileSearching() {
+        try (SegmentedCorpusIndex index = SegmentedCorpusIndex.builder().types(AnnotationType.TOKEN).segmentSize(10).build()) {
+            ParallelCorpusMatcher matcher = new ParallelCorpusMatcher(index);
+            Expression expression = expression("\"dog\"");
+            assertTrue(matcher.match(expression).isEmpty());
+
+            List<Sentence> sentences = sentences(95);
+            index.addAll(sentences.subList(0, 5)).flush();
+            long before = matcher.count(expression);
+            assertEquals(5, index.size());
+
+            index.addAll(sentences.subList(5, 95));
+            index.flush();
+            assertEquals(95, index.size());
+            assertTrue(matcher.count(expression) >= before);
+            assertEquals(new CorpusMatcher(CorpusIndex.builder(AnnotationType.TOKEN).addAll(sentences).build()).count(expression),
+                         matcher.count(expression));
+        }
+    }
+}
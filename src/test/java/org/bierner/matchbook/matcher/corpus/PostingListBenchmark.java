@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.matcher.corpus;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares compressed posting lists with uncompressed lists of packed positions, for both a full scan of a common
+ * annotation and its intersection with a rare one.  It is run by hand rather than by the test suite.
+ *
+ * @author gann
+ */
+public class PostingListBenchmark {
+    /**
+     * Runs the comparison.
+     * @param args optionally, the number of sentences
+     */
+    public static void main(String[] args) {
+        int sentences = args.length > 0? Integer.parseInt(args[0]) : 1000000;
+        Random random = new Random(0);
+
+        // A common annotation occurs a few times in nearly every sentence, and a rare one in about one in a thousand
+        Raw commonRaw = new Raw(), rareRaw = new Raw();
+        PostingList.Builder commonBuilder = new PostingList.Builder(), rareBuilder = new PostingList.Builder();
+        for (int s = 0; s < sentences; s++) {
+            int tokens = 5 + random.nextInt(30);
+            if (random.nextInt(10) != 0)
+                for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+                    int start = random.nextInt(tokens);
+                    commonRaw.add(s, start, start + 1);
+                    commonBuilder.add(s, start, start + 1);
+                }
+            if (random.nextInt(1000) == 0) {
+                int start = random.nextInt(tokens);
+                rareRaw.add(s, start, start + 1);
+                rareBuilder.add(s, start, start + 1);
+            }
+        }
+        PostingList common = commonBuilder.build(), rare = rareBuilder.build();
+        commonRaw.finish();
+        rareRaw.finish();
+
+        System.out.printf("common: %,d sentences, %,d positions%n", common.size(), common.positionCount());
+        System.out.printf("raw:        %,12d bytes%n", commonRaw.byteCount());
+        System.out.printf("compressed: %,12d bytes%n", common.byteCount());
+
+        int iterations = 20;
+        System.out.printf("scan raw:               %8.2f ms%n", time(iterations, commonRaw::scan));
+        System.out.printf("scan compressed:        %8.2f ms%n", time(iterations, () -> scan(common.cursor())));
+        System.out.printf("intersect raw:          %8.3f ms%n", time(iterations, () -> commonRaw.intersect(rareRaw)));
+        System.out.printf("intersect compressed:   %8.3f ms%n", time(iterations, () ->
+                scan(Cursors.is(Arrays.asList(common.cursor(), rare.cursor())))));
+    }
+
+    private static long scan(Cursor cursor) {
+        long total = 0;
+        for (int s = cursor.advance(0); s != Cursor.NO_MORE; s = cursor.advance(s + 1))
+            total += cursor.positions().size;
+        return total;
+    }
+
+    private static double time(int iterations, LongSupplier run) {
+        long checksum = 0;
+        for (int i = 0; i < iterations / 2; i++)                          // warm up
+            checksum += run.getAsLong();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            checksum += run.getAsLong();
+        if (checksum == 42)
+            System.out.println();
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+
+    // Uncompressed postings as lists of positions packed as in the realtime matcher, merged linearly
+    private static class Raw {
+        private final TIntArrayList  sentences = new TIntArrayList();
+        private final TIntArrayList  offsets   = new TIntArrayList();
+        private final TLongArrayList positions = new TLongArrayList();
+
+        void add(int sentence, int start, int end) {
+            if (sentences.isEmpty() || sentences.get(sentences.size() - 1) != sentence) {
+                sentences.add(sentence);
+                offsets.add(positions.size());
+            }
+            positions.add(Positions.pack(start, end));
+        }
+
+        void finish() {
+            offsets.add(positions.size());
+        }
+
+        long byteCount() {
+            return 4L * sentences.size() + 4L * offsets.size() + 8L * positions.size();
+        }
+
+        long scan() {
+            long total = 0;
+            for (int i = 0; i < sentences.size(); i++)
+                for (int j = offsets.get(i); j < offsets.get(i + 1); j++)
+                    total += Positions.start(positions.get(j)) >= 0? 1 : 0;
+            return total;
+        }
+
+        long intersect(Raw other) {
+            long total = 0;
+            for (int i = 0, j = 0; i < sentences.size() && j < other.sentences.size(); ) {
+                int a = sentences.get(i), b = other.sentences.get(j);
+                if (a < b)
+                    i++;
+                else if (b < a)
+                    j++;
+                else {
+                    total += Positions.is(positions(i), other.positions(j)).size;
+                    i++;
+                    j++;
+                }
+            }
+            return total;
+        }
+
+        private Positions positions(int i) {
+            int from = offsets.get(i), to = offsets.get(i + 1);
+            return new Positions(positions.toArray(from, to - from), to - from);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.matcher.corpus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class PostingListTest {
+    private final TreeMap<Integer, TreeSet<Long>> expected = new TreeMap<>();
+    private final PostingList                     list;
+
+    public PostingListTest() {
+        Random random = new Random(3);
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int s = 0; s < 5000; s++) {
+            if (random.nextInt(3) != 0)
+                continue;
+            TreeSet<Long> positions = new TreeSet<>();
+            for (int i = 0, n = 1 + random.nextInt(5); i < n; i++) {
+                int start = random.nextInt(200000), end = start + random.nextInt(3);
+                builder.add(s, start, end);
+                positions.add(Positions.pack(start, end));
+            }
+            expected.put(s, positions);
+        }
+        list = builder.build();
+    }
+
+    private List<Long> positions(Cursor cursor) {
+        Positions p = cursor.positions();
+        List<Long> result = new ArrayList<>();
+        for (int i = 0; i < p.size; i++)
+            result.add(p.entries[i]);
+        return result;
+    }
+
+    @Test
+    public void testScan() {
+        assertEquals(expected.size(), list.size());
+        assertTrue(list.size() > 2 * PostingList.BLOCK_SIZE);
+
+        Cursor cursor = list.cursor();
+        assertEquals(-1, cursor.sentence());
+        int positionCount = 0;
+        for (int s : expected.keySet()) {
+            assertEquals(s, cursor.advance(cursor.sentence() + 1));
+            assertEquals(new ArrayList<>(expected.get(s)), positions(cursor));
+            positionCount += expected.get(s).size();
+        }
+        assertEquals(Cursor.NO_MORE, cursor.advance(cursor.sentence() + 1));
+        assertEquals(positionCount, list.positionCount());
+    }
+
+    @Test
+    public void testSkipping() {
+        Random random = new Random(5);
+        Cursor cursor = list.cursor();
+        for (int target = 0; ; target += random.nextInt(600)) {
+            Integer s = expected.ceilingKey(target);
+            assertEquals(s == null? Cursor.NO_MORE : s, cursor.advance(target));
+            if (s == null)
+                break;
+            assertEquals(new ArrayList<>(expected.get(s)), positions(cursor));
+            assertEquals((int) s, cursor.advance(target));         // not moving backward
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfOrder() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(5, 0, 1);
+        builder.add(4, 0, 1);
+    }
+}
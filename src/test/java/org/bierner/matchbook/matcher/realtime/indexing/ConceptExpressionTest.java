@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.matcher.realtime.indexing;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.Sentence;
+import org.bierner.matchbook.analyzer.SentenceCodec;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.ontology.AncestorAnnotator;
+import org.bierner.matchbook.analyzer.ontology.Ontologies;
+import org.bierner.matchbook.analyzer.ontology.Ontology;
+import org.bierner.matchbook.analyzer.ontology.SimpleConceptAnnotator;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.matcher.corpus.CorpusIndex;
+import org.bierner.matchbook.matcher.corpus.CorpusMatcher;
+import org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeMatcherFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
+import org.bierner.matchbook.matcher.realtime.expr.ConceptExpression;
+import org.bierner.matchbook.matcher.realtime.expr.Expression;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class ConceptExpressionTest {
+    private static final Ontology ontology;
+    private static final Analyzer analyzer;             // no ancestor annotations
+    private static final Analyzer ancestorAnalyzer;
+
+    static {
+        Ontologies.setLoader(new Ontologies.ResourceLoadStrategy("org/bierner/matchbook/analyzer/ontology"));
+        ontology = Ontologies.getOntology("animal.ont");
+        analyzer = analyzer(false);
+        ancestorAnalyzer = analyzer(true);
+    }
+
+    private static Analyzer analyzer(boolean ancestors) {
+        SimpleAnalyzer.SimpleAnalyzerBuilder builder = SimpleAnalyzer.builder().
+                locale(Locale.ENGLISH).
+                sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+                annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+                annotator(new PorterStemmer()).
+                annotator(new SimpleConceptAnnotator(ontology));
+        if (ancestors)
+            builder.annotator(new AncestorAnnotator());
+        return builder.build();
+    }
+
+    private static final List<String> TEXTS = Arrays.asList("my poodle is great", "my dog is great", "a feline and a boxer", "no pets");
+
+    private static void check(String expression, String text, int... expected) {
+        Expression expr = new RealtimeExpressionFactory(analyzer).parse(expression);
+        RealtimeSentenceMatcher.Matches matches = RealtimeMatcherFactory.newIndexingMatcher(expr).match(analyzer.getSentence(text));
+        assertEquals(expression + " in " + text, expected.length / 2, matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            assertEquals(expected[i * 2], matches.get(i).getStart());
+            assertEquals(expected[i * 2 + 1], matches.get(i).getEnd());
+        }
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(new ConceptExpression("dog"), new RealtimeExpressionFactory(analyzer).parse("<dog>"));
+    }
+
+    @Test
+    public void testHierarchy() {
+        check("<dog>", "my dog is great", 1, 2);
+        check("<dog>", "my poodle is great", 1, 2);
+        check("<animal>", "my poodle is great", 1, 2);
+        check("<cat>", "my poodle is great");
+        check("<animal>", "a feline and a boxer", 1, 2, 4, 5);
+        check("<<dog>>", "my poodle is great");
+        check("my <dog> is", "my poodle is great", 0, 3);
+    }
+
+    @Test
+    public void testDecoded() {
+        // Decoded without the ontology, mentions have ids but no concepts, so only exact mentions match
+        SentenceCodec codec = new SentenceCodec(AnnotationType.TOKEN, AnnotationType.STEM, AnnotationType.CONCEPT);
+        RealtimeSentenceMatcher matcher = RealtimeMatcherFactory.newIndexingMatcher(new RealtimeExpressionFactory(analyzer).parse("<dog>"));
+        Sentence dog = codec.decode(ByteBuffer.wrap(codec.encode(analyzer.getSentence("my dog is great"))), analyzer);
+        assertNull(dog.getAnnotations(AnnotationType.CONCEPT).get(0).getValue());
+        assertEquals(1, matcher.match(dog).size());
+        assertEquals(1, matcher.match(dog).get(0).getStart());
+
+        Sentence poodle = codec.decode(ByteBuffer.wrap(codec.encode(analyzer.getSentence("my poodle is great"))), analyzer);
+        assertEquals(0, matcher.match(poodle).size());
+    }
+
+    @Test
+    public void testCorpus() {
+        CorpusIndex withAncestors = CorpusIndex.builder(AnnotationType.CONCEPT, AnnotationType.ANCESTOR_CONCEPT).
+                addAll(sentences(ancestorAnalyzer)).build();
+        CorpusIndex conceptsOnly = CorpusIndex.builder(AnnotationType.CONCEPT).addAll(sentences(analyzer)).build();
+
+        for (String text : new String[] {"<dog>", "<animal>", "<cat>", "<boxer>"}) {
+            Expression expr = new RealtimeExpressionFactory(analyzer).parse(text);
+            List<CorpusMatcher.CorpusMatch> expected = new CorpusMatcher(withAncestors).match(expr);
+            assertEquals(text, expected, new CorpusMatcher(conceptsOnly, ontology).match(expr));
+            assertEquals(text, expected, new CorpusMatcher(withAncestors, ontology).match(expr));
+        }
+        assertEquals(4, new CorpusMatcher(conceptsOnly, ontology).count(new ConceptExpression("animal")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorpusWithoutHierarchy() {
+        CorpusIndex conceptsOnly = CorpusIndex.builder(AnnotationType.CONCEPT).addAll(sentences(analyzer)).build();
+        new CorpusMatcher(conceptsOnly).match(new ConceptExpression("animal"));
+    }
+
+    private static List<Sentence> sentences(Analyzer analyzer) {
+        List<Sentence> sentences = new ArrayList<>();
+        for (String text : TEXTS)
+            sentences.add(analyzer.getSentence(text));
+        return sentences;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014, Gann Bierner
+ */
+package org.bierner.matchbook.pipeline;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.bierner.matchbook.analyzer.Analyzer;
+import org.bierner.matchbook.analyzer.AnnotationType;
+import org.bierner.matchbook.analyzer.SimpleAnalyzer;
+import org.bierner.matchbook.analyzer.java.BreakIteratorSentenceDetector;
+import org.bierner.matchbook.analyzer.java.BreakIteratorTokenizer;
+import org.bierner.matchbook.analyzer.opennlp.PorterStemmer;
+import org.bierner.matchbook.matcher.realtime.RealtimeExpressionFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeMatcherFactory;
+import org.bierner.matchbook.matcher.realtime.RealtimeSentenceMatcher;
+import org.bierner.matchbook.pipeline.DocumentPipeline.DocumentResult;
+import org.bierner.matchbook.pipeline.DocumentPipeline.Stage;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author gann
+ */
+public class DocumentPipelineTest {
+    private static final Analyzer analyzer = SimpleAnalyzer.builder().
+            locale(Locale.ENGLISH).
+            sentenceDetector(new BreakIteratorSentenceDetector(Locale.ENGLISH)).
+            annotator(new BreakIteratorTokenizer(Locale.ENGLISH)).
+            annotator(new PorterStemmer()).
+            build();
+
+    private static final RealtimeSentenceMatcher matcher =
+            RealtimeMatcherFactory.newIndexingMatcher(new RealtimeExpressionFactory(analyzer).parse("'dog'"));
+
+    @Test
+    public void testOrdered() {
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+            documents.add(i % 3 == 0? "I have " + i + " dogs. My dogs bark." : "I have " + i + " cats.");
+
+        try (DocumentPipeline<String> pipeline = DocumentPipeline.<String>builder(s -> s).
+                analyzer(analyzer).
+                matcher(matcher).
+                splitThreads(2).
+                annotateThreads(2).
+                matchThreads(4).
+                queueSize(8).
+                annotate(AnnotationType.TOKEN, AnnotationType.STEM).
+                build()) {
+            List<DocumentResult<String>> results = pipeline.process(documents).collect(Collectors.toList());
+
+            assertEquals(documents.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                DocumentResult<String> result = results.get(i);
+                assertEquals(i, result.getIndex());
+                assertSame(documents.get(i), result.getDocument());
+                int matches = result.getSentences().stream().mapToInt(s -> s.getMatches().size()).sum();
+                assertEquals(i % 3 == 0? 2 : 0, matches);
+            }
+
+            assertEquals(200, pipeline.getCounter(Stage.SPLIT).getCount());
+            assertEquals(267, pipeline.getCounter(Stage.MATCH).getCount());
+            assertEquals(267, pipeline.getCounter(Stage.ANNOTATE).getCount());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testClose() throws Exception {
+        AtomicInteger read = new AtomicInteger();
+        Iterator<String> documents = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                return "I have " + read.incrementAndGet() + " dogs.";
+            }
+        };
+
+        DocumentPipeline<String> pipeline = DocumentPipeline.<String>builder(s -> s).
+                analyzer(analyzer).
+                matcher(matcher).
+                queueSize(4).
+                build();
+        CountDownLatch started = new CountDownLatch(10);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                pipeline.process(documents).forEach(result -> started.countDown());
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        });
+        consumer.start();
+
+        started.await();
+        pipeline.close();
+        consumer.join();
+        assertTrue(String.valueOf(error.get()), error.get() instanceof CancellationException);
+
+        // The feeder has stopped reading documents
+        Thread.sleep(300);
+        int count = read.get();
+        Thread.sleep(300);
+        assertEquals(count, read.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequired() {
+        DocumentPipeline.<String>builder(s -> s).analyzer(analyzer).build();
+    }
+}